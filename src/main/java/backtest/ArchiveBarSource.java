@@ -0,0 +1,34 @@
+package backtest;
+
+import data.BarArchive;
+import data.BarSeries;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Replays the bars the live bot recorded in its {@link BarArchive}.
+ */
+public class ArchiveBarSource implements BarSource {
+    private final BarArchive archive;
+
+    public ArchiveBarSource(BarArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public List<LocalDate> dates() throws IOException {
+        return archive.dates();
+    }
+
+    @Override
+    public List<String> symbols(LocalDate date) throws IOException {
+        return archive.symbols(date);
+    }
+
+    @Override
+    public BarSeries load(String symbol, LocalDate date) throws IOException {
+        return archive.load(symbol, date);
+    }
+}
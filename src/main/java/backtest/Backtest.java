@@ -0,0 +1,68 @@
+package backtest;
+
+import data.BarArchive;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import strategy.BullFlagBreakout;
+import strategy.LowFloatMomentum;
+import trade.TradeJournal;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Command-line backtest over a {@link BarArchive} or {@link CsvBarSource} directory.
+ *
+ * <pre>
+ * java -cp trading-bot.jar backtest.Backtest &lt;dataDir&gt; &lt;BullFlagBreakout|LowFloatMomentum&gt; [fromYyyyMMdd] [toYyyyMMdd]
+ * </pre>
+ * Per-cycle strategy, risk and journal logging is turned down to WARN so the replay is CPU-bound
+ * rather than log-bound; pass {@code -Dbacktest.verbose=true} to keep it.
+ */
+public class Backtest {
+    private static final Logger log = LoggerFactory.getLogger(Backtest.class);
+
+    private static final double STARTING_CASH = 100_000.0;
+    private static final String[] CHATTY_PACKAGES = {"strategy", "risk", "trade", "data", "ORDER_AUDIT", "backtest.BacktestBroker"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: backtest.Backtest <dataDir> <BullFlagBreakout|LowFloatMomentum> [fromYyyyMMdd] [toYyyyMMdd]");
+            System.exit(2);
+        }
+        if (!Boolean.getBoolean("backtest.verbose")) {
+            for (String name : CHATTY_PACKAGES) {
+                Configurator.setLevel(name, Level.WARN);
+            }
+        }
+
+        BacktestEngine.StrategyFactory factory = switch (args[1]) {
+            case "BullFlagBreakout" -> BullFlagBreakout::new;
+            case "LowFloatMomentum" -> LowFloatMomentum::new;
+            default -> throw new IllegalArgumentException("Unknown strategy: " + args[1]);
+        };
+
+        BarSource source = BarSource.open(Path.of(args[0]));
+        LocalDate from = args.length > 2 ? LocalDate.parse(args[2], DateTimeFormatter.BASIC_ISO_DATE) : LocalDate.MIN;
+        LocalDate to = args.length > 3 ? LocalDate.parse(args[3], DateTimeFormatter.BASIC_ISO_DATE) : LocalDate.MAX;
+        List<LocalDate> dates = source.dates().stream()
+                .filter(d -> !d.isBefore(from) && !d.isAfter(to))
+                .toList();
+
+        BacktestEngine engine = new BacktestEngine(source, factory, STARTING_CASH,
+                Runtime.getRuntime().availableProcessors());
+        BacktestEngine.Result result = engine.run(dates);
+
+        log.info("=== Backtest: {} over {} sessions ===", args[1], result.sessions().size());
+        log.info("{} symbol-days, {} bars in {}ms ({} symbol-days/s)", result.symbolDays(), result.bars(),
+                result.elapsedMs(), String.format("%.1f", result.symbolDaysPerSecond()));
+        for (TradeJournal.StrategySummary s : result.summaries().values()) {
+            log.info("[{}] fills={} winners={} netPnL={} commission={}", s.strategy(), s.totalTrades(),
+                    s.winningTrades(), String.format("%.2f", s.totalNetPnL()), String.format("%.2f", s.totalCommission()));
+        }
+    }
+}
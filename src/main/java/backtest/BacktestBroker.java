@@ -0,0 +1,459 @@
+package backtest;
+
+import com.ib.client.Contract;
+import com.ib.client.ContractDetails;
+import com.ib.client.Decimal;
+import com.ib.client.Order;
+import com.ib.client.OrderType;
+import com.ib.client.ScannerSubscription;
+import com.ib.client.TagValue;
+import com.ib.client.Types;
+import data.BarSeries;
+import ibkr.Broker;
+import ibkr.model.AccountSummaryOutput;
+import ibkr.model.HistoricalDataInput;
+import ibkr.model.OrderOutput;
+import ibkr.model.PositionOutput;
+import ibkr.model.Quote;
+import ibkr.model.ScanData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import trade.TradeJournal;
+import util.Constants;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Broker} over one session of recorded bars, with a simulated account and order book.
+ *
+ * Only completed bars are visible: at replay time T a request sees the bars that started at or
+ * before T - 60s, so a strategy never reads a bar it could not have seen live. Working orders are
+ * matched against each bar as it completes (see {@link #advance()} and {@link FillModel}):
+ * <ul>
+ *   <li>BUY limit fills when low &lt;= limit, at min(open, limit); SELL limit when high &gt;= limit, at max(open, limit).</li>
+ *   <li>SELL stop fills when low &lt;= stop, at min(open, stop); BUY stop when high &gt;= stop, at max(open, stop).</li>
+ *   <li>Bracket children go live when the parent fills. The stop may trigger on the entry bar, the
+ *       take-profit may not, and when one bar touches both the stop wins (bar order is unknown, so
+ *       assume the worse outcome).</li>
+ *   <li>Market orders fill on placement at the last visible close.</li>
+ *   <li>Commission is IBKR fixed pricing: $0.005/share, $1.00 minimum.</li>
+ *   <li>The account is a margin account with 4x intraday buying power; like TWS, a bracket whose
+ *       entry notional exceeds the remaining buying power is rejected.</li>
+ * </ul>
+ * Fills are reported to the {@link TradeJournal} as an execution plus a commission report, exactly as
+ * EWrapperImpl does live, so backtest trades come out as ordinary {@link trade.TradeRecord}s.
+ *
+ * Strategies call in from several virtual threads per cycle, so every entry point is synchronized.
+ */
+public class BacktestBroker implements Broker {
+    private static final Logger log = LoggerFactory.getLogger(BacktestBroker.class);
+
+    private static final String ACCOUNT = "BACKTEST";
+    private static final long BAR_SECONDS = 60;
+    private static final double QUOTE_SIZE = 100;
+    private static final double INTRADAY_LEVERAGE = 4.0;
+    private static final DateTimeFormatter DAY_FMT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final class SymbolData {
+        final BarSeries bars;
+        final ContractDetails details;
+        final double dayOpen;
+        int visible;            // bars [0, visible) have completed
+
+        SymbolData(BarSeries bars, ContractDetails details) {
+            this.bars = bars;
+            this.details = details;
+            this.dayOpen = bars.open(0);
+        }
+
+        double lastClose() {
+            return visible > 0 ? bars.close(visible - 1) : 0.0;
+        }
+    }
+
+    private static final class SimOrder {
+        final int orderId;
+        final Contract contract;
+        final Order order;
+        boolean active;         // bracket children wait for the parent fill
+
+        SimOrder(int orderId, Contract contract, Order order, boolean active) {
+            this.orderId = orderId;
+            this.contract = contract;
+            this.order = order;
+            this.active = active;
+        }
+
+        boolean isBuy() {
+            return order.action() == Types.Action.BUY;
+        }
+
+        boolean isStop() {
+            return order.orderType() == OrderType.STP;
+        }
+    }
+
+    private static final class Holding {
+        final Contract contract;
+        long shares;
+        double avgCost;         // includes the opening commission, as IBKR reports it
+        String orderRef;        // strategy that opened the position
+
+        Holding(Contract contract) {
+            this.contract = contract;
+        }
+    }
+
+    private final SimulatedClock clock;
+    private final TradeJournal journal;
+    private final String sessionId;
+    private final Map<String, SymbolData> symbols = new LinkedHashMap<>();
+    private final List<SimOrder> working = new ArrayList<>();
+    private final Map<String, Holding> holdings = new LinkedHashMap<>();
+    private double cash;
+    private int nextOrderId = 1;
+    private int nextExecId = 1;
+    private long barsReplayed;
+
+    public BacktestBroker(SimulatedClock clock, LocalDate session, Map<String, BarSeries> bars,
+                          TradeJournal journal, double startingCash) {
+        this.clock = clock;
+        this.journal = journal;
+        this.cash = startingCash;
+        this.sessionId = session.format(DAY_FMT);
+
+        String tradingHours = sessionId + ":0400-" + sessionId + ":2000";
+        int conid = 1;
+        for (Map.Entry<String, BarSeries> entry : bars.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            Contract contract = new Contract();
+            contract.conid(conid++);
+            contract.symbol(entry.getKey());
+            contract.secType(Types.SecType.STK);
+            contract.exchange("SMART");
+            contract.currency("USD");
+
+            ContractDetails details = new ContractDetails();
+            details.contract(contract);
+            details.minTick(Constants.STANDARD_TICK_SIZE);
+            details.tradingHours(tradingHours);
+            details.liquidHours(tradingHours);
+            details.timeZoneId("US/Eastern");
+            symbols.put(entry.getKey(), new SymbolData(entry.getValue(), details));
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Replay
+    // -------------------------------------------------------------------------
+
+    /** Reveals every bar completed by the clock's current time and matches working orders against it. */
+    public synchronized void advance() {
+        long now = clock.epochSecond();
+        for (SymbolData sd : symbols.values()) {
+            while (sd.visible < sd.bars.size() && sd.bars.time(sd.visible) + BAR_SECONDS <= now) {
+                if (!working.isEmpty()) {
+                    matchOrders(sd, sd.visible);
+                }
+                sd.visible++;
+                barsReplayed++;
+            }
+        }
+    }
+
+    /** Cancels everything and closes any open position at the last visible close. */
+    public synchronized void flatten() {
+        working.clear();
+        for (Holding h : new ArrayList<>(holdings.values())) {
+            if (h.shares != 0) {
+                SymbolData sd = symbols.get(h.contract.symbol());
+                fill(h.contract, 0, null, h.shares < 0, Math.abs(h.shares), sd.lastClose());
+            }
+        }
+    }
+
+    public synchronized long barsReplayed() {
+        return barsReplayed;
+    }
+
+    public synchronized double netLiquidation() {
+        double value = cash;
+        for (Holding h : holdings.values()) {
+            value += h.shares * symbols.get(h.contract.symbol()).lastClose();
+        }
+        return value;
+    }
+
+    private double buyingPower() {
+        double gross = 0.0;
+        for (Holding h : holdings.values()) {
+            gross += Math.abs(h.shares) * symbols.get(h.contract.symbol()).lastClose();
+        }
+        return Math.max(0.0, netLiquidation() * INTRADAY_LEVERAGE - gross);
+    }
+
+    private void matchOrders(SymbolData sd, int i) {
+        String symbol = sd.details.contract().symbol();
+        List<Integer> filledParents = new ArrayList<>();
+
+        // Parents and standalone orders first, so a child can trigger on its parent's bar
+        for (SimOrder o : new ArrayList<>(working)) {
+            if (!o.active || o.order.parentId() != 0 || !o.contract.symbol().equals(symbol)) {
+                continue;
+            }
+            double price = triggerPrice(o, sd.bars, i);
+            if (Double.isNaN(price)) {
+                continue;
+            }
+            working.remove(o);
+            fill(o.contract, o.orderId, o.order.orderRef(), o.isBuy(), o.order.totalQuantity().longValue(), price);
+            filledParents.add(o.orderId);
+            for (SimOrder child : working) {
+                if (child.order.parentId() == o.orderId) {
+                    child.active = true;
+                }
+            }
+        }
+
+        // Stops before targets: if a bar touched both, assume the stop came first
+        List<SimOrder> children = new ArrayList<>();
+        for (SimOrder o : working) {
+            if (o.active && o.order.parentId() != 0 && o.contract.symbol().equals(symbol)) {
+                children.add(o);
+            }
+        }
+        children.sort(Comparator.comparing(o -> !o.isStop()));
+        for (SimOrder o : children) {
+            if (!working.contains(o)) {
+                continue;       // cancelled by its sibling's fill
+            }
+            if (!o.isStop() && filledParents.contains(o.order.parentId())) {
+                continue;       // no take-profit on the entry bar
+            }
+            double price = triggerPrice(o, sd.bars, i);
+            if (Double.isNaN(price)) {
+                continue;
+            }
+            working.removeIf(w -> w.order.parentId() == o.order.parentId());    // one-cancels-other
+            fill(o.contract, o.orderId, o.order.orderRef(), o.isBuy(), o.order.totalQuantity().longValue(), price);
+        }
+    }
+
+    /** Fill price of {@code o} against bar {@code i}, or NaN if the bar does not reach it. */
+    private static double triggerPrice(SimOrder o, BarSeries bars, int i) {
+        if (o.order.orderType() == OrderType.MKT) {
+            return bars.open(i);
+        }
+        if (o.isStop()) {
+            double stop = o.order.auxPrice();
+            return o.isBuy() ? FillModel.buyStop(bars, i, stop) : FillModel.sellStop(bars, i, stop);
+        }
+        // Anything else is treated as a limit order (LowFloatMomentum sends orderType "Limit")
+        double limit = o.order.lmtPrice();
+        return o.isBuy() ? FillModel.buyLimit(bars, i, limit) : FillModel.sellLimit(bars, i, limit);
+    }
+
+    private void fill(Contract contract, int orderId, String orderRef, boolean buy, long quantity, double price) {
+        if (quantity <= 0) {
+            return;
+        }
+        String symbol = contract.symbol();
+        Holding h = holdings.computeIfAbsent(symbol, k -> new Holding(contract));
+        double commission = FillModel.commission(quantity);
+        long signed = buy ? quantity : -quantity;
+        if (orderRef == null || orderRef.isBlank()) {
+            // Flattening orders (Position.closeAllPositions) carry no orderRef; book them to the opener
+            orderRef = h.orderRef;
+        } else if (h.shares == 0) {
+            h.orderRef = orderRef;
+        }
+
+        // IBKR reports realizedPnL = Double.MAX_VALUE on opening fills
+        double realizedPnL = Double.MAX_VALUE;
+        long newShares = h.shares + signed;
+        if (h.shares != 0 && Long.signum(h.shares) != Long.signum(signed)) {
+            long closing = Math.min(quantity, Math.abs(h.shares));
+            realizedPnL = (price - h.avgCost) * closing * Long.signum(h.shares);
+            if (Long.signum(newShares) == -Long.signum(h.shares)) {
+                h.avgCost = price;      // flipped through flat: the remainder opens at this price
+            }
+        } else {
+            h.avgCost = (h.avgCost * Math.abs(h.shares) + price * quantity + commission) / Math.abs(newShares);
+        }
+        h.shares = newShares;
+        if (newShares == 0) {
+            holdings.remove(symbol);
+        }
+        cash += buy ? -(quantity * price + commission) : quantity * price - commission;
+
+        String execId = "BT." + sessionId + "." + nextExecId++;
+        LocalDateTime time = LocalDateTime.ofInstant(clock.instant(), Constants.EASTERN);
+        journal.recordExecution(execId, orderId, orderRef, symbol, buy ? "BOT" : "SLD", quantity, price, time);
+        journal.recordCommission(execId, commission, realizedPnL);
+        log.debug("[{}] {} {} @ {} (orderId={}, cash={})", symbol, buy ? "BOT" : "SLD", quantity, price, orderId, cash);
+    }
+
+    // -------------------------------------------------------------------------
+    // Broker
+    // -------------------------------------------------------------------------
+
+    @Override
+    public SimulatedClock clock() {
+        return clock;
+    }
+
+    /**
+     * Ranks symbols by % gain from the session's first open to the last visible close, after the
+     * subscription's price filters. Filter tags (float, relative volume) have no recorded data and are ignored.
+     */
+    @Override
+    public synchronized List<ScanData> marketScan(ScannerSubscription subscription, List<TagValue> filterOptions) {
+        List<SymbolData> ranked = new ArrayList<>();
+        for (SymbolData sd : symbols.values()) {
+            double last = sd.lastClose();
+            if (sd.visible == 0 || sd.dayOpen <= 0
+                    || (subscription.abovePrice() != Double.MAX_VALUE && last < subscription.abovePrice())
+                    || (subscription.belowPrice() != Double.MAX_VALUE && last > subscription.belowPrice())) {
+                continue;
+            }
+            ranked.add(sd);
+        }
+        ranked.sort(Comparator.comparingDouble((SymbolData sd) -> sd.lastClose() / sd.dayOpen).reversed());
+
+        int rows = subscription.numberOfRows() > 0 ? Math.min(subscription.numberOfRows(), ranked.size()) : ranked.size();
+        List<ScanData> result = new ArrayList<>(rows);
+        for (int rank = 0; rank < rows; rank++) {
+            result.add(ScanData.builder().rank(rank).contractDetails(ranked.get(rank).details).build());
+        }
+        return result;
+    }
+
+    /** The completed bars so far, as a zero-copy view of the session's series. */
+    @Override
+    public synchronized BarSeries reqLiveBars(HistoricalDataInput historicalDataInput) {
+        SymbolData sd = symbols.get(historicalDataInput.getContract().symbol());
+        return sd != null ? sd.bars.head(sd.visible) : new BarSeries(0);
+    }
+
+    @Override
+    public synchronized ContractDetails reqContractDetails(Contract contract) {
+        SymbolData sd = symbols.get(contract.symbol());
+        if (sd == null) {
+            throw new IllegalArgumentException("No backtest data for " + contract.symbol());
+        }
+        return sd.details;
+    }
+
+    /** A one-tick-wide market around the last visible close; null before the symbol's first bar. */
+    @Override
+    public synchronized Quote reqQuote(Contract contract) {
+        SymbolData sd = symbols.get(contract.symbol());
+        if (sd == null || sd.visible == 0) {
+            return null;
+        }
+        double last = sd.lastClose();
+        return Quote.builder()
+                .symbol(contract.symbol())
+                .bid(last - Constants.STANDARD_TICK_SIZE)
+                .ask(last + Constants.STANDARD_TICK_SIZE)
+                .last(last)
+                .bidSize(QUOTE_SIZE)
+                .askSize(QUOTE_SIZE)
+                .updatedAt(clock.millis())
+                .build();
+    }
+
+    @Override
+    public synchronized List<PositionOutput> reqPositions() {
+        List<PositionOutput> positions = new ArrayList<>(holdings.size());
+        for (Holding h : holdings.values()) {
+            double last = symbols.get(h.contract.symbol()).lastClose();
+            positions.add(PositionOutput.builder()
+                    .account(ACCOUNT)
+                    .contract(h.contract)
+                    .pos(Decimal.get(h.shares))
+                    .avgCost(h.avgCost)
+                    .marketPrice(last)
+                    .marketValue(h.shares * last)
+                    .unrealizedPnL((last - h.avgCost) * h.shares)
+                    .build());
+        }
+        return positions;
+    }
+
+    /** Working orders, including bracket children still waiting on their parent. */
+    @Override
+    public synchronized List<OrderOutput> reqAllOpenOrder() {
+        List<OrderOutput> orders = new ArrayList<>(working.size());
+        for (SimOrder o : working) {
+            orders.add(OrderOutput.builder().orderId(o.orderId).contract(o.contract).order(o.order).build());
+        }
+        return orders;
+    }
+
+    /** NetLiquidation marks holdings to the last close; AvailableFunds is the cash balance. */
+    @Override
+    public synchronized List<AccountSummaryOutput> reqAccountSummary(String tags) {
+        List<AccountSummaryOutput> summary = new ArrayList<>(4);
+        summary.add(accountValue("NetLiquidation", netLiquidation()));
+        summary.add(accountValue("AvailableFunds", cash));
+        summary.add(accountValue("BuyingPower", buyingPower()));
+        summary.add(accountValue("HighestSeverity", 0));
+        return summary;
+    }
+
+    private static AccountSummaryOutput accountValue(String tag, double value) {
+        return AccountSummaryOutput.builder().account(ACCOUNT).tag(tag).value(Double.toString(value)).currency("USD").build();
+    }
+
+    @Override
+    public synchronized void placeOrder(Contract contract, Order order) {
+        int orderId = nextOrderId++;
+        order.orderId(orderId);
+        SymbolData sd = symbols.get(contract.symbol());
+        if (order.orderType() == OrderType.MKT && sd != null && sd.visible > 0) {
+            fill(contract, orderId, order.orderRef(), order.action() == Types.Action.BUY,
+                    order.totalQuantity().longValue(), sd.lastClose());
+            return;
+        }
+        working.add(new SimOrder(orderId, contract, order, true));
+    }
+
+    @Override
+    public synchronized void placeBracketOrders(Contract contract, Order parentOrder, Order childOrder1, Order childOrder2) {
+        double notional = parentOrder.totalQuantity().longValue() * parentOrder.lmtPrice();
+        double buyingPower = buyingPower();
+        if (notional > buyingPower) {
+            log.warn("[{}] Bracket rejected: entry notional {} exceeds buying power {}", contract.symbol(),
+                    String.format("%.2f", notional), String.format("%.2f", buyingPower));
+            return;
+        }
+        int parentOrderId = nextOrderId;
+        nextOrderId += 3;
+        parentOrder.orderId(parentOrderId);
+        childOrder1.orderId(parentOrderId + 1);
+        childOrder2.orderId(parentOrderId + 2);
+        childOrder1.parentId(parentOrderId);
+        childOrder2.parentId(parentOrderId);
+
+        working.add(new SimOrder(parentOrderId, contract, parentOrder, true));
+        working.add(new SimOrder(parentOrderId + 1, contract, childOrder1, false));
+        working.add(new SimOrder(parentOrderId + 2, contract, childOrder2, false));
+        log.debug("[{}] Bracket {} @ {} (tp {}, sl {}) at {}", contract.symbol(), parentOrder.totalQuantity(),
+                parentOrder.lmtPrice(), childOrder1.lmtPrice(), childOrder2.auxPrice(), clock.instant());
+    }
+
+    @Override
+    public synchronized void closeAllOrders() {
+        working.clear();
+    }
+}
@@ -0,0 +1,172 @@
+package backtest;
+
+import data.BarSeries;
+import ibkr.Broker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import risk.Position;
+import risk.RiskManager;
+import strategy.Strategy;
+import trade.TradeJournal;
+import trade.TradeRecord;
+import util.Constants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays recorded sessions through an unmodified {@link Strategy}.
+ *
+ * Each session gets its own {@link SimulatedClock}, {@link BacktestBroker}, Position, RiskManager and
+ * strategy instance, starting from the same cash, so sessions are independent and run in parallel,
+ * one per core. Within a session the clock steps one bar (60s) at a time: the broker reveals the bar
+ * that just completed and matches working orders against it, then the strategy runs if it is inside
+ * its window and its interval has elapsed. At {@link Constants#INTRADAY_CUTOFF} (or the end of the
+ * data) the strategy's {@code onEndOfDay()} runs and anything still open is flattened.
+ *
+ * All fills from all sessions land in one {@link TradeJournal}, so the result carries the same
+ * TradeRecords and per-strategy summaries as live trading.
+ */
+public class BacktestEngine {
+    private static final Logger log = LoggerFactory.getLogger(BacktestEngine.class);
+
+    private static final long BAR_SECONDS = 60;
+
+    /** Builds a strategy against the backtest's broker; the live constructors fit, e.g. {@code BullFlagBreakout::new}. */
+    @FunctionalInterface
+    public interface StrategyFactory {
+        Strategy create(Broker broker, Position position, RiskManager riskManager);
+    }
+
+    public record SessionResult(LocalDate date, int symbols, long bars, double endingNetLiquidation) {}
+
+    public record Result(List<SessionResult> sessions,
+                         List<TradeRecord> trades,
+                         Map<String, TradeJournal.StrategySummary> summaries,
+                         long elapsedMs) {
+
+        public int symbolDays() {
+            return sessions.stream().mapToInt(SessionResult::symbols).sum();
+        }
+
+        public long bars() {
+            return sessions.stream().mapToLong(SessionResult::bars).sum();
+        }
+
+        public double symbolDaysPerSecond() {
+            return elapsedMs > 0 ? symbolDays() * 1000.0 / elapsedMs : 0.0;
+        }
+    }
+
+    private final BarSource source;
+    private final StrategyFactory strategyFactory;
+    private final double startingCash;
+    private final int parallelism;
+
+    public BacktestEngine(BarSource source, StrategyFactory strategyFactory, double startingCash, int parallelism) {
+        this.source = source;
+        this.strategyFactory = strategyFactory;
+        this.startingCash = startingCash;
+        this.parallelism = parallelism;
+    }
+
+    /** Replays every session in {@code dates}; sessions with no data are skipped. */
+    public Result run(List<LocalDate> dates) throws InterruptedException, ExecutionException {
+        long start = System.currentTimeMillis();
+        TradeJournal journal = new TradeJournal();
+
+        List<Future<SessionResult>> futures = new ArrayList<>(dates.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            for (LocalDate date : dates) {
+                futures.add(executor.submit(() -> runSession(date, journal)));
+            }
+        }
+
+        List<SessionResult> sessions = new ArrayList<>(futures.size());
+        for (Future<SessionResult> future : futures) {
+            SessionResult session = future.get();
+            if (session != null) {
+                sessions.add(session);
+            }
+        }
+
+        List<TradeRecord> trades = new ArrayList<>(journal.getCompletedTrades());
+        trades.sort((a, b) -> a.getTime().compareTo(b.getTime()));
+        return new Result(sessions, trades, journal.getStrategySummaries(), System.currentTimeMillis() - start);
+    }
+
+    private SessionResult runSession(LocalDate date, TradeJournal journal) {
+        Map<String, BarSeries> bars = new LinkedHashMap<>();
+        long firstBar = Long.MAX_VALUE;
+        long lastBarEnd = Long.MIN_VALUE;
+        try {
+            for (String symbol : source.symbols(date)) {
+                BarSeries series = source.load(symbol, date);
+                if (series.isEmpty()) {
+                    continue;
+                }
+                bars.put(symbol, series);
+                firstBar = Math.min(firstBar, series.time(0));
+                lastBarEnd = Math.max(lastBarEnd, series.time(series.lastIndex()) + BAR_SECONDS);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load bars for " + date, e);
+        }
+        if (bars.isEmpty()) {
+            log.warn("No bars for {} - skipping", date);
+            return null;
+        }
+
+        SimulatedClock clock = new SimulatedClock(Instant.ofEpochSecond(firstBar));
+        BacktestBroker broker = new BacktestBroker(clock, date, bars, journal, startingCash);
+        Strategy strategy = strategyFactory.create(broker, new Position(broker), new RiskManager(clock));
+
+        long windowStart = epochSecond(date, strategy.getStartTime());
+        long windowEnd = epochSecond(date, strategy.getEndTime());
+        long cutoff = Math.min(epochSecond(date, Constants.INTRADAY_CUTOFF), lastBarEnd);
+        long interval = Math.max(strategy.getIntervalSeconds(), 1);
+
+        long nextRun = windowStart;
+        for (long now = firstBar - Math.floorMod(firstBar, BAR_SECONDS) + BAR_SECONDS; now <= cutoff; now += BAR_SECONDS) {
+            clock.setEpochSecond(now);
+            broker.advance();
+            if (now >= nextRun && now < windowEnd) {
+                try {
+                    strategy.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                } catch (Exception e) {
+                    log.warn("[{}] {} cycle at {} failed: {}", date, strategy.getName(), clock.instant(), e.getMessage());
+                }
+                while (nextRun <= now) {
+                    nextRun += interval;
+                }
+            }
+        }
+
+        clock.setEpochSecond(cutoff);
+        strategy.onEndOfDay();
+        broker.flatten();
+
+        SessionResult result = new SessionResult(date, bars.size(), broker.barsReplayed(), broker.netLiquidation());
+        log.debug("{}: {} symbols, {} bars, net liquidation {}", date, result.symbols(), result.bars(),
+                String.format("%.2f", result.endingNetLiquidation()));
+        return result;
+    }
+
+    private static long epochSecond(LocalDate date, LocalTime time) {
+        return date.atTime(time).atZone(Constants.EASTERN).toEpochSecond();
+    }
+}
@@ -0,0 +1,29 @@
+package backtest;
+
+import data.BarArchive;
+import data.BarSeries;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Recorded 1-minute bars for backtesting, one series per symbol per session date.
+ */
+public interface BarSource {
+
+    /** Session dates that have data, oldest first. */
+    List<LocalDate> dates() throws IOException;
+
+    /** Symbols recorded for {@code date}. */
+    List<String> symbols(LocalDate date) throws IOException;
+
+    /** The symbol's bars for {@code date}, oldest first; empty if nothing was recorded. */
+    BarSeries load(String symbol, LocalDate date) throws IOException;
+
+    /** The source for {@code root}: a {@link BarArchive} if it holds bar files, otherwise CSV. */
+    static BarSource open(Path root) throws IOException {
+        return BarArchive.isArchive(root) ? new ArchiveBarSource(new BarArchive(root)) : new CsvBarSource(root);
+    }
+}
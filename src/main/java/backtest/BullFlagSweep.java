@@ -0,0 +1,431 @@
+package backtest;
+
+import data.BarSeries;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import risk.Position;
+import strategy.BullFlagDetector;
+import strategy.BullFlagDetector.FlagSetup;
+import strategy.BullFlagParams;
+import util.Constants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parameter sweep for {@link strategy.BullFlagBreakout} over a recorded bar archive.
+ *
+ * The archive is decoded once into one {@link BarSeries} per symbol-day and shared read-only by every
+ * worker. Parameter sets are evaluated in parallel on a {@link ForkJoinPool}; each evaluation reuses one
+ * detector state across all symbol-days, so the inner loop allocates nothing per bar.
+ *
+ * For each symbol-day the bars are stepped as the live strategy sees them: a setup confirmed by a bar
+ * that completes inside the 9:30–11:30 window places {@link Position#bullFlagBracket} sized to the fixed
+ * risk per trade, {@link FillModel} fills it from the next bar, one trade per symbol at a time, and
+ * anything open is closed at the intraday cutoff. The scanner is not modelled: every archived symbol is
+ * a candidate. Results are in R (net P&amp;L over the risk per trade, after commission); trades are
+ * ordered by date then symbol for the drawdown.
+ *
+ * A sweep owns its worker pool; {@link #close()} shuts it down once the last {@link #run} is done.
+ */
+public class BullFlagSweep implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(BullFlagSweep.class);
+
+    private static final double ACCOUNT_EQUITY = 100_000.0;
+    private static final int WINDOW_START_MINUTE = 9 * 60 + 30;    // BullFlagBreakout's trading window
+    private static final int WINDOW_END_MINUTE = 11 * 60 + 30;
+    private static final int CUTOFF_MINUTE = Constants.INTRADAY_CUTOFF.getHour() * 60 + Constants.INTRADAY_CUTOFF.getMinute();
+
+    /** One swept parameter: a {@link BullFlagParams} field name and the values to try. */
+    public record Axis(String name, double... values) {
+        @Override
+        public String toString() {
+            return name + "=" + Arrays.toString(values);
+        }
+    }
+
+    /** Outcome of one parameter set over the whole archive. */
+    public record Trial(BullFlagParams params, int trades, int wins, double totalR, double maxDrawdownR) {
+        public double winRate() {
+            return trades > 0 ? (double) wins / trades : 0.0;
+        }
+
+        /** Mean R per trade. */
+        public double expectancyR() {
+            return trades > 0 ? totalR / trades : 0.0;
+        }
+    }
+
+    private record SymbolDay(LocalDate date, String symbol, BarSeries bars, int endIndex) {}
+
+    /** Running totals for one evaluation. */
+    private static final class Tally {
+        int trades;
+        int wins;
+        double totalR;
+        double peakR;
+        double maxDrawdownR;
+
+        void add(double r) {
+            trades++;
+            if (r > 0) {
+                wins++;
+            }
+            totalR += r;
+            peakR = Math.max(peakR, totalR);
+            maxDrawdownR = Math.max(maxDrawdownR, peakR - totalR);
+        }
+    }
+
+    private final List<SymbolDay> archive;
+    private final ForkJoinPool pool;
+    private final double riskAmount = ACCOUNT_EQUITY * Constants.RISK_PER_TRADE;
+
+    private BullFlagSweep(List<SymbolDay> archive, ForkJoinPool pool) {
+        this.archive = archive;
+        this.pool = pool;
+    }
+
+    /** Decodes every symbol-day of {@code dates} in parallel, ready to evaluate any number of parameter sets. */
+    public static BullFlagSweep load(BarSource source, List<LocalDate> dates, int parallelism)
+            throws IOException, InterruptedException, ExecutionException {
+        record Key(LocalDate date, String symbol) {}
+        List<Key> keys = new ArrayList<>();
+        for (LocalDate date : dates) {
+            for (String symbol : source.symbols(date)) {
+                keys.add(new Key(date, symbol));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<SymbolDay> archive = pool.submit(() -> keys.parallelStream()
+                    .map(k -> {
+                        try {
+                            BarSeries bars = source.load(k.symbol(), k.date());
+                            return new SymbolDay(k.date(), k.symbol(), bars, cutoffIndex(bars));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Failed to load " + k.symbol() + " " + k.date(), e);
+                        }
+                    })
+                    .filter(d -> d.endIndex() > 0)
+                    .toList()).get();
+            return new BullFlagSweep(archive, pool);
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            pool.shutdownNow();
+            throw e;
+        }
+    }
+
+    /** First bar at or after the intraday cutoff; bars from there on are never traded. */
+    private static int cutoffIndex(BarSeries bars) {
+        int i = 0;
+        while (i < bars.size() && bars.minuteOfDay(i) < CUTOFF_MINUTE) {
+            i++;
+        }
+        return i;
+    }
+
+    public int symbolDays() {
+        return archive.size();
+    }
+
+    /** Shuts down the worker pool, waiting for any evaluation still running. */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    // -------------------------------------------------------------------------
+    // Candidate generation
+    // -------------------------------------------------------------------------
+
+    /** Every combination of the axes' values applied to {@code base}. */
+    public static List<BullFlagParams> grid(BullFlagParams base, List<Axis> axes) {
+        List<BullFlagParams> sets = new ArrayList<>(List.of(base));
+        for (Axis axis : axes) {
+            List<BullFlagParams> next = new ArrayList<>(sets.size() * axis.values().length);
+            for (BullFlagParams p : sets) {
+                for (double v : axis.values()) {
+                    next.add(p.with(axis.name(), v));
+                }
+            }
+            sets = next;
+        }
+        return sets;
+    }
+
+    /** {@code samples} sets with each axis drawn uniformly between its smallest and largest value. */
+    public static List<BullFlagParams> random(BullFlagParams base, List<Axis> axes, int samples, long seed) {
+        Random random = new Random(seed);
+        List<BullFlagParams> sets = new ArrayList<>(samples);
+        for (int n = 0; n < samples; n++) {
+            BullFlagParams p = base;
+            for (Axis axis : axes) {
+                double lo = Arrays.stream(axis.values()).min().orElseThrow();
+                double hi = Arrays.stream(axis.values()).max().orElseThrow();
+                p = p.with(axis.name(), lo + random.nextDouble() * (hi - lo));
+            }
+            sets.add(p);
+        }
+        return sets;
+    }
+
+    // -------------------------------------------------------------------------
+    // Evaluation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Evaluates every set and ranks by expectancy (ties by trade count). Sets with fewer than
+     * {@code minTrades} trades are ranked after all others, since a handful of lucky trades says little.
+     * Sets the detector rejects (e.g. rollingMinBars &gt; rollingWindow) are dropped with a warning.
+     */
+    public List<Trial> run(List<BullFlagParams> candidates, int minTrades) {
+        Trial[] results = new Trial[candidates.size()];
+        pool.invoke(new SweepTask(candidates, results, 0, candidates.size()));
+
+        List<Trial> ranked = new ArrayList<>(results.length);
+        for (Trial t : results) {
+            if (t != null) {
+                ranked.add(t);
+            }
+        }
+        ranked.sort(Comparator.comparing((Trial t) -> t.trades() < minTrades)
+                .thenComparing(Comparator.comparingDouble(Trial::expectancyR).reversed())
+                .thenComparing(Comparator.comparingInt(Trial::trades).reversed()));
+        return ranked;
+    }
+
+    // RecursiveAction is Serializable, but a task only ever lives inside the pool
+    @SuppressWarnings("serial")
+    private final class SweepTask extends RecursiveAction {
+        private final transient List<BullFlagParams> candidates;
+        private final transient Trial[] results;
+        private final int from;
+        private final int to;
+
+        SweepTask(List<BullFlagParams> candidates, Trial[] results, int from, int to) {
+            this.candidates = candidates;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from == to) {
+                    return;
+                }
+                try {
+                    results[from] = evaluate(candidates.get(from));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping invalid parameter set {}: {}", candidates.get(from), e.getMessage());
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SweepTask(candidates, results, from, mid), new SweepTask(candidates, results, mid, to));
+        }
+    }
+
+    /** Runs one parameter set over the whole archive. */
+    public Trial evaluate(BullFlagParams params) {
+        BullFlagDetector detector = new BullFlagDetector(params);
+        BullFlagDetector.SymbolState state = detector.newState();
+        Tally tally = new Tally();
+        for (SymbolDay day : archive) {
+            simulate(day, detector, state, tally);
+        }
+        return new Trial(params, tally.trades, tally.wins, tally.totalR, tally.maxDrawdownR);
+    }
+
+    private void simulate(SymbolDay day, BullFlagDetector detector, BullFlagDetector.SymbolState state, Tally tally) {
+        BarSeries bars = day.bars();
+        BullFlagParams params = detector.params();
+        state.reset(bars.time(0));
+
+        boolean pending = false;
+        boolean open = false;
+        double entry = 0.0, stop = 0.0, target = 0.0, fillPrice = 0.0;
+        long shares = 0;
+        int entryBar = -1;
+
+        for (int i = 0; i < day.endIndex(); i++) {
+            // Orders placed on earlier bars trade against this one before it is evaluated
+            if (pending) {
+                double px = FillModel.buyLimit(bars, i, entry);
+                if (!Double.isNaN(px)) {
+                    pending = false;
+                    open = true;
+                    fillPrice = px;
+                    entryBar = i;
+                }
+            }
+            if (open) {
+                double exit = FillModel.sellStop(bars, i, stop);
+                if (Double.isNaN(exit) && i != entryBar) {
+                    exit = FillModel.sellLimit(bars, i, target);
+                }
+                if (!Double.isNaN(exit)) {
+                    tally.add(netR(shares, fillPrice, exit));
+                    open = false;
+                }
+            }
+
+            FlagSetup setup = detector.advance(state, bars, i, day.symbol());
+            int completedMinute = bars.minuteOfDay(i) + 1;
+            if (setup == null || pending || open
+                    || completedMinute < WINDOW_START_MINUTE || completedMinute >= WINDOW_END_MINUTE) {
+                continue;
+            }
+            Position.BracketPrices bracket = Position.bullFlagBracket(setup.poleTopHigh(), setup.flagLow(), params);
+            if (bracket.stopLoss() >= bracket.entry() || bracket.riskWidth() > params.getMaxRiskWidth()) {
+                continue;
+            }
+            long size = (long) Math.floor(riskAmount / (bracket.entry() - bracket.stopLoss()));
+            if (size >= 1) {
+                pending = true;
+                shares = size;
+                entry = bracket.entry();
+                stop = bracket.stopLoss();
+                target = bracket.takeProfit();
+            }
+        }
+        if (open) {
+            tally.add(netR(shares, fillPrice, bars.close(day.endIndex() - 1)));
+        }
+    }
+
+    private double netR(long shares, double entry, double exit) {
+        double pnl = shares * (exit - entry) - 2 * FillModel.commission(shares);
+        return pnl / riskAmount;
+    }
+
+    // -------------------------------------------------------------------------
+    // Report
+    // -------------------------------------------------------------------------
+
+    /** The top {@code top} trials as a fixed-width table, with the swept parameters' values. */
+    public static String report(List<Trial> ranked, List<Axis> axes, int top) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%4s %7s %6s %8s %9s %8s", "rank", "trades", "win%", "expR", "totalR", "maxDD"));
+        for (Axis axis : axes) {
+            sb.append(String.format(" %" + Math.max(axis.name().length(), 6) + "s", axis.name()));
+        }
+        sb.append('\n');
+        for (int i = 0; i < Math.min(top, ranked.size()); i++) {
+            Trial t = ranked.get(i);
+            sb.append(String.format("%4d %7d %6.1f %8.3f %9.2f %8.2f",
+                    i + 1, t.trades(), t.winRate() * 100, t.expectancyR(), t.totalR(), t.maxDrawdownR()));
+            for (Axis axis : axes) {
+                sb.append(String.format(" %" + Math.max(axis.name().length(), 6) + "s", fmt(t.params().get(axis.name()))));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String fmt(double v) {
+        return v == Math.rint(v) ? Long.toString((long) v) : String.format("%.3f", v);
+    }
+
+    // -------------------------------------------------------------------------
+    // Command line
+    // -------------------------------------------------------------------------
+
+    /**
+     * <pre>
+     * java -cp trading-bot.jar backtest.BullFlagSweep &lt;dataDir&gt; [name=v1,v2,...|name=lo:hi:step]...
+     *      [--random N] [--seed S] [--from yyyyMMdd] [--to yyyyMMdd] [--top K] [--min-trades N]
+     * </pre>
+     * Without axes a default grid over the pole, flag and reward/risk thresholds is swept.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: backtest.BullFlagSweep <dataDir> [name=v1,v2,...|name=lo:hi:step]... "
+                    + "[--random N] [--seed S] [--from yyyyMMdd] [--to yyyyMMdd] [--top K] [--min-trades N]");
+            System.exit(2);
+        }
+        Configurator.setLevel("strategy", Level.WARN);
+
+        List<Axis> axes = new ArrayList<>();
+        int randomSamples = 0, top = 20, minTrades = 30;
+        long seed = 1;
+        LocalDate from = LocalDate.MIN, to = LocalDate.MAX;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--random" -> randomSamples = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--from" -> from = LocalDate.parse(args[++i], DateTimeFormatter.BASIC_ISO_DATE);
+                case "--to" -> to = LocalDate.parse(args[++i], DateTimeFormatter.BASIC_ISO_DATE);
+                case "--top" -> top = Integer.parseInt(args[++i]);
+                case "--min-trades" -> minTrades = Integer.parseInt(args[++i]);
+                default -> axes.add(parseAxis(args[i]));
+            }
+        }
+        if (axes.isEmpty()) {
+            axes = List.of(
+                    new Axis("poleBodyMultiplier", 1.0, 1.1, 1.3, 1.5),
+                    new Axis("poleVolumeMultiplier", 1.0, 1.2, 1.5),
+                    new Axis("flagDepthRatio", 0.5, 0.6, 0.7),
+                    new Axis("flagMaxBars", 5, 8, 12),
+                    new Axis("rewardRiskRatio", 1.5, 2.0, 3.0));
+        }
+
+        BarSource source = BarSource.open(Path.of(args[0]));
+        LocalDate first = from, last = to;
+        List<LocalDate> dates = source.dates().stream().filter(d -> !d.isBefore(first) && !d.isAfter(last)).toList();
+
+        long start = System.currentTimeMillis();
+        try (BullFlagSweep sweep = load(source, dates, Runtime.getRuntime().availableProcessors())) {
+            long loaded = System.currentTimeMillis();
+
+            List<BullFlagParams> candidates = randomSamples > 0
+                    ? random(BullFlagParams.DEFAULTS, axes, randomSamples, seed)
+                    : grid(BullFlagParams.DEFAULTS, axes);
+            List<Trial> ranked = sweep.run(candidates, minTrades);
+            long elapsed = System.currentTimeMillis() - loaded;
+
+            log.info("Decoded {} symbol-days from {} sessions in {}ms", sweep.symbolDays(), dates.size(), loaded - start);
+            log.info("Evaluated {} parameter sets in {}ms ({} symbol-days/s)", candidates.size(), elapsed,
+                    String.format("%.0f", elapsed > 0 ? (double) candidates.size() * sweep.symbolDays() * 1000 / elapsed : 0.0));
+            log.info("Defaults: {}", sweep.evaluate(BullFlagParams.DEFAULTS));
+            log.info("Top {} by expectancy (min {} trades):\n{}", top, minTrades, report(ranked, axes, top));
+        }
+    }
+
+    private static Axis parseAxis(String spec) {
+        int eq = spec.indexOf('=');
+        if (eq <= 0) {
+            throw new IllegalArgumentException("Expected name=values, got: " + spec);
+        }
+        String name = spec.substring(0, eq);
+        String values = spec.substring(eq + 1);
+        BullFlagParams.DEFAULTS.get(name);    // fail fast on unknown names
+        if (values.contains(":")) {
+            String[] r = values.split(":");
+            double lo = Double.parseDouble(r[0]), hi = Double.parseDouble(r[1]), step = Double.parseDouble(r[2]);
+            int n = (int) Math.floor((hi - lo) / step + 1e-9) + 1;
+            double[] v = new double[n];
+            for (int i = 0; i < n; i++) {
+                v[i] = lo + i * step;
+            }
+            return new Axis(name, v);
+        }
+        return new Axis(name, Arrays.stream(values.split(",")).mapToDouble(Double::parseDouble).toArray());
+    }
+}
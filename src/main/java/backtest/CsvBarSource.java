@@ -0,0 +1,96 @@
+package backtest;
+
+import data.BarSeries;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads bars laid out as {@code root/yyyyMMdd/SYMBOL.csv}, one file per symbol per session.
+ *
+ * Columns: {@code time,open,high,low,close,vwap,volume}, where time is anything IBKR returns for a bar
+ * (epoch seconds or "yyyyMMdd HH:mm:ss [TZ]"). A header line and blank lines are skipped.
+ */
+public class CsvBarSource implements BarSource {
+    private static final DateTimeFormatter DIR_FMT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String EXTENSION = ".csv";
+
+    private final Path root;
+
+    public CsvBarSource(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public List<LocalDate> dates() throws IOException {
+        List<LocalDate> dates = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                String name = dir.getFileName().toString();
+                if (Files.isDirectory(dir) && name.length() == 8 && name.chars().allMatch(Character::isDigit)) {
+                    dates.add(LocalDate.parse(name, DIR_FMT));
+                }
+            }
+        }
+        dates.sort(null);
+        return dates;
+    }
+
+    @Override
+    public List<String> symbols(LocalDate date) throws IOException {
+        Path dir = root.resolve(date.format(DIR_FMT));
+        List<String> symbols = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return symbols;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(EXTENSION)) {
+                    symbols.add(name.substring(0, name.length() - EXTENSION.length()));
+                }
+            }
+        }
+        symbols.sort(null);
+        return symbols;
+    }
+
+    @Override
+    public BarSeries load(String symbol, LocalDate date) throws IOException {
+        Path file = root.resolve(date.format(DIR_FMT)).resolve(symbol + EXTENSION);
+        BarSeries series = new BarSeries();
+        if (!Files.exists(file)) {
+            return series;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || !Character.isDigit(line.charAt(0))) {
+                    continue;    // header or blank
+                }
+                String[] f = line.split(",", -1);
+                if (f.length < 7) {
+                    throw new IOException(file + ":" + lineNo + ": expected 7 columns, got " + f.length);
+                }
+                try {
+                    series.add(BarSeries.parseTime(f[0]),
+                            Double.parseDouble(f[1]), Double.parseDouble(f[2]),
+                            Double.parseDouble(f[3]), Double.parseDouble(f[4]),
+                            Double.parseDouble(f[5]), Long.parseLong(f[6].trim()));
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return series;
+    }
+}
@@ -0,0 +1,38 @@
+package backtest;
+
+import data.BarSeries;
+
+/**
+ * Bar-level fill rules shared by {@link BacktestBroker} and {@link BullFlagSweep}, so a sweep ranks
+ * parameter sets under the same assumptions a full replay uses.
+ *
+ * Each rule returns the fill price of the order against bar {@code i}, or NaN if the bar does not
+ * reach it. A bar that gaps through the price fills at the open.
+ */
+final class FillModel {
+    // IBKR fixed pricing
+    private static final double COMMISSION_PER_SHARE = 0.005;
+    private static final double MIN_COMMISSION = 1.0;
+
+    private FillModel() {}
+
+    static double buyLimit(BarSeries bars, int i, double limit) {
+        return bars.low(i) <= limit ? Math.min(bars.open(i), limit) : Double.NaN;
+    }
+
+    static double sellLimit(BarSeries bars, int i, double limit) {
+        return bars.high(i) >= limit ? Math.max(bars.open(i), limit) : Double.NaN;
+    }
+
+    static double sellStop(BarSeries bars, int i, double stop) {
+        return bars.low(i) <= stop ? Math.min(bars.open(i), stop) : Double.NaN;
+    }
+
+    static double buyStop(BarSeries bars, int i, double stop) {
+        return bars.high(i) >= stop ? Math.max(bars.open(i), stop) : Double.NaN;
+    }
+
+    static double commission(long shares) {
+        return Math.max(MIN_COMMISSION, shares * COMMISSION_PER_SHARE);
+    }
+}
@@ -0,0 +1,54 @@
+package backtest;
+
+import util.Constants;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Clock whose time only moves when the backtest engine sets it.
+ *
+ * Handed to strategies through {@link ibkr.Broker#clock()} and to RiskManager so that every
+ * "what time is it" check sees replay time instead of the wall clock.
+ */
+public final class SimulatedClock extends Clock {
+    private volatile long epochMilli;
+
+    public SimulatedClock(Instant start) {
+        this.epochMilli = start.toEpochMilli();
+    }
+
+    public void set(Instant instant) {
+        this.epochMilli = instant.toEpochMilli();
+    }
+
+    public void setEpochSecond(long epochSecond) {
+        this.epochMilli = epochSecond * 1000L;
+    }
+
+    public long epochSecond() {
+        return epochMilli / 1000L;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return Constants.EASTERN;
+    }
+
+    /** Same zone returns this clock; any other zone gets a fixed snapshot of the current replay time. */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(Constants.EASTERN) ? this : Clock.fixed(instant(), zone);
+    }
+
+    @Override
+    public long millis() {
+        return epochMilli;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(epochMilli);
+    }
+}
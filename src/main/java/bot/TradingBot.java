@@ -1,6 +1,8 @@
 package bot;
 
 import com.ib.client.*;
+import data.BarArchive;
+import data.ContractDetailsDatabase;
 import ibkr.IBKRConnection;
 import ibkr.model.AccountSummaryOutput;
 import monitoring.MonitoringConfig;
@@ -18,6 +20,7 @@ import ui.TradingBotTUI;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -43,6 +46,11 @@ public class TradingBot {
             journal.setDatabase(tradeDb);
             journal.loadFromDatabase();
             ibkrConnection.setTradeJournal(journal);
+            ContractDetailsDatabase contractDb = new ContractDetailsDatabase();
+            contractDb.init("trades.db");
+            ibkrConnection.setContractDetailsDatabase(contractDb);
+            BarArchive barArchive = new BarArchive(Path.of("bars"));
+            ibkrConnection.setBarArchive(barArchive);
 
             MonitoringConfig monConfig = MonitoringConfig.load();
             monitor = new MonitoringServer(monConfig, ibkrConnection, journal);
@@ -88,6 +96,8 @@ public class TradingBot {
             final StrategyRunner finalRunner = strategyRunner;
             final MonitoringServer finalMonitor = monitor;
             final TradeDatabase finalTradeDb = tradeDb;
+            final ContractDetailsDatabase finalContractDb = contractDb;
+            final BarArchive finalBarArchive = barArchive;
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 log.info("=== Trading Bot Shutting Down ===");
                 if (finalRunner != null) {
@@ -102,6 +112,12 @@ public class TradingBot {
                 if (finalTradeDb != null) {
                     finalTradeDb.close();
                 }
+                if (finalContractDb != null) {
+                    finalContractDb.close();
+                }
+                if (finalBarArchive != null) {
+                    finalBarArchive.close();
+                }
                 log.info("=== Trading Bot Stopped ===");
             }));
 
@@ -0,0 +1,263 @@
+package data;
+
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.Order;
+import com.ib.client.OrderState;
+import com.ib.client.OrderStatus;
+import ibkr.model.AccountSummaryOutput;
+import ibkr.model.OrderOutput;
+import ibkr.model.PositionOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory mirror of open orders, positions and key account values, seeded once per connection
+ * and then kept current from the streaming callbacks (openOrder, orderStatus, position,
+ * updatePortfolio, accountSummary).
+ *
+ * Callbacks mutate private state under the mirror's lock and publish a new immutable {@link Snapshot}
+ * with an incremented version, so readers get a consistent view with O(1) lookups and no wire traffic.
+ * Readers must check {@link Snapshot#ready()} - until every seed request has completed the
+ * mirror may be incomplete and callers should fall back to a wire request.
+ *
+ * Only orders placed by this client stream updates after the seed. Orders entered manually in TWS or
+ * by another client are picked up by each later reqAllOpenOrders dump: an order seen in the dump is
+ * added, and an order missing from it is no longer open and is removed. Positions are keyed by conId
+ * and account values by tag, which assumes a single (non-FA) account.
+ */
+public class AccountMirror {
+    private static final Logger log = LoggerFactory.getLogger(AccountMirror.class);
+
+    /** Account summary tags kept current by the mirror's subscription. */
+    public static final String ACCOUNT_TAGS = "AccountType,NetLiquidation,AvailableFunds,BuyingPower,TotalCashValue,GrossPositionValue,HighestSeverity";
+
+    /** Immutable view of the mirror. Lists are in arrival order; lookups are by symbol or conId. */
+    public record Snapshot(long version,
+                           boolean ready,
+                           List<OrderOutput> openOrders,
+                           List<PositionOutput> positions,
+                           Map<String, AccountSummaryOutput> accountValues,
+                           Map<String, List<OrderOutput>> ordersBySymbol,
+                           Map<String, PositionOutput> positionsBySymbol,
+                           Map<Integer, PositionOutput> positionsByConId) {
+
+        public boolean hasOrder(String symbol) {
+            return ordersBySymbol.containsKey(symbol);
+        }
+
+        /** True if IBKR reports a position record for {@code symbol} (including one closed earlier today). */
+        public boolean hasPosition(String symbol) {
+            return positionsBySymbol.containsKey(symbol);
+        }
+
+        public PositionOutput position(String symbol) {
+            return positionsBySymbol.get(symbol);
+        }
+
+        public PositionOutput position(int conId) {
+            return positionsByConId.get(conId);
+        }
+
+        /** Account values for {@code tags} (comma-separated), or {@code null} if any tag is missing. */
+        public List<AccountSummaryOutput> accountValues(String tags) {
+            List<AccountSummaryOutput> result = new ArrayList<>();
+            for (String tag : tags.split(",")) {
+                AccountSummaryOutput value = accountValues.get(tag.trim());
+                if (value == null) return null;
+                result.add(value);
+            }
+            return result;
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(0, false, List.of(), List.of(), Map.of(), Map.of(), Map.of(), Map.of());
+
+    // Writer state, guarded by this
+    private final Map<Integer, OrderOutput> orders = new LinkedHashMap<>();
+    private final Map<Integer, PositionOutput> positions = new LinkedHashMap<>();
+    private final Map<String, AccountSummaryOutput> accountValues = new HashMap<>();
+    // Order ids reported since the current reqAllOpenOrders was sent; reconciled at openOrderEnd
+    private final Set<Integer> ordersInDump = new HashSet<>();
+    private boolean orderDumpPending;
+    private boolean ordersSeeded;
+    private boolean positionsSeeded;
+    private boolean accountSeeded;
+    private long version;
+
+    private volatile Snapshot snapshot = EMPTY;
+    private volatile Runnable changeListener;
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /** Run after every new snapshot is published, under the mirror's lock, so it must only schedule work. */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /** Drops all state. Called on connect, before the seed requests are sent. */
+    public synchronized void reset() {
+        orders.clear();
+        positions.clear();
+        accountValues.clear();
+        ordersInDump.clear();
+        orderDumpPending = false;
+        ordersSeeded = false;
+        positionsSeeded = false;
+        accountSeeded = false;
+        publish();
+    }
+
+    // -------------------------------------------------------------------------
+    // Callbacks (TWS message thread)
+    // -------------------------------------------------------------------------
+
+    /** Called as reqAllOpenOrders is sent: the dump that follows is the complete set of open orders. */
+    public synchronized void onOpenOrdersRequested() {
+        ordersInDump.clear();
+        orderDumpPending = true;
+    }
+
+    public synchronized void onOpenOrder(int orderId, Contract contract, Order order, OrderState orderState) {
+        if (orderDumpPending) {
+            ordersInDump.add(orderId);
+        }
+        if (isTerminal(orderState.status())) {
+            if (orders.remove(orderId) != null) publish();
+            return;
+        }
+        orders.put(orderId, OrderOutput.builder()
+                .orderId(orderId)
+                .contract(contract)
+                .order(order)
+                .orderState(orderState)
+                .build());
+        publish();
+    }
+
+    public synchronized void onOrderStatus(int orderId, String status) {
+        if (isTerminal(OrderStatus.get(status)) && orders.remove(orderId) != null) {
+            publish();
+        }
+    }
+
+    public synchronized void onOpenOrderEnd() {
+        boolean changed = false;
+        if (orderDumpPending) {
+            // Orders not in the dump were filled or cancelled without a status reaching this client
+            changed = orders.keySet().retainAll(ordersInDump);
+            ordersInDump.clear();
+            orderDumpPending = false;
+        }
+        if (!ordersSeeded) {
+            ordersSeeded = true;
+            changed = true;
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    public synchronized void onPosition(String account, Contract contract, Decimal pos, double avgCost) {
+        PositionOutput previous = positions.get(contract.conid());
+        positions.put(contract.conid(), PositionOutput.builder()
+                .account(account)
+                .contract(contract)
+                .pos(pos)
+                .avgCost(avgCost)
+                .marketPrice(previous != null ? previous.getMarketPrice() : 0)
+                .marketValue(previous != null ? previous.getMarketValue() : 0)
+                .unrealizedPnL(previous != null ? previous.getUnrealizedPnL() : 0)
+                .realizedPnL(previous != null ? previous.getRealizedPnL() : 0)
+                .build());
+        publish();
+    }
+
+    public synchronized void onPositionEnd() {
+        if (!positionsSeeded) {
+            positionsSeeded = true;
+            publish();
+        }
+    }
+
+    public synchronized void onPortfolio(Contract contract, Decimal pos, double marketPrice, double marketValue,
+                                         double avgCost, double unrealizedPnL, double realizedPnL, String account) {
+        positions.put(contract.conid(), PositionOutput.builder()
+                .account(account)
+                .contract(contract)
+                .pos(pos)
+                .avgCost(avgCost)
+                .marketPrice(marketPrice)
+                .marketValue(marketValue)
+                .unrealizedPnL(unrealizedPnL)
+                .realizedPnL(realizedPnL)
+                .build());
+        publish();
+    }
+
+    public synchronized void onAccountSummary(String account, String tag, String value, String currency) {
+        accountValues.put(tag, AccountSummaryOutput.builder()
+                .account(account)
+                .tag(tag)
+                .value(value)
+                .currency(currency)
+                .build());
+        publish();
+    }
+
+    public synchronized void onAccountSummaryEnd() {
+        if (!accountSeeded) {
+            accountSeeded = true;
+            publish();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+
+    private static boolean isTerminal(OrderStatus status) {
+        return status == OrderStatus.Filled || status == OrderStatus.Cancelled
+                || status == OrderStatus.ApiCancelled || status == OrderStatus.Inactive;
+    }
+
+    /** Builds and publishes a new snapshot. Caller holds the lock. */
+    private void publish() {
+        Map<String, List<OrderOutput>> ordersBySymbol = new HashMap<>();
+        for (OrderOutput order : orders.values()) {
+            ordersBySymbol.computeIfAbsent(order.getContract().symbol(), k -> new ArrayList<>()).add(order);
+        }
+        ordersBySymbol.replaceAll((symbol, list) -> List.copyOf(list));
+
+        Map<String, PositionOutput> positionsBySymbol = new HashMap<>();
+        for (PositionOutput position : positions.values()) {
+            positionsBySymbol.put(position.getContract().symbol(), position);
+        }
+
+        boolean ready = ordersSeeded && positionsSeeded && accountSeeded;
+        if (ready && !snapshot.ready()) {
+            log.info("Account mirror ready: {} open orders, {} positions, {} account values",
+                    orders.size(), positions.size(), accountValues.size());
+        }
+        snapshot = new Snapshot(++version, ready,
+                List.copyOf(orders.values()),
+                List.copyOf(positions.values()),
+                Map.copyOf(accountValues),
+                Map.copyOf(ordersBySymbol),
+                Map.copyOf(positionsBySymbol),
+                Map.copyOf(positions));
+
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Append-only log with cheap immutable snapshots, the concurrent counterpart of {@link ChunkedBuffer}.
+ *
+ * Items go into fixed-size chunks, so an append is O(1) and never copies existing items; only the
+ * small chunk directory is resized. A slot is written before the volatile size store that publishes
+ * it and is never written again, so readers take a {@link Snapshot} (directory + offset + length)
+ * without locking or copying and iterate it while appends continue. Appends are serialized by the
+ * log's monitor: live there is one writer (the TWS message thread) and the lock is uncontended, but
+ * parallel backtest sessions share a journal.
+ *
+ * {@link #dropWhile} releases a prefix of the log. Indices are absolute and only ever grow; dropping
+ * installs a new directory that starts at the first live chunk instead of clearing the old one, so
+ * snapshots taken earlier keep every item they cover.
+ */
+public final class AppendOnlyLog<T> {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;   // 1024 items per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The chunk directory, the absolute chunk its first entry holds, and the first live item. */
+    private record Directory(Object[][] chunks, int firstChunk, int head) {}
+
+    // Both volatile: the directory is replaced before the size that needs it is published. size counts
+    // every item ever appended, so a reader that reads it first sees a directory holding all of them.
+    private volatile Directory directory = new Directory(new Object[16][], 0, 0);
+    private volatile int size;
+
+    public synchronized void add(T item) {
+        int n = size;
+        Directory d = directory;
+        int chunkIndex = (n >>> CHUNK_SHIFT) - d.firstChunk();
+        Object[][] dir = d.chunks();
+        if (chunkIndex == dir.length) {
+            dir = Arrays.copyOf(dir, dir.length * 2);
+            directory = new Directory(dir, d.firstChunk(), d.head());
+        }
+        Object[] chunk = dir[chunkIndex];
+        if (chunk == null) {
+            chunk = new Object[CHUNK_SIZE];
+            dir[chunkIndex] = chunk;
+        }
+        chunk[n & CHUNK_MASK] = item;
+        size = n + 1;
+    }
+
+    /** Items currently held, not counting dropped ones. */
+    public int size() {
+        int n = size;
+        return n - Math.min(directory.head(), n);
+    }
+
+    /**
+     * Drops items from the front of the log for as long as {@code test} holds, and returns how many.
+     * Chunks wholly before the new head are released once no snapshot refers to them.
+     */
+    public synchronized int dropWhile(Predicate<? super T> test) {
+        int n = size;
+        Directory d = directory;
+        int head = d.head();
+        Object[][] dir = d.chunks();
+        while (head < n && test.test(item(dir, d.firstChunk(), head))) {
+            head++;
+        }
+        int dropped = head - d.head();
+        if (dropped > 0) {
+            int skip = (head >>> CHUNK_SHIFT) - d.firstChunk();
+            Object[][] live = new Object[Math.max(dir.length - skip, 16)][];
+            System.arraycopy(dir, skip, live, 0, dir.length - skip);
+            directory = new Directory(live, d.firstChunk() + skip, head);
+        }
+        return dropped;
+    }
+
+    /** The items held so far; later appends and drops are not visible in it. */
+    public Snapshot<T> snapshot() {
+        int n = size;
+        Directory d = directory;
+        int head = Math.min(d.head(), n);
+        return new Snapshot<>(d.chunks(), head - (d.firstChunk() << CHUNK_SHIFT), n - head);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T item(Object[][] chunks, int firstChunk, int index) {
+        return (T) chunks[(index >>> CHUNK_SHIFT) - firstChunk][index & CHUNK_MASK];
+    }
+
+    /** Immutable, random-access view of a range of the log. */
+    public static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[][] chunks;
+        private final int offset;
+        private final int length;
+
+        private Snapshot(Object[][] chunks, int offset, int length) {
+            this.chunks = chunks;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+            }
+            int i = offset + index;
+            return (T) chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+
+        /** The {@code count} items starting at {@code from}, without copying. */
+        public Snapshot<T> slice(int from, int count) {
+            if (from < 0 || count < 0 || from + count > length) {
+                throw new IndexOutOfBoundsException("slice(" + from + ", " + count + ") of " + length);
+            }
+            return new Snapshot<>(chunks, offset + from, count);
+        }
+
+        @Override
+        public List<T> subList(int fromIndex, int toIndex) {
+            return slice(fromIndex, toIndex - fromIndex);
+        }
+    }
+}
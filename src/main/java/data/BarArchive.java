@@ -0,0 +1,195 @@
+package data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Local archive of 1-minute bars, one memory-mapped columnar {@link BarFile} per symbol per session,
+ * laid out as {@code root/yyyyMMdd/SYMBOL.bars}.
+ *
+ * BarStore appends every live 1-min TRADES bar as it arrives (the historicalData seed and each
+ * historicalDataUpdate); a write is a few stores into the mapping, cheap enough for the TWS message
+ * thread. Files being written stay open until the session rolls over or {@link #close()}; loads of
+ * those files read the same mapping, other loads map the file read-only for the duration of the read.
+ */
+public class BarArchive {
+    private static final Logger log = LoggerFactory.getLogger(BarArchive.class);
+
+    private static final DateTimeFormatter DIR_FMT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String EXTENSION = ".bars";
+
+    private final Path root;
+    // "SYMBOL|yyyyMMdd" -> file open for writing
+    private final Map<String, BarFile> writers = new HashMap<>();
+    private int latestDate;
+
+    public BarArchive(Path root) {
+        this.root = root;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /** True if {@code root} looks like an archive, i.e. some session directory holds a bar file. */
+    public static boolean isArchive(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return false;
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(dir)) {
+                    if (files.anyMatch(f -> f.getFileName().toString().endsWith(EXTENSION))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Writers
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes bar {@code i} of {@code series} to the symbol's file for the bar's session, replacing the
+     * bar already archived for that minute. Bars with an unparseable time are skipped.
+     */
+    public void append(String symbol, BarSeries series, int i) throws IOException {
+        if (series.date(i) == 0) {
+            return;
+        }
+        writer(symbol, series.date(i)).upsert(series.minuteOfDay(i), series.time(i),
+                series.open(i), series.high(i), series.low(i), series.close(i), series.vwap(i), series.volume(i));
+    }
+
+    /** Writes every bar of {@code series}, e.g. to import a one-shot reqHistoricalData result. */
+    public void append(String symbol, BarSeries series) throws IOException {
+        for (int i = 0; i < series.size(); i++) {
+            append(symbol, series, i);
+        }
+    }
+
+    /**
+     * Forces every file open for writing to disk and drops it. The mappings themselves are released
+     * when they are garbage collected; Java has no explicit unmap.
+     */
+    public synchronized void close() {
+        for (BarFile file : writers.values()) {
+            file.force();
+        }
+        log.debug("Closed {} bar files", writers.size());
+        writers.clear();
+    }
+
+    private synchronized BarFile writer(String symbol, int date) throws IOException {
+        String key = symbol + "|" + date;
+        BarFile file = writers.get(key);
+        if (file != null) {
+            return file;
+        }
+        if (date > latestDate) {
+            // New session: yesterday's files are complete
+            latestDate = date;
+            for (Iterator<BarFile> it = writers.values().iterator(); it.hasNext(); ) {
+                BarFile old = it.next();
+                if (old.date() < date) {
+                    old.force();
+                    it.remove();
+                }
+            }
+        }
+        file = BarFile.openForWrite(path(symbol, date), date);
+        writers.put(key, file);
+        log.debug("[{}] Archiving bars to {} ({} already stored)", symbol, file.path(), file.count());
+        return file;
+    }
+
+    // -------------------------------------------------------------------------
+    // Readers
+    // -------------------------------------------------------------------------
+
+    /** Session dates that have a directory, oldest first. */
+    public List<LocalDate> dates() throws IOException {
+        List<LocalDate> dates = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return dates;
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                String name = dir.getFileName().toString();
+                if (Files.isDirectory(dir) && name.length() == 8 && name.chars().allMatch(Character::isDigit)) {
+                    dates.add(LocalDate.parse(name, DIR_FMT));
+                }
+            }
+        }
+        dates.sort(null);
+        return dates;
+    }
+
+    /** Symbols archived for {@code date}. */
+    public List<String> symbols(LocalDate date) throws IOException {
+        Path dir = root.resolve(date.format(DIR_FMT));
+        List<String> symbols = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return symbols;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(EXTENSION)) {
+                    symbols.add(name.substring(0, name.length() - EXTENSION.length()));
+                }
+            }
+        }
+        symbols.sort(null);
+        return symbols;
+    }
+
+    /** The whole session for {@code symbol}; empty if nothing was archived. */
+    public BarSeries load(String symbol, LocalDate date) throws IOException {
+        return load(symbol, date, 0, BarFile.CAPACITY);
+    }
+
+    /** Bars starting in [{@code from}, {@code to}) Eastern time, e.g. the regular session. */
+    public BarSeries load(String symbol, LocalDate date, LocalTime from, LocalTime to) throws IOException {
+        return load(symbol, date, from.getHour() * 60 + from.getMinute(), to.getHour() * 60 + to.getMinute());
+    }
+
+    private BarSeries load(String symbol, LocalDate date, int fromMinute, int toMinute) throws IOException {
+        int d = date.getYear() * 10_000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+        BarFile file;
+        synchronized (this) {
+            file = writers.get(symbol + "|" + d);
+        }
+        if (file == null) {
+            Path path = path(symbol, d);
+            if (!Files.exists(path)) {
+                return new BarSeries(0);
+            }
+            file = BarFile.openForRead(path, d);
+        }
+        return file.read(fromMinute, toMinute);
+    }
+
+    private Path path(String symbol, int date) {
+        return root.resolve(Integer.toString(date)).resolve(symbol + EXTENSION);
+    }
+}
@@ -0,0 +1,264 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One symbol-session of the {@link BarArchive}: a fixed-size, memory-mapped, little-endian file.
+ *
+ * <pre>
+ * header   64 B                 magic "BAR1", version, capacity, count, tickScale, date (yyyyMMdd)
+ * index    4 B  x capacity      Eastern minute of day -&gt; row + 1 (0 = no bar that minute)
+ * columns  8 B  x capacity, x7  epoch seconds, open, high, low, close, vwap, volume
+ * </pre>
+ * Prices (including vwap) are stored as longs in 1/{@value #TICK_SCALE} dollar ticks. Rows are kept in
+ * time order, so the rows for a minute range are contiguous and the index turns a range scan into one
+ * slice per column. Writes are plain stores into the mapping with no ordering guarantee on disk:
+ * an out-of-order bar shifts later rows and index entries in place, and dirty pages are only forced
+ * at session rollover and on close. A file from a crashed session may therefore be inconsistent; it
+ * is only a cache of bars IBKR can serve again.
+ *
+ * Thread-safe: the archive shares one mapping per open file between the writer and readers.
+ */
+final class BarFile {
+    static final int CAPACITY = 1440;           // one row per minute of the day
+    static final long TICK_SCALE = 10_000;      // $0.0001
+
+    private static final int MAGIC = 0x31524142;    // "BAR1" read little-endian
+    private static final int VERSION = 1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final int SCALE_OFFSET = 16;
+    private static final int DATE_OFFSET = 24;
+    private static final int HEADER_BYTES = 64;
+
+    private static final int INDEX_OFFSET = HEADER_BYTES;
+    private static final int COLUMNS_OFFSET = INDEX_OFFSET + CAPACITY * Integer.BYTES;
+    private static final int COLUMN_BYTES = CAPACITY * Long.BYTES;
+    private static final int COLUMNS = 7;
+    private static final long FILE_BYTES = COLUMNS_OFFSET + (long) COLUMNS * COLUMN_BYTES;
+
+    private static final int EPOCH = 0, OPEN = 1, HIGH = 2, LOW = 3, CLOSE = 4, VWAP = 5, VOLUME = 6;
+
+    private final Path path;
+    private final MappedByteBuffer buf;
+    private final int date;
+    private int count;
+
+    private BarFile(Path path, MappedByteBuffer buf, int date, int count) {
+        this.path = path;
+        this.buf = buf;
+        this.date = date;
+        this.count = count;
+    }
+
+    /** Maps {@code path} for writing, creating and formatting it for {@code date} (yyyyMMdd) if it does not exist. */
+    static BarFile openForWrite(Path path, int date) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean fresh = ch.size() == 0;
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (fresh) {
+                buf.putInt(MAGIC_OFFSET, MAGIC);
+                buf.putInt(VERSION_OFFSET, VERSION);
+                buf.putInt(CAPACITY_OFFSET, CAPACITY);
+                buf.putInt(COUNT_OFFSET, 0);
+                buf.putLong(SCALE_OFFSET, TICK_SCALE);
+                buf.putInt(DATE_OFFSET, date);
+                return new BarFile(path, buf, date, 0);
+            }
+            return validate(path, buf, date);
+        }
+    }
+
+    /** Maps an existing file read-only. */
+    static BarFile openForRead(Path path, int date) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() < FILE_BYTES) {
+                throw new IOException(path + ": truncated bar file (" + ch.size() + " of " + FILE_BYTES + " bytes)");
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, FILE_BYTES);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            return validate(path, buf, date);
+        }
+    }
+
+    private static BarFile validate(Path path, MappedByteBuffer buf, int date) throws IOException {
+        if (buf.getInt(MAGIC_OFFSET) != MAGIC || buf.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException(path + ": not a version " + VERSION + " bar file");
+        }
+        if (buf.getInt(CAPACITY_OFFSET) != CAPACITY || buf.getLong(SCALE_OFFSET) != TICK_SCALE) {
+            throw new IOException(path + ": unsupported capacity/tick scale");
+        }
+        if (buf.getInt(DATE_OFFSET) != date) {
+            throw new IOException(path + ": holds " + buf.getInt(DATE_OFFSET) + ", expected " + date);
+        }
+        int count = buf.getInt(COUNT_OFFSET);
+        if (count < 0 || count > CAPACITY) {
+            throw new IOException(path + ": corrupt row count " + count);
+        }
+        return new BarFile(path, buf, date, count);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int date() {
+        return date;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Writes the bar starting at Eastern {@code minuteOfDay}: replaces the row already held for that
+     * minute (the forming bar), appends, or - for a bar older than the last row - shifts later rows
+     * down to keep time order.
+     */
+    synchronized void upsert(int minuteOfDay, long epochSec, double open, double high, double low,
+                             double close, double vwap, long volume) {
+        if (minuteOfDay < 0 || minuteOfDay >= CAPACITY) {
+            throw new IllegalArgumentException(path + ": minute of day " + minuteOfDay + " out of range");
+        }
+        int row = buf.getInt(indexSlot(minuteOfDay)) - 1;
+        if (row >= 0) {
+            writeRow(row, epochSec, open, high, low, close, vwap, volume);
+            return;
+        }
+
+        row = count;
+        while (row > 0 && get(EPOCH, row - 1) > epochSec) {
+            row--;
+        }
+        if (row < count) {
+            shiftDown(row);
+        }
+        writeRow(row, epochSec, open, high, low, close, vwap, volume);
+        buf.putInt(indexSlot(minuteOfDay), row + 1);
+        count++;
+        buf.putInt(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Decodes the bars starting in [{@code fromMinute}, {@code toMinute}) into a new series, reading
+     * each column as one slice of the mapping.
+     */
+    synchronized BarSeries read(int fromMinute, int toMinute) {
+        int from = Math.max(fromMinute, 0);
+        int to = Math.min(toMinute, CAPACITY);
+        int firstRow = -1;
+        int n = 0;
+        int[] minutes = new int[Math.max(to - from, 0)];
+        for (int m = from; m < to; m++) {
+            int row = buf.getInt(indexSlot(m)) - 1;
+            if (row >= 0 && row < count) {
+                if (firstRow < 0) {
+                    firstRow = row;
+                }
+                minutes[n++] = m;
+            }
+        }
+
+        long[] epochSec = new long[n];
+        int[] dates = new int[n];
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        double[] vwap = new double[n];
+        long[] volume = new long[n];
+        if (n > 0) {
+            column(EPOCH, firstRow, n).get(epochSec);
+            column(VOLUME, firstRow, n).get(volume);
+            decodePrices(column(OPEN, firstRow, n), open);
+            decodePrices(column(HIGH, firstRow, n), high);
+            decodePrices(column(LOW, firstRow, n), low);
+            decodePrices(column(CLOSE, firstRow, n), close);
+            decodePrices(column(VWAP, firstRow, n), vwap);
+            Arrays.fill(dates, date);
+        }
+        return BarSeries.wrap(epochSec, dates, Arrays.copyOf(minutes, n), open, high, low, close, vwap, volume, n);
+    }
+
+    /** Flushes dirty pages to disk. */
+    synchronized void force() {
+        buf.force();
+    }
+
+    // -------------------------------------------------------------------------
+
+    private void writeRow(int row, long epochSec, double open, double high, double low,
+                          double close, double vwap, long volume) {
+        put(EPOCH, row, epochSec);
+        put(OPEN, row, toTicks(open));
+        put(HIGH, row, toTicks(high));
+        put(LOW, row, toTicks(low));
+        put(CLOSE, row, toTicks(close));
+        put(VWAP, row, toTicks(vwap));
+        put(VOLUME, row, volume);
+    }
+
+    /** Moves rows [row, count) down by one and re-points their index entries. */
+    private void shiftDown(int row) {
+        if (count == CAPACITY) {
+            throw new IllegalStateException(path + ": bar file full");
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            for (int r = count - 1; r >= row; r--) {
+                put(c, r + 1, get(c, r));
+            }
+        }
+        for (int m = 0; m < CAPACITY; m++) {
+            int slot = indexSlot(m);
+            int entry = buf.getInt(slot);
+            if (entry > row) {
+                buf.putInt(slot, entry + 1);
+            }
+        }
+    }
+
+    private LongBuffer column(int column, int firstRow, int rows) {
+        return buf.slice(columnOffset(column, firstRow), rows * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asLongBuffer();
+    }
+
+    private static void decodePrices(LongBuffer ticks, double[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = ticks.get(i) / (double) TICK_SCALE;
+        }
+    }
+
+    private static long toTicks(double price) {
+        return Math.round(price * TICK_SCALE);
+    }
+
+    private long get(int column, int row) {
+        return buf.getLong(columnOffset(column, row));
+    }
+
+    private void put(int column, int row, long value) {
+        buf.putLong(columnOffset(column, row), value);
+    }
+
+    private static int columnOffset(int column, int row) {
+        return COLUMNS_OFFSET + column * COLUMN_BYTES + row * Long.BYTES;
+    }
+
+    private static int indexSlot(int minuteOfDay) {
+        return INDEX_OFFSET + minuteOfDay * Integer.BYTES;
+    }
+}
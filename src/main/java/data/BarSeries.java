@@ -0,0 +1,323 @@
+package data;
+
+import com.ib.client.Bar;
+import com.ib.client.Decimal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.Constants;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar bar series: one primitive array per field, oldest bar first.
+ *
+ * Bars are converted once on arrival - the time string is parsed to epoch seconds (plus the Eastern
+ * session date and minute of day), and the Decimal volume/WAP are unboxed - so strategy and indicator
+ * loops read plain arrays with no Decimal/BigDecimal conversion or string splitting per access.
+ * Accepts both IBKR time formats: epoch seconds (formatDate=2) and "yyyyMMdd HH:mm:ss [TZ]" (formatDate=1).
+ *
+ * Not thread-safe; BarStore guards its series with the subscription lock and hands out copies.
+ */
+public final class BarSeries {
+    private static final Logger log = LoggerFactory.getLogger(BarSeries.class);
+
+    private static final int DEFAULT_CAPACITY = 1024;    // a full 1-min extended-hours session is 960 bars
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss");
+
+    private long[] epochSec;
+    private int[] date;            // Eastern session date as yyyyMMdd
+    private int[] minuteOfDay;     // Eastern minutes since midnight
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] vwap;
+    private long[] volume;
+    private int size;
+    private boolean shared;        // columns are borrowed from another series; copied before the first write
+
+    public BarSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BarSeries(int capacity) {
+        allocate(Math.max(capacity, 16));
+    }
+
+    /** Converts a list of IBKR bars (e.g. a one-shot reqHistoricalData result). */
+    public static BarSeries of(List<Bar> bars) {
+        BarSeries series = new BarSeries(bars.size());
+        for (Bar bar : bars) {
+            series.add(bar);
+        }
+        return series;
+    }
+
+    /**
+     * Adopts already-decoded columns without copying them (the archive's bulk loader); the arrays
+     * must hold {@code size} bars, oldest first, and are owned by the series from then on.
+     */
+    static BarSeries wrap(long[] epochSec, int[] date, int[] minuteOfDay, double[] open, double[] high,
+                          double[] low, double[] close, double[] vwap, long[] volume, int size) {
+        BarSeries series = new BarSeries(0);
+        series.epochSec = epochSec;
+        series.date = date;
+        series.minuteOfDay = minuteOfDay;
+        series.open = open;
+        series.high = high;
+        series.low = low;
+        series.close = close;
+        series.vwap = vwap;
+        series.volume = volume;
+        series.size = size;
+        return series;
+    }
+
+    // -------------------------------------------------------------------------
+    // Writers
+    // -------------------------------------------------------------------------
+
+    /** Appends an IBKR bar. */
+    public void add(Bar bar) {
+        add(parseTime(bar.time()), bar.open(), bar.high(), bar.low(), bar.close(),
+                decimalToDouble(bar.wap()), volumeOf(bar));
+    }
+
+    /** Appends a bar from primitive fields; {@code epochSec} must not be earlier than the last bar. */
+    public void add(long epochSec, double open, double high, double low, double close, double vwap, long volume) {
+        if (shared || size == this.epochSec.length) {
+            grow();
+        }
+        set(size, epochSec, open, high, low, close, vwap, volume);
+        size++;
+    }
+
+    /** Replaces the last bar if it has the same start time (the forming bar), otherwise appends. */
+    public void upsert(Bar bar) {
+        long time = parseTime(bar.time());
+        if (size > 0 && epochSec[size - 1] == time) {
+            if (shared) {
+                grow();
+            }
+            set(size - 1, time, bar.open(), bar.high(), bar.low(), bar.close(), decimalToDouble(bar.wap()), volumeOf(bar));
+        } else {
+            add(time, bar.open(), bar.high(), bar.low(), bar.close(), decimalToDouble(bar.wap()), volumeOf(bar));
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Independent copy, sized to fit. */
+    public BarSeries copy() {
+        BarSeries c = new BarSeries(size);
+        System.arraycopy(epochSec, 0, c.epochSec, 0, size);
+        System.arraycopy(date, 0, c.date, 0, size);
+        System.arraycopy(minuteOfDay, 0, c.minuteOfDay, 0, size);
+        System.arraycopy(open, 0, c.open, 0, size);
+        System.arraycopy(high, 0, c.high, 0, size);
+        System.arraycopy(low, 0, c.low, 0, size);
+        System.arraycopy(close, 0, c.close, 0, size);
+        System.arraycopy(vwap, 0, c.vwap, 0, size);
+        System.arraycopy(volume, 0, c.volume, 0, size);
+        c.size = size;
+        return c;
+    }
+
+    /**
+     * The first {@code count} bars without copying: the view reads this series' columns until either
+     * side writes. The view copies its columns on its first write; this series must only be appended
+     * to (never upserted or cleared) while views of it are in use.
+     */
+    public BarSeries head(int count) {
+        if (count < 0 || count > size) {
+            throw new IndexOutOfBoundsException("head(" + count + ") of " + size + " bars");
+        }
+        BarSeries view = new BarSeries(this);
+        view.size = count;
+        return view;
+    }
+
+    // -------------------------------------------------------------------------
+    // Readers
+    // -------------------------------------------------------------------------
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int lastIndex() {
+        return size - 1;
+    }
+
+    /** Bar start time, epoch seconds. */
+    public long time(int i) {
+        return epochSec[i];
+    }
+
+    /** Eastern session date of the bar as yyyyMMdd, or 0 if the time could not be parsed. */
+    public int date(int i) {
+        return date[i];
+    }
+
+    /** Eastern minutes since midnight of the bar start (9:30 AM = 570), or -1 if the time could not be parsed. */
+    public int minuteOfDay(int i) {
+        return minuteOfDay[i];
+    }
+
+    public double open(int i) {
+        return open[i];
+    }
+
+    public double high(int i) {
+        return high[i];
+    }
+
+    public double low(int i) {
+        return low[i];
+    }
+
+    public double close(int i) {
+        return close[i];
+    }
+
+    /** The bar's volume-weighted average price as reported by IBKR (0.0 if not reported). */
+    public double vwap(int i) {
+        return vwap[i];
+    }
+
+    public long volume(int i) {
+        return volume[i];
+    }
+
+    /** Candle body size, |close - open|. */
+    public double body(int i) {
+        return Math.abs(close[i] - open[i]);
+    }
+
+    public boolean isGreen(int i) {
+        return close[i] > open[i];
+    }
+
+    /** Eastern "yyyyMMdd HH:mm:ss" of the bar start, for logging. Allocates. */
+    public String formatTime(int i) {
+        return TIME_FMT.format(Instant.ofEpochSecond(epochSec[i]).atZone(Constants.EASTERN));
+    }
+
+    /** Materializes bar {@code i} as an IBKR bar (human-readable time), for APIs that still take one. */
+    public Bar bar(int i) {
+        return new Bar(formatTime(i), open[i], high[i], low[i], close[i],
+                Decimal.get(volume[i]), 0, Decimal.get(vwap[i]));
+    }
+
+    // -------------------------------------------------------------------------
+
+    private void set(int i, long time, double o, double h, double l, double c, double wap, long vol) {
+        epochSec[i] = time;
+        if (time == 0L) {
+            // Unparseable time: never inside a session window
+            date[i] = 0;
+            minuteOfDay[i] = -1;
+        } else {
+            ZonedDateTime et = Instant.ofEpochSecond(time).atZone(Constants.EASTERN);
+            date[i] = et.getYear() * 10_000 + et.getMonthValue() * 100 + et.getDayOfMonth();
+            minuteOfDay[i] = et.getHour() * 60 + et.getMinute();
+        }
+        open[i] = o;
+        high[i] = h;
+        low[i] = l;
+        close[i] = c;
+        vwap[i] = wap;
+        volume[i] = vol;
+    }
+
+    private BarSeries(BarSeries source) {
+        epochSec = source.epochSec;
+        date = source.date;
+        minuteOfDay = source.minuteOfDay;
+        open = source.open;
+        high = source.high;
+        low = source.low;
+        close = source.close;
+        vwap = source.vwap;
+        volume = source.volume;
+        shared = true;
+    }
+
+    private void allocate(int capacity) {
+        epochSec = new long[capacity];
+        date = new int[capacity];
+        minuteOfDay = new int[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        vwap = new double[capacity];
+        volume = new long[capacity];
+    }
+
+    /** Doubles capacity when full; a view instead takes private columns sized for its own bars. */
+    private void grow() {
+        int capacity = Math.max(shared ? size * 2 : epochSec.length * 2, 16);
+        shared = false;
+        epochSec = Arrays.copyOf(epochSec, capacity);
+        date = Arrays.copyOf(date, capacity);
+        minuteOfDay = Arrays.copyOf(minuteOfDay, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        vwap = Arrays.copyOf(vwap, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+
+    private static double decimalToDouble(Decimal d) {
+        return d != null && d.isValid() ? d.value().doubleValue() : 0.0;
+    }
+
+    private static long volumeOf(Bar bar) {
+        return bar.volume() != null && bar.volume().isValid() ? bar.volume().longValue() : 0L;
+    }
+
+    /**
+     * Parses an IBKR bar time: epoch seconds, "yyyyMMdd HH:mm:ss [TZ]" (Eastern if no zone), or
+     * "yyyyMMdd" for daily bars. Returns 0 and logs a warning if the format is not recognised.
+     */
+    public static long parseTime(String time) {
+        try {
+            String t = time.trim();
+            if (t.length() != 8 && t.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(t);
+            }
+            int year = Integer.parseInt(t, 0, 4, 10);
+            int month = Integer.parseInt(t, 4, 6, 10);
+            int day = Integer.parseInt(t, 6, 8, 10);
+            if (t.length() == 8) {
+                return LocalDateTime.of(year, month, day, 0, 0).atZone(Constants.EASTERN).toEpochSecond();
+            }
+            // Date and time are separated by one or two spaces depending on the TWS version
+            int p = 8;
+            while (t.charAt(p) == ' ') p++;
+            int hour = Integer.parseInt(t, p, p + 2, 10);
+            int minute = Integer.parseInt(t, p + 3, p + 5, 10);
+            int second = Integer.parseInt(t, p + 6, p + 8, 10);
+            String zone = t.substring(p + 8).trim();
+            ZoneId zoneId = zone.isEmpty() ? Constants.EASTERN : ZoneId.of(zone);
+            return LocalDateTime.of(year, month, day, hour, minute, second).atZone(zoneId).toEpochSecond();
+        } catch (RuntimeException e) {
+            log.warn("Failed to parse bar timestamp '{}': {}", time, e.getMessage());
+            return 0L;
+        }
+    }
+}
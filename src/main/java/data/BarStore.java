@@ -0,0 +1,202 @@
+package data;
+
+import com.ib.client.Bar;
+import com.ib.client.Contract;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-symbol intraday bar store fed by keepUpToDate=true reqHistoricalData subscriptions.
+ *
+ * The initial historicalData dump seeds the series; historicalDataUpdate then either replaces
+ * the forming (last) bar or appends a new one. Bars are converted into a columnar {@link BarSeries}
+ * as they arrive. Callbacks arrive on the TWS message thread only, readers take a copy of the
+ * series under the subscription lock. Subscriptions registered as archived (1-min TRADES) also write
+ * each bar through to the {@link BarArchive}, when one is set.
+ */
+public class BarStore {
+    private static final Logger log = LoggerFactory.getLogger(BarStore.class);
+
+    // Keep-up-to-date IDs use their own range, separate from RequestTracker and QuoteCache IDs
+    private static final int FIRST_STREAMING_REQ_ID = 200_000;
+
+    private static final class Subscription {
+        final int reqId;
+        final String key;
+        final Contract contract;
+        final LocalDate sessionDate;
+        boolean archived;              // cleared after the first archive write failure
+        final BarSeries bars = new BarSeries();
+        final CompletableFuture<Void> seeded = new CompletableFuture<>();
+        volatile long lastAccess = System.currentTimeMillis();
+
+        Subscription(int reqId, String key, Contract contract, LocalDate sessionDate, boolean archived) {
+            this.reqId = reqId;
+            this.key = key;
+            this.contract = contract;
+            this.sessionDate = sessionDate;
+            this.archived = archived;
+        }
+    }
+
+    // request key (symbol + bar settings) -> subscription
+    private final ConcurrentHashMap<String, Subscription> byKey = new ConcurrentHashMap<>();
+    // reqId -> subscription (used by the historical data callbacks)
+    private final ConcurrentHashMap<Integer, Subscription> byReqId = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(FIRST_STREAMING_REQ_ID);
+    private volatile BarArchive archive;
+
+    public void setArchive(BarArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Registers a keep-up-to-date subscription for {@code key}; {@code archived} subscriptions write
+     * their bars through to the archive.
+     *
+     * @return the reqId to pass to reqHistoricalData, or -1 if the key is already subscribed
+     */
+    public synchronized int register(String key, Contract contract, LocalDate sessionDate, boolean archived) {
+        if (byKey.containsKey(key)) {
+            return -1;
+        }
+        Subscription sub = new Subscription(nextId.getAndIncrement(), key, contract, sessionDate, archived);
+        byKey.put(key, sub);
+        byReqId.put(sub.reqId, sub);
+        log.debug("[{}] Registered live bar subscription reqId={} key={}", contract.symbol(), sub.reqId, key);
+        return sub.reqId;
+    }
+
+    /**
+     * Removes the subscription for {@code key}.
+     *
+     * @return the reqId to pass to cancelHistoricalData, or -1 if the key was not subscribed
+     */
+    public synchronized int remove(String key) {
+        Subscription sub = byKey.remove(key);
+        if (sub == null) return -1;
+        byReqId.remove(sub.reqId);
+        if (!sub.seeded.isDone()) {
+            sub.seeded.completeExceptionally(new IOException("Bar subscription " + key + " cancelled"));
+        }
+        return sub.reqId;
+    }
+
+    /** Returns the least-recently-read key, used to free a subscription slot when at capacity. */
+    public String leastRecentlyUsed() {
+        return byKey.values().stream()
+                .min(Comparator.comparingLong(s -> s.lastAccess))
+                .map(s -> s.key)
+                .orElse(null);
+    }
+
+    public int size() {
+        return byKey.size();
+    }
+
+    public boolean isSubscribed(String key) {
+        return byKey.containsKey(key);
+    }
+
+    public boolean isStreaming(int reqId) {
+        return byReqId.containsKey(reqId);
+    }
+
+    /** Session date the subscription for {@code key} was seeded for, or {@code null} if not subscribed. */
+    public LocalDate sessionDate(String key) {
+        Subscription sub = byKey.get(key);
+        return sub != null ? sub.sessionDate : null;
+    }
+
+    /** Future completed once the initial historical dump has arrived, or {@code null} if not subscribed. */
+    public CompletableFuture<Void> awaitSeeded(String key) {
+        Subscription sub = byKey.get(key);
+        return sub != null ? sub.seeded : null;
+    }
+
+    /** Copy of the current series for {@code key} (oldest first), or an empty series if not seeded. */
+    public BarSeries snapshot(String key) {
+        Subscription sub = byKey.get(key);
+        if (sub == null || !sub.seeded.isDone() || sub.seeded.isCompletedExceptionally()) {
+            return new BarSeries(0);
+        }
+        sub.lastAccess = System.currentTimeMillis();
+        synchronized (sub) {
+            return sub.bars.copy();
+        }
+    }
+
+    /**
+     * Drops all subscriptions. Called after a reconnect: TWS drops keepUpToDate
+     * subscriptions with the socket, and the next read re-seeds lazily.
+     */
+    public synchronized void clear() {
+        for (Subscription sub : byKey.values()) {
+            if (!sub.seeded.isDone()) {
+                sub.seeded.completeExceptionally(new IOException("Connection reset"));
+            }
+        }
+        byKey.clear();
+        byReqId.clear();
+    }
+
+    /** Drops a subscription that TWS rejected (e.g. pacing violation, no data permissions). */
+    public void fail(int reqId, String reason) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null) return;
+        log.warn("[{}] Live bar subscription failed: {}", sub.contract.symbol(), reason);
+        remove(sub.key);
+    }
+
+    // -------------------------------------------------------------------------
+    // Historical data callbacks (TWS message thread only)
+    // -------------------------------------------------------------------------
+
+    /** Initial dump bar from historicalData(). */
+    public void onBar(int reqId, Bar bar) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null) return;
+        synchronized (sub) {
+            sub.bars.add(bar);
+            archive(sub);
+        }
+    }
+
+    /** historicalDataEnd() — the series is now usable. */
+    public void onSeeded(int reqId) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null) return;
+        log.debug("[{}] Live bar series seeded with {} bars", sub.contract.symbol(), sub.bars.size());
+        sub.seeded.complete(null);
+    }
+
+    /** historicalDataUpdate() — replaces the forming bar or appends a new one. */
+    public void onUpdate(int reqId, Bar bar) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null) return;
+        synchronized (sub) {
+            sub.bars.upsert(bar);
+            archive(sub);
+        }
+    }
+
+    /** Writes the bar just added or replaced; caller holds the subscription lock. */
+    private void archive(Subscription sub) {
+        BarArchive a = archive;
+        if (a == null || !sub.archived) return;
+        try {
+            a.append(sub.contract.symbol(), sub.bars, sub.bars.lastIndex());
+        } catch (IOException | RuntimeException e) {
+            // Never let the archive break the live feed; stop archiving this subscription
+            sub.archived = false;
+            log.warn("[{}] Bar archive write failed, archiving disabled for {}: {}", sub.contract.symbol(), sub.key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only accumulation buffer for a single writer (the TWS message thread).
+ *
+ * Items go into fixed-size chunks, so growing never copies existing items; only the small
+ * chunk directory is resized. {@link #toList()} hands the contents off as a read-only,
+ * random-access view without copying. Publication to other threads must go through a
+ * happens-before edge (RequestTracker completes a CompletableFuture).
+ */
+public final class ChunkedBuffer<T> {
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;   // 256 items per chunk
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private Object[][] chunks = new Object[4][];
+    private int size;
+
+    public void add(T item) {
+        int chunkIndex = size >>> CHUNK_SHIFT;
+        if (chunkIndex == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        Object[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new Object[CHUNK_SIZE];
+            chunks[chunkIndex] = chunk;
+        }
+        chunk[size & CHUNK_MASK] = item;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Read-only view of the items added so far. The buffer must not be appended to afterwards. */
+    public List<T> toList() {
+        return new View<>(chunks, size);
+    }
+
+    private static final class View<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[][] chunks;
+        private final int size;
+
+        View(Object[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return (T) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
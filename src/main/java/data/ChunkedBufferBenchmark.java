@@ -0,0 +1,140 @@
+package data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single-thread benchmark of the {@link RequestTracker} accumulation path: append {@code n} items as the
+ * TWS message thread does, hand the result off as a list, read it back. Compares {@link ChunkedBuffer}
+ * with the {@link CopyOnWriteArrayList} it replaced, which copied the whole buffer on every item.
+ *
+ * Each run is timed with {@link System#nanoTime()} and its allocation read from the JVM's per-thread
+ * allocation counter, so item objects (built once up front) are not counted. The median over the
+ * measured runs is reported. Warm-up runs at least {@code --warmup} times and for at least
+ * {@value #WARMUP_MS}ms, so the cheap runs are JIT-compiled and the slow ones are not repeated for long.
+ *
+ * Usage: {@code data.ChunkedBufferBenchmark [items...] [--warmup N] [--runs N]}; defaults to 1k, 10k and
+ * 100k items.
+ */
+public class ChunkedBufferBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedBufferBenchmark.class);
+
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000};
+    private static final int DEFAULT_WARMUP = 2;
+    private static final long WARMUP_MS = 500;
+    private static final int DEFAULT_RUNS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Keeps the read-back from being optimised away. */
+    private static long sink;
+
+    /** Median time and allocation of one run. */
+    private record Result(double medianMs, long medianBytes) {}
+
+    private interface Accumulator {
+        List<Object> accumulate(Object[] items);
+    }
+
+    public static void main(String[] args) {
+        int warmup = DEFAULT_WARMUP, runs = DEFAULT_RUNS;
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "-h", "--help" -> {
+                    System.err.println("Usage: data.ChunkedBufferBenchmark [items...] [--warmup N] [--runs N]");
+                    System.exit(2);
+                }
+                default -> sizes.add(Integer.parseInt(args[i].replace("_", "")));
+            }
+        }
+        if (sizes.isEmpty()) {
+            Arrays.stream(DEFAULT_SIZES).forEach(sizes::add);
+        }
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            log.warn("Per-thread allocation counters are not supported by this JVM; allocation reads 0");
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        log.info("=== ChunkedBuffer vs CopyOnWriteArrayList (warm-up >= {} runs and {}ms, {} measured runs per size) ===",
+                warmup, WARMUP_MS, runs);
+        for (int n : sizes) {
+            Object[] items = new Object[n];
+            for (int i = 0; i < n; i++) {
+                items[i] = Integer.valueOf(i);   // cached or not, built before measuring
+            }
+            Result cow = measure(items, warmup, runs, ChunkedBufferBenchmark::copyOnWrite);
+            Result chunked = measure(items, warmup, runs, ChunkedBufferBenchmark::chunked);
+            log.info("{} items:  COW {} ms / {}    chunked {} ms / {}", n,
+                    formatMs(cow.medianMs()), formatBytes(cow.medianBytes()),
+                    formatMs(chunked.medianMs()), formatBytes(chunked.medianBytes()));
+        }
+        log.debug("sink={}", sink);
+    }
+
+    private static List<Object> copyOnWrite(Object[] items) {
+        List<Object> buffer = new CopyOnWriteArrayList<>();
+        for (Object item : items) {
+            buffer.add(item);
+        }
+        return buffer;
+    }
+
+    private static List<Object> chunked(Object[] items) {
+        ChunkedBuffer<Object> buffer = new ChunkedBuffer<>();
+        for (Object item : items) {
+            buffer.add(item);
+        }
+        return buffer.toList();
+    }
+
+    private static Result measure(Object[] items, int warmup, int runs, Accumulator accumulator) {
+        long warmupEnd = System.nanoTime() + WARMUP_MS * 1_000_000;
+        for (int i = 0; i < warmup || System.nanoTime() < warmupEnd; i++) {
+            run(items, accumulator);
+        }
+        long[] nanos = new long[runs];
+        long[] bytes = new long[runs];
+        long thread = Thread.currentThread().threadId();
+        for (int i = 0; i < runs; i++) {
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            run(items, accumulator);
+            nanos[i] = System.nanoTime() - start;
+            bytes[i] = THREADS.getThreadAllocatedBytes(thread) - allocatedBefore;
+        }
+        Arrays.sort(nanos);
+        Arrays.sort(bytes);
+        return new Result(nanos[runs / 2] / 1e6, bytes[runs / 2]);
+    }
+
+    private static void run(Object[] items, Accumulator accumulator) {
+        List<Object> result = accumulator.accumulate(items);
+        long sum = 0;
+        for (int i = 0; i < result.size(); i++) {
+            sum += result.get(i).hashCode();
+        }
+        sink += sum;
+    }
+
+    private static String formatMs(double ms) {
+        if (ms < 1) return String.format("%.3f", ms);
+        return ms < 10 ? String.format("%.2f", ms) : String.format("%.0f", ms);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1L << 30) return String.format("%.1f GB", bytes / (double) (1L << 30));
+        if (bytes >= 1L << 20) return String.format("%.1f MB", bytes / (double) (1L << 20));
+        if (bytes >= 1L << 10) return String.format("%d KB", Math.round(bytes / 1024.0));
+        return bytes + " B";
+    }
+}
@@ -0,0 +1,160 @@
+package data;
+
+import com.ib.client.Contract;
+import com.ib.client.ContractDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.Constants;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * conId-keyed ContractDetails cache with per-field-group TTLs, persisted to SQLite so the bot starts warm.
+ *
+ *   - static fields (contract identity, minTick, names): valid for {@link #STATIC_TTL_MS}
+ *   - session fields (tradingHours, liquidHours): refreshed once per trading day. An entry fetched on an
+ *     earlier day is still served while its schedule covers today, and the caller is told to refresh it
+ *     in the background; once the schedule no longer covers today it is a miss.
+ *
+ * Contracts without a conId are resolved through a symbol index populated from earlier responses.
+ */
+public class ContractDetailsCache {
+    private static final Logger log = LoggerFactory.getLogger(ContractDetailsCache.class);
+
+    private static final long STATIC_TTL_MS = TimeUnit.DAYS.toMillis(7);
+    // Minimum gap between background refresh attempts for one contract, so a failing refresh is not retried on every read
+    private static final long REFRESH_RETRY_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final DateTimeFormatter HOURS_DATE = DateTimeFormatter.BASIC_ISO_DATE;   // yyyyMMdd, as in tradingHours
+
+    /** Cache hit: the details to serve, and whether the session fields should be refreshed in the background. */
+    public record Lookup(ContractDetails details, boolean refreshDue) {}
+
+    public record Stats(int size, long hits, long misses, long refreshes) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0.0;
+        }
+    }
+
+    private static final class Entry {
+        final ContractDetails details;
+        final long staticFetchedAt;
+        final LocalDate hoursSessionDate;
+        volatile long refreshAttemptedAt;
+
+        Entry(ContractDetails details, long staticFetchedAt, LocalDate hoursSessionDate) {
+            this.details = details;
+            this.staticFetchedAt = staticFetchedAt;
+            this.hoursSessionDate = hoursSessionDate;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, Entry> byConId = new ConcurrentHashMap<>();
+    // symbol|secType|currency -> conId, for callers that build a Contract by symbol
+    private final ConcurrentHashMap<String, Integer> conIdBySymbol = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    private volatile ContractDetailsDatabase database;
+
+    /** Attaches the persistent store and warms the cache from it. Call once on startup. */
+    public void setDatabase(ContractDetailsDatabase db) {
+        this.database = db;
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        for (ContractDetailsDatabase.Row row : db.loadAll()) {
+            if (now - row.staticFetchedAt() >= STATIC_TTL_MS) continue;
+            index(new Entry(row.details(), row.staticFetchedAt(), row.hoursSessionDate()));
+            loaded++;
+        }
+        log.info("ContractDetailsCache: warmed with {} contracts", loaded);
+    }
+
+    /** Returns the cached details for {@code contract}, or {@code null} on a miss. */
+    public Lookup lookup(Contract contract) {
+        Entry entry = find(contract);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - entry.staticFetchedAt >= STATIC_TTL_MS) {
+            log.debug("[{}] Cached contract details expired", contract.symbol());
+            misses.incrementAndGet();
+            return null;
+        }
+
+        LocalDate today = LocalDate.now(Constants.EASTERN);
+        if (today.equals(entry.hoursSessionDate)) {
+            hits.incrementAndGet();
+            return new Lookup(entry.details, false);
+        }
+        if (!coversDate(entry.details.tradingHours(), today)) {
+            log.debug("[{}] Cached trading hours do not cover {}", contract.symbol(), today);
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        boolean refreshDue = now - entry.refreshAttemptedAt >= REFRESH_RETRY_MS;
+        if (refreshDue) {
+            entry.refreshAttemptedAt = now;
+            refreshes.incrementAndGet();
+        }
+        return new Lookup(entry.details, refreshDue);
+    }
+
+    /**
+     * Stores a fresh response from TWS; all field groups are stamped as fetched now. Called on the TWS
+     * message thread, so only the in-memory index is updated here and the row is queued for the database's writer.
+     */
+    public void put(ContractDetails details) {
+        if (details == null || details.contract() == null || details.contract().conid() <= 0) return;
+        Entry entry = new Entry(details, System.currentTimeMillis(), LocalDate.now(Constants.EASTERN));
+        index(entry);
+        ContractDetailsDatabase db = database;
+        if (db != null) {
+            db.upsert(new ContractDetailsDatabase.Row(entry.details, entry.staticFetchedAt, entry.hoursSessionDate));
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(byConId.size(), hits.get(), misses.get(), refreshes.get());
+    }
+
+    private Entry find(Contract contract) {
+        int conId = contract.conid();
+        if (conId <= 0) {
+            Integer indexed = conIdBySymbol.get(symbolKey(contract));
+            if (indexed == null) return null;
+            conId = indexed;
+        }
+        return byConId.get(conId);
+    }
+
+    private void index(Entry entry) {
+        Contract contract = entry.details.contract();
+        byConId.put(contract.conid(), entry);
+        conIdBySymbol.put(symbolKey(contract), contract.conid());
+    }
+
+    private static String symbolKey(Contract contract) {
+        return contract.symbol() + "|" + contract.getSecType() + "|" + contract.currency();
+    }
+
+    /** True if the tradingHours schedule ("20261017:0400-20261017:2000;20261018:CLOSED;...") has a session for {@code date}. */
+    private static boolean coversDate(String tradingHours, LocalDate date) {
+        if (tradingHours == null || tradingHours.isEmpty()) return false;
+        String prefix = date.format(HOURS_DATE) + ":";
+        for (String session : tradingHours.split(";")) {
+            if (session.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+}
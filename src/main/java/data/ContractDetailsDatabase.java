@@ -0,0 +1,178 @@
+package data;
+
+import com.ib.client.Contract;
+import com.ib.client.ContractDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQLite persistence for {@link ContractDetailsCache}, stored in the same file as the trade journal.
+ * Only the fields the bot reads are persisted (contract identity, minTick, names, hours).
+ *
+ * {@link #upsert} only enqueues: responses are cached from the TWS message thread, and a write can wait
+ * up to the busy timeout behind TradeDatabase's writer, so a single writer thread does the SQLite work.
+ * The rows are a cache, so when the queue is full a row is dropped and simply refetched after a restart.
+ */
+public class ContractDetailsDatabase {
+    private static final Logger log = LoggerFactory.getLogger(ContractDetailsDatabase.class);
+
+    /** A persisted cache row: the details plus when each field group was fetched. */
+    public record Row(ContractDetails details, long staticFetchedAt, LocalDate hoursSessionDate) {}
+
+    private static final int QUEUE_CAPACITY = 1_000;
+    private static final long CLOSE_TIMEOUT_MS = 5_000;
+    private static final String UPSERT_SQL = "INSERT OR REPLACE INTO contract_details (con_id, symbol, sec_type, exchange, primary_exch, currency, local_symbol, long_name, min_tick, time_zone_id, trading_hours, liquid_hours, static_fetched_at, hours_session_date) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private Connection conn;
+    private final BlockingQueue<Row> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread writer;
+    private volatile boolean closed;
+
+    public void init(String dbPath) throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+        conn.setAutoCommit(true);
+        try (Statement stmt = conn.createStatement()) {
+            // TradeDatabase's writer thread holds short write transactions on the same file
+            stmt.execute("PRAGMA busy_timeout=5000");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS contract_details (
+                    con_id INTEGER PRIMARY KEY,
+                    symbol TEXT,
+                    sec_type TEXT,
+                    exchange TEXT,
+                    primary_exch TEXT,
+                    currency TEXT,
+                    local_symbol TEXT,
+                    long_name TEXT,
+                    min_tick REAL,
+                    time_zone_id TEXT,
+                    trading_hours TEXT,
+                    liquid_hours TEXT,
+                    static_fetched_at INTEGER,
+                    hours_session_date TEXT
+                )
+                """);
+        }
+        writer = new Thread(this::writeLoop, "ContractDB-Writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("ContractDetailsDatabase: initialized ({})", dbPath);
+    }
+
+    /** Queues the row for the writer thread; never blocks. */
+    public void upsert(Row row) {
+        if (conn == null || closed) return;
+        if (!queue.offer(row)) {
+            log.warn("ContractDetailsDatabase: write queue full ({}), not persisting conId={}",
+                    QUEUE_CAPACITY, row.details().contract().conid());
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Row row = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (row != null) {
+                    write(row);
+                }
+            } catch (InterruptedException e) {
+                // Only close() stops the writer; keep draining
+            }
+        }
+    }
+
+    private void write(Row row) {
+        ContractDetails cd = row.details();
+        Contract c = cd.contract();
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            ps.setInt(1, c.conid());
+            ps.setString(2, c.symbol());
+            ps.setString(3, c.secType() != null ? c.secType().name() : null);
+            ps.setString(4, c.exchange());
+            ps.setString(5, c.primaryExch());
+            ps.setString(6, c.currency());
+            ps.setString(7, c.localSymbol());
+            ps.setString(8, cd.longName());
+            ps.setDouble(9, cd.minTick());
+            ps.setString(10, cd.timeZoneId());
+            ps.setString(11, cd.tradingHours());
+            ps.setString(12, cd.liquidHours());
+            ps.setLong(13, row.staticFetchedAt());
+            ps.setString(14, row.hoursSessionDate() != null ? row.hoursSessionDate().toString() : null);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            log.error("ContractDetailsDatabase: failed to upsert conId={}", c.conid(), e);
+        }
+    }
+
+    public List<Row> loadAll() {
+        List<Row> rows = new ArrayList<>();
+        if (conn == null) return rows;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM contract_details")) {
+            while (rs.next()) {
+                Contract c = new Contract();
+                c.conid(rs.getInt("con_id"));
+                c.symbol(rs.getString("symbol"));
+                c.secType(rs.getString("sec_type"));
+                c.exchange(rs.getString("exchange"));
+                c.primaryExch(rs.getString("primary_exch"));
+                c.currency(rs.getString("currency"));
+                c.localSymbol(rs.getString("local_symbol"));
+
+                ContractDetails cd = new ContractDetails();
+                cd.contract(c);
+                cd.longName(rs.getString("long_name"));
+                cd.minTick(rs.getDouble("min_tick"));
+                cd.timeZoneId(rs.getString("time_zone_id"));
+                cd.tradingHours(rs.getString("trading_hours"));
+                cd.liquidHours(rs.getString("liquid_hours"));
+
+                String sessionDate = rs.getString("hours_session_date");
+                rows.add(new Row(cd, rs.getLong("static_fetched_at"),
+                        sessionDate != null ? LocalDate.parse(sessionDate) : null));
+            }
+        } catch (SQLException e) {
+            log.error("ContractDetailsDatabase: failed to load contract details", e);
+        }
+        log.info("ContractDetailsDatabase: loaded {} contracts from database", rows.size());
+        return rows;
+    }
+
+    /** Stops accepting rows, writes whatever is still queued, then closes the connection. */
+    public void close() {
+        if (conn != null) {
+            closed = true;
+            if (writer != null) {
+                try {
+                    writer.join(CLOSE_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (writer.isAlive()) {
+                    log.warn("ContractDetailsDatabase: writer still busy after {}ms, {} rows not persisted",
+                            CLOSE_TIMEOUT_MS, queue.size());
+                    return;
+                }
+            }
+            // Rows offered between the writer's last check and its exit
+            Row row;
+            while ((row = queue.poll()) != null) {
+                write(row);
+            }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                log.warn("ContractDetailsDatabase: error closing connection", e);
+            }
+        }
+    }
+}
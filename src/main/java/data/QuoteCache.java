@@ -0,0 +1,196 @@
+package data;
+
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.TickAttrib;
+import com.ib.client.TickType;
+import ibkr.model.Quote;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-symbol L1 quote cache fed by streaming (non-snapshot) reqMktData subscriptions.
+ *
+ * Ticks are written only from the TWS message thread; each tick replaces the symbol's
+ * immutable {@link Quote}, so readers get an O(1) consistent snapshot without a network round trip.
+ * Subscriptions use their own reqId range so EWrapperImpl can tell them apart from snapshot requests.
+ */
+public class QuoteCache {
+    private static final Logger log = LoggerFactory.getLogger(QuoteCache.class);
+
+    // Streaming ticker IDs start well above RequestTracker IDs (which start at 1000)
+    private static final int FIRST_STREAMING_REQ_ID = 100_000;
+
+    private static final class Subscription {
+        final int reqId;
+        final Contract contract;
+        final CompletableFuture<Quote> firstQuote = new CompletableFuture<>();
+        volatile Quote quote;
+        volatile long lastAccess;
+
+        Subscription(int reqId, Contract contract) {
+            this.reqId = reqId;
+            this.contract = contract;
+            this.quote = Quote.builder().symbol(contract.symbol()).build();
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    // symbol -> subscription
+    private final ConcurrentHashMap<String, Subscription> bySymbol = new ConcurrentHashMap<>();
+    // reqId -> subscription (used by the tick callbacks)
+    private final ConcurrentHashMap<Integer, Subscription> byReqId = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(FIRST_STREAMING_REQ_ID);
+
+    /**
+     * Registers a streaming subscription for {@code contract}.
+     *
+     * @return the reqId to pass to reqMktData, or -1 if the symbol is already subscribed
+     */
+    public synchronized int register(Contract contract) {
+        if (bySymbol.containsKey(contract.symbol())) {
+            return -1;
+        }
+        Subscription sub = new Subscription(nextId.getAndIncrement(), contract);
+        bySymbol.put(contract.symbol(), sub);
+        byReqId.put(sub.reqId, sub);
+        log.debug("[{}] Registered streaming quote subscription reqId={}", contract.symbol(), sub.reqId);
+        return sub.reqId;
+    }
+
+    /**
+     * Removes the subscription for {@code symbol}.
+     *
+     * @return the reqId to pass to cancelMktData, or -1 if the symbol was not subscribed
+     */
+    public synchronized int remove(String symbol) {
+        Subscription sub = bySymbol.remove(symbol);
+        if (sub == null) return -1;
+        byReqId.remove(sub.reqId);
+        if (!sub.firstQuote.isDone()) {
+            sub.firstQuote.completeExceptionally(new IOException("Quote subscription for " + symbol + " cancelled"));
+        }
+        return sub.reqId;
+    }
+
+    /** Returns the least-recently-read symbol, used to free a market data line when at capacity. */
+    public String leastRecentlyUsed() {
+        return bySymbol.values().stream()
+                .min(Comparator.comparingLong(s -> s.lastAccess))
+                .map(s -> s.contract.symbol())
+                .orElse(null);
+    }
+
+    public int size() {
+        return bySymbol.size();
+    }
+
+    public boolean isSubscribed(String symbol) {
+        return bySymbol.containsKey(symbol);
+    }
+
+    public boolean isStreaming(int reqId) {
+        return byReqId.containsKey(reqId);
+    }
+
+    /** Latest quote for {@code symbol}, or {@code null} if not subscribed. */
+    public Quote get(String symbol) {
+        Subscription sub = bySymbol.get(symbol);
+        if (sub == null) return null;
+        sub.lastAccess = System.currentTimeMillis();
+        return sub.quote;
+    }
+
+    /** Future completed once the subscription has both a bid and an ask, or {@code null} if not subscribed. */
+    public CompletableFuture<Quote> awaitFirstQuote(String symbol) {
+        Subscription sub = bySymbol.get(symbol);
+        return sub != null ? sub.firstQuote : null;
+    }
+
+    /**
+     * Clears all quotes and returns the subscribed contracts so the caller can re-issue them.
+     * Called after a reconnect: TWS drops market data subscriptions with the socket.
+     */
+    public synchronized List<Contract> resetForReconnect() {
+        List<Contract> contracts = new ArrayList<>();
+        for (Subscription sub : bySymbol.values()) {
+            contracts.add(sub.contract);
+            if (!sub.firstQuote.isDone()) {
+                sub.firstQuote.completeExceptionally(new IOException("Connection reset"));
+            }
+        }
+        bySymbol.clear();
+        byReqId.clear();
+        return contracts;
+    }
+
+    /** Drops a subscription that TWS rejected (e.g. no market data permissions). */
+    public void fail(int reqId, String reason) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null) return;
+        log.warn("[{}] Streaming quote subscription failed: {}", sub.contract.symbol(), reason);
+        remove(sub.contract.symbol());
+    }
+
+    // -------------------------------------------------------------------------
+    // Tick callbacks (TWS message thread only)
+    // -------------------------------------------------------------------------
+
+    public void onTickPrice(int reqId, int field, double price, TickAttrib attribs) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null) return;
+
+        Quote.QuoteBuilder b = sub.quote.toBuilder().updatedAt(System.currentTimeMillis());
+        switch (TickType.get(field)) {
+            case BID, DELAYED_BID -> b.bid(price).pastLimit(attribs != null && attribs.pastLimit());
+            case ASK, DELAYED_ASK -> b.ask(price).pastLimit(attribs != null && attribs.pastLimit());
+            case LAST, DELAYED_LAST -> b.last(price);
+            default -> { return; }
+        }
+        publish(sub, b.build());
+    }
+
+    public void onTickSize(int reqId, int field, Decimal size) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null || !Decimal.isValid(size)) return;
+
+        double value = size.value().doubleValue();
+        Quote.QuoteBuilder b = sub.quote.toBuilder();
+        switch (TickType.get(field)) {
+            case BID_SIZE, DELAYED_BID_SIZE -> b.bidSize(value);
+            case ASK_SIZE, DELAYED_ASK_SIZE -> b.askSize(value);
+            default -> { return; }
+        }
+        publish(sub, b.build());
+    }
+
+    public void onTickGeneric(int reqId, int tickType, double value) {
+        Subscription sub = byReqId.get(reqId);
+        if (sub == null) return;
+
+        TickType type = TickType.get(tickType);
+        if (type == TickType.HALTED || type == TickType.DELAYED_HALTED) {
+            // 0 = not halted, 1 = general halt, 2 = volatility halt, -1 = not available
+            boolean halted = value > 0;
+            if (halted != sub.quote.isHalted()) {
+                log.info("[{}] Halt state changed: halted={} (value={})", sub.contract.symbol(), halted, value);
+            }
+            publish(sub, sub.quote.toBuilder().halted(halted).updatedAt(System.currentTimeMillis()).build());
+        }
+    }
+
+    private void publish(Subscription sub, Quote quote) {
+        sub.quote = quote;
+        if (quote.hasBidAsk() && !sub.firstQuote.isDone()) {
+            sub.firstQuote.complete(quote);
+        }
+    }
+}
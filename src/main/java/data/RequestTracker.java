@@ -1,5 +1,7 @@
 package data;
 
+import metrics.LatencyHistogram;
+import metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,7 +10,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -17,39 +18,56 @@ public class RequestTracker <T> {
 
     // A map of reqeuest ID → CompletableFuture (holds a promise that will eventually return data)
     private final ConcurrentHashMap<Integer, CompletableFuture<List<T>>> futures = new ConcurrentHashMap<>();
-    // A map of request ID -> List<T> -> Temporarily accumulates incoming data items for each request
-    private final ConcurrentHashMap<Integer, List<T>> buffers = new ConcurrentHashMap<>();
-    // A map of request ID -> timestamp to track when request started (for timeout cleanup)
+    // A map of request ID -> ChunkedBuffer<T> -> Temporarily accumulates incoming data items for each request
+    // (appended only by the TWS message thread, handed off as a read-only list on complete)
+    private final ConcurrentHashMap<Integer, ChunkedBuffer<T>> buffers = new ConcurrentHashMap<>();
+    // A map of request ID -> System.nanoTime() when the request started (for the duration metric)
     private final ConcurrentHashMap<Integer, Long> startTimes = new ConcurrentHashMap<>();
     private final AtomicInteger nextId = new AtomicInteger(1000);
 
+    private final String type;
+    private final LatencyHistogram duration;
+
+    /** @param type request type label for metrics, e.g. the tracked data class */
+    public RequestTracker(String type) {
+        this.type = type;
+        // From start() to the end marker, so it includes any wait in the RequestScheduler queue
+        this.duration = Metrics.histogram("ibkr_request_duration_seconds",
+                "Time from issuing a tracked TWS request to its last callback", "type", type);
+    }
+
     public int nextReqId() {
         return nextId.getAndIncrement();
     }
 
     public void start(int reqId, CompletableFuture<List<T>> future) {
-        buffers.put(reqId, new CopyOnWriteArrayList<>());
+        buffers.put(reqId, new ChunkedBuffer<>());
         futures.put(reqId, future);
-        startTimes.put(reqId, System.currentTimeMillis());
+        startTimes.put(reqId, System.nanoTime());
     }
 
     public void add(int reqId, T item) {
-        List<T> buffer = buffers.get(reqId);
+        ChunkedBuffer<T> buffer = buffers.get(reqId);
         if (buffer != null) buffer.add(item);
     }
 
     public void complete(int reqId) {
         CompletableFuture<List<T>> future = futures.remove(reqId);
-        List<T> data = buffers.remove(reqId);
-        startTimes.remove(reqId);
+        ChunkedBuffer<T> data = buffers.remove(reqId);
+        Long started = startTimes.remove(reqId);
         if (future != null && data != null && !future.isDone()) {
-            future.complete(data);
+            future.complete(data.toList());
+            if (started != null) {
+                duration.recordSince(started);
+            }
+            count("ok");
         }
     }
 
     /**
      * Called when a request times out to clean up resources and prevent memory leaks.
      * Removes the request from all tracking maps and completes the future exceptionally.
+     * Also called for every other failed or cancelled future, which is counted by its outcome.
      *
      * @param reqId The request ID that timed out
      */
@@ -57,9 +75,17 @@ public class RequestTracker <T> {
         CompletableFuture<List<T>> future = futures.remove(reqId);
         buffers.remove(reqId);
         startTimes.remove(reqId);
-        if (future != null && !future.isDone()) {
+        if (future == null) {
+            return;
+        }
+        if (!future.isDone()) {
             future.completeExceptionally(new TimeoutException("Request " + reqId + " timed out after 10 seconds"));
         }
+        switch (future.state()) {
+            case CANCELLED -> count("cancelled");
+            case FAILED -> count(future.exceptionNow() instanceof TimeoutException ? "timeout" : "error");
+            default -> { }
+        }
     }
 
     /**
@@ -80,7 +106,13 @@ public class RequestTracker <T> {
                 future.completeExceptionally(
                     new IOException("Connection lost: " + reason)
                 );
+                count("cancelled");
             }
         }
     }
+
+    private void count(String outcome) {
+        Metrics.counter("ibkr_requests_total", "Tracked TWS requests by type and outcome",
+                "type", type, "outcome", outcome).increment();
+    }
 }
@@ -14,7 +14,7 @@ public class RequestTrackerManager {
     @SuppressWarnings("unchecked")
     // <T> method level type that returns a RequestTracker obj of Type T and takes in a Class of Type T as well
     public <T> RequestTracker<T> getTracker(Class<T> dataType) {
-        return (RequestTracker<T>) trackers.computeIfAbsent(dataType , i -> new RequestTracker<>());
+        return (RequestTracker<T>) trackers.computeIfAbsent(dataType , i -> new RequestTracker<>(dataType.getSimpleName()));
     }
 
     /**
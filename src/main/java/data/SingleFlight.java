@@ -0,0 +1,99 @@
+package data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer in front of RequestTrackerManager.
+ *
+ * Concurrent callers asking for the same request (same canonical key) share one wire request
+ * and one result instead of each issuing their own. The entry is removed as soon as the request
+ * completes, so plain {@link #execute(String, Supplier)} never serves stale data - it only merges
+ * requests that overlap in time. {@link #execute(String, long, Supplier)} additionally reuses the
+ * last successful result while it is younger than a caller-supplied age.
+ */
+public class SingleFlight {
+    private static final Logger log = LoggerFactory.getLogger(SingleFlight.class);
+
+    private record Completed(Object result, long completedAt) {}
+
+    private final ConcurrentHashMap<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    // Last successful result per key, only kept for keys requested with a max age
+    private final ConcurrentHashMap<String, Completed> recent = new ConcurrentHashMap<>();
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * Returns a future for {@code key}, joining an identical in-flight request if there is one,
+     * otherwise issuing a new one via {@code request}.
+     * Each caller gets its own dependent future, so one caller cancelling does not affect the others.
+     */
+    public <T> CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> request) {
+        return join(key, false, request);
+    }
+
+    /**
+     * Like {@link #execute(String, Supplier)}, but first returns the last successful result for
+     * {@code key} if it completed less than {@code maxAgeMs} ago.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String key, long maxAgeMs, Supplier<CompletableFuture<T>> request) {
+        Completed last = recent.get(key);
+        if (last != null && System.currentTimeMillis() - last.completedAt() < maxAgeMs) {
+            reused.incrementAndGet();
+            return CompletableFuture.completedFuture((T) last.result());
+        }
+        return join(key, true, request);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> join(String key, boolean remember, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> shared = new CompletableFuture<>();
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            log.debug("Coalesced request into in-flight {}", key);
+            return existing.copy();
+        }
+
+        issued.incrementAndGet();
+        try {
+            request.get().whenComplete((result, ex) -> {
+                if (ex == null && remember) {
+                    recent.put(key, new Completed(result, System.currentTimeMillis()));
+                }
+                inFlight.remove(key, shared);
+                if (ex != null) {
+                    shared.completeExceptionally(ex);
+                } else {
+                    shared.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+        }
+        return shared.copy();
+    }
+
+    /** Number of wire requests actually issued. */
+    public long getIssuedCount() {
+        return issued.get();
+    }
+
+    /** Number of calls that joined an identical in-flight request instead of issuing their own. */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /** Number of calls served from a recent completed result without any request. */
+    public long getReusedCount() {
+        return reused.get();
+    }
+}
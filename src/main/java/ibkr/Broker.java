@@ -0,0 +1,58 @@
+package ibkr;
+
+import com.ib.client.Contract;
+import com.ib.client.ContractDetails;
+import com.ib.client.Order;
+import com.ib.client.ScannerSubscription;
+import com.ib.client.TagValue;
+import data.BarSeries;
+import ibkr.model.AccountSummaryOutput;
+import ibkr.model.HistoricalDataInput;
+import ibkr.model.OrderOutput;
+import ibkr.model.PositionOutput;
+import ibkr.model.Quote;
+import ibkr.model.ScanData;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Market data and order routing as seen by strategies and {@link risk.Position}.
+ *
+ * {@link IBKRConnection} is the live implementation; {@code backtest.BacktestBroker} replays recorded
+ * bars against a simulated clock. Strategy code must read time through {@link #clock()} rather than
+ * the system clock so the same code runs unchanged in both.
+ */
+public interface Broker {
+
+    /** Clock the strategy should treat as "now" (Eastern zone). */
+    Clock clock();
+
+    List<ScanData> marketScan(ScannerSubscription scannerSubscription, List<TagValue> filterOptions)
+            throws ExecutionException, InterruptedException, TimeoutException;
+
+    /** Intraday series for the request, including the forming bar. */
+    BarSeries reqLiveBars(HistoricalDataInput historicalDataInput)
+            throws ExecutionException, InterruptedException, TimeoutException;
+
+    ContractDetails reqContractDetails(Contract contract)
+            throws ExecutionException, InterruptedException, TimeoutException;
+
+    Quote reqQuote(Contract contract) throws ExecutionException, InterruptedException, TimeoutException;
+
+    List<PositionOutput> reqPositions() throws ExecutionException, InterruptedException, TimeoutException;
+
+    List<OrderOutput> reqAllOpenOrder() throws ExecutionException, InterruptedException, TimeoutException;
+
+    List<AccountSummaryOutput> reqAccountSummary(String tags)
+            throws ExecutionException, InterruptedException, TimeoutException;
+
+    void placeOrder(Contract contract, Order order);
+
+    /** Places a parent entry with take-profit and stop-loss children; the children's parentId is set here. */
+    void placeBracketOrders(Contract contract, Order parentOrder, Order childOrder1, Order childOrder2);
+
+    void closeAllOrders();
+}
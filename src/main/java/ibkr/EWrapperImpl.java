@@ -2,6 +2,9 @@ package ibkr;
 
 import com.ib.client.*;
 import com.ib.client.protobuf.*;
+import data.AccountMirror;
+import data.BarStore;
+import data.QuoteCache;
 import data.RequestTracker;
 import data.RequestTrackerManager;
 import ibkr.model.*;
@@ -34,6 +37,9 @@ public class EWrapperImpl implements EWrapper {
     //! [socket_declare]
 
     private RequestTrackerManager requestTrackerManager;
+    private QuoteCache quoteCache;
+    private BarStore barStore;
+    private AccountMirror accountMirror;
     private IBKRConnection ibkrConnection;
     private TradeJournal tradeJournal;
     private MonitoringServer monitor;
@@ -49,10 +55,14 @@ public class EWrapperImpl implements EWrapper {
 //    );
 
     //! [socket_init]
-    public EWrapperImpl(RequestTrackerManager requestTrackerManager, IBKRConnection ibkrConnection) {
+    public EWrapperImpl(RequestTrackerManager requestTrackerManager, QuoteCache quoteCache, BarStore barStore,
+                        AccountMirror accountMirror, IBKRConnection ibkrConnection) {
         readerSignal = new EJavaSignal();
         clientSocket = new EClientSocket(this, readerSignal);
         this.requestTrackerManager = requestTrackerManager;
+        this.quoteCache = quoteCache;
+        this.barStore = barStore;
+        this.accountMirror = accountMirror;
         this.ibkrConnection = ibkrConnection;
     }
     //! [socket_init]
@@ -117,7 +127,11 @@ public class EWrapperImpl implements EWrapper {
     @Override
     public void tickPrice(int tickerId, int field, double price, TickAttrib attribs) {
         //market data  -> tick uses this
-        //only work when snapshot == True now
+        // Streaming subscriptions go to the quote cache, snapshot requests to the tracker
+        if (quoteCache.isStreaming(tickerId)) {
+            quoteCache.onTickPrice(tickerId, field, price, attribs);
+            return;
+        }
 
         RequestTracker<TickPriceOutput> tickPriceTracker = requestTrackerManager.getTracker(TickPriceOutput.class);
 
@@ -135,6 +149,10 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void tickSize(int tickerId, int field, Decimal size) {
+        if (quoteCache.isStreaming(tickerId)) {
+            quoteCache.onTickSize(tickerId, field, size);
+            return;
+        }
         log.trace("Tick Size: tickerId={}, field={}, size={}", tickerId, field, size);
     }
 
@@ -146,6 +164,10 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void tickGeneric(int tickerId, int tickType, double value) {
+        if (quoteCache.isStreaming(tickerId)) {
+            quoteCache.onTickGeneric(tickerId, tickType, value);
+            return;
+        }
         log.trace("Tick Generic: tickerId={}, tickType={}, value={}", tickerId, tickType, value);
     }
 
@@ -167,6 +189,14 @@ public class EWrapperImpl implements EWrapper {
         // Log to both regular log and order audit log
         orderLog.info("ORDER_STATUS | orderId={} | status={} | filled={} | remaining={} | avgFillPrice={} | lastFillPrice={} | parentId={} | whyHeld={}",
                 orderId, status, filled, remaining, avgFillPrice, lastFillPrice, parentId, whyHeld);
+        accountMirror.onOrderStatus(orderId, status);
+        if (ibkrConnection != null) {
+            ibkrConnection.onOrderStatus(orderId);
+        }
+        MonitoringServer m = monitor;
+        if (m != null) {
+            m.onOrderStatus(orderId, status, filled, remaining, avgFillPrice);
+        }
 
 //        // Debug level for regular logs
 //        log.debug("Order status update: orderId={}, status={}, filled={}, remaining={}",
@@ -185,6 +215,7 @@ public class EWrapperImpl implements EWrapper {
                 .build();
 
         orderOutputTracker.add(Constants.OPEN_ORDERS_REQ_ID, orderOutput);
+        accountMirror.onOpenOrder(orderId, contract, order, orderState);
 
         if (tradeJournal != null) {
             tradeJournal.recordOrderMeta(orderId, order.orderRef(), contract.symbol());
@@ -197,6 +228,7 @@ public class EWrapperImpl implements EWrapper {
     public void openOrderEnd() {
         RequestTracker<OrderOutput> orderOutputTracker = requestTrackerManager.getTracker(OrderOutput.class);
         orderOutputTracker.complete(Constants.OPEN_ORDERS_REQ_ID);
+        accountMirror.onOpenOrderEnd();
 //        System.out.println("Open Order End: " + EWrapperMsgGenerator.openOrderEnd());
     }
     //! [openorderend]
@@ -211,6 +243,7 @@ public class EWrapperImpl implements EWrapper {
                                 double unrealizedPNL, double realizedPNL, String accountName) {
         log.debug("Portfolio update: symbol={}, position={}, marketValue={}, unrealizedPNL={}",
                 contract.symbol(), position, marketValue, unrealizedPNL);
+        accountMirror.onPortfolio(contract, position, marketPrice, marketValue, averageCost, unrealizedPNL, realizedPNL, accountName);
     }
 
     @Override
@@ -315,6 +348,9 @@ public class EWrapperImpl implements EWrapper {
     @Override
     public void managedAccounts(String accountsList) {
         log.info("Managed accounts: {}", accountsList);
+        if (ibkrConnection != null) {
+            ibkrConnection.setManagedAccounts(accountsList);
+        }
     }
 
     @Override
@@ -324,6 +360,10 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void historicalData(int reqId, Bar bar) {
+        if (barStore.isStreaming(reqId)) {
+            barStore.onBar(reqId, bar);
+            return;
+        }
         RequestTracker<Bar> historicalTracker = requestTrackerManager.getTracker(Bar.class);
         historicalTracker.add(reqId, bar);
         log.trace("HistoricalData reqId={}: time={}, O={}, H={}, L={}, C={}, V={}",
@@ -332,6 +372,11 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
+        if (barStore.isStreaming(reqId)) {
+            barStore.onSeeded(reqId);
+            log.debug("Live bar seed complete: reqId={}, range={} to {}", reqId, startDateStr, endDateStr);
+            return;
+        }
         RequestTracker<Bar> historicalTracker = requestTrackerManager.getTracker(Bar.class);
         historicalTracker.complete(reqId);
         log.debug("HistoricalData complete: reqId={}, range={} to {}", reqId, startDateStr, endDateStr);
@@ -397,7 +442,11 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void marketDataType(int reqId, int marketDataType) {
+        int previous = this.currentMarketDataType;
         this.currentMarketDataType = marketDataType;
+        if (previous != marketDataType && ibkrConnection != null) {
+            ibkrConnection.fireStateChanged();
+        }
         String typeName = switch (marketDataType) {
             case 1 -> "REALTIME";
             case 2 -> "FROZEN";
@@ -454,6 +503,7 @@ public class EWrapperImpl implements EWrapper {
                 .avgCost(avgCost)
                 .build();
         positionTracker.add(Constants.POSITIONS_REQ_ID, positionOutput);
+        accountMirror.onPosition(account, contract, pos, avgCost);
 //        System.out.println(EWrapperMsgGenerator.position(account, contract, pos, avgCost));
     }
     //! [position]
@@ -463,6 +513,7 @@ public class EWrapperImpl implements EWrapper {
     public void positionEnd() {
         RequestTracker<PositionOutput> positionTracker = requestTrackerManager.getTracker(PositionOutput.class);
         positionTracker.complete(Constants.POSITIONS_REQ_ID);
+        accountMirror.onPositionEnd();
 //        System.out.println("Position End: " + EWrapperMsgGenerator.positionEnd());
     }
     //! [positionend]
@@ -470,6 +521,10 @@ public class EWrapperImpl implements EWrapper {
     //! [accountsummary]
     @Override
     public void accountSummary(int reqId, String account, String tag, String value, String currency) {
+        if (reqId == Constants.ACCOUNT_MIRROR_REQ_ID) {
+            accountMirror.onAccountSummary(account, tag, value, currency);
+            return;
+        }
         RequestTracker<AccountSummaryOutput> accountSummaryTracker = requestTrackerManager.getTracker(AccountSummaryOutput.class);
         AccountSummaryOutput accountSummaryOutput = AccountSummaryOutput.builder()
                 .account(account)
@@ -486,6 +541,10 @@ public class EWrapperImpl implements EWrapper {
     //! [accountsummaryend]
     @Override
     public void accountSummaryEnd(int reqId) {
+        if (reqId == Constants.ACCOUNT_MIRROR_REQ_ID) {
+            accountMirror.onAccountSummaryEnd();
+            return;
+        }
         RequestTracker<AccountSummaryOutput> accountSummaryTracker = requestTrackerManager.getTracker(AccountSummaryOutput.class);
         accountSummaryTracker.complete(reqId);
 
@@ -566,6 +625,15 @@ public class EWrapperImpl implements EWrapper {
             }
         }
 
+        // Rejected streaming quote subscription (e.g. 200 no security definition, 354 not subscribed)
+        if (errorCode < 2100 && quoteCache.isStreaming(id)) {
+            quoteCache.fail(id, errorCode + " " + errorMsg);
+        }
+        // Rejected live bar subscription (e.g. 162 pacing violation / no data)
+        if (errorCode < 2100 && barStore.isStreaming(id)) {
+            barStore.fail(id, errorCode + " " + errorMsg);
+        }
+
         // Categorize errors by code ranges for appropriate log levels
         // 2100-2169: Warnings (connectivity, market data farm connections)
         // 10000+: System messages (often informational)
@@ -711,6 +779,7 @@ public class EWrapperImpl implements EWrapper {
 
     @Override
     public void historicalDataUpdate(int reqId, Bar bar) {
+        barStore.onUpdate(reqId, bar);
         log.trace("Historical Data Update: reqId={}, time={}, C={}", reqId, bar.time(), bar.close());
     }
 
@@ -1,29 +1,48 @@
 package ibkr;
 
 import com.ib.client.*;
+import data.AccountMirror;
+import data.BarArchive;
+import data.BarSeries;
+import data.BarStore;
+import data.ContractDetailsCache;
+import data.ContractDetailsDatabase;
+import data.QuoteCache;
 import data.RequestTracker;
 import data.RequestTrackerManager;
+import data.SingleFlight;
 import ibkr.model.*;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
 import monitoring.MonitoringServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import trade.TradeJournal;
 import util.Constants;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
-public class IBKRConnection {
+public class IBKRConnection implements Broker {
 
     private EWrapperImpl eWrapper;
-    EJavaSignal eSignal = new EJavaSignal();
+    TimedReaderSignal eSignal = new TimedReaderSignal();
     private EReader reader;
     private final EClientSocket client;
     private final RequestTrackerManager requestTrackerManager = new RequestTrackerManager();
+    private final QuoteCache quoteCache = new QuoteCache();
+    private final BarStore barStore = new BarStore();
+    private final RequestScheduler scheduler = new RequestScheduler();
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final ContractDetailsCache contractDetailsCache = new ContractDetailsCache();
+    private final AccountMirror accountMirror = new AccountMirror();
     private static final Logger log = LoggerFactory.getLogger(IBKRConnection.class);
 
     // Connection state management
@@ -36,12 +55,16 @@ public class IBKRConnection {
     }
 
     private volatile MonitoringServer monitor;
+    // Run when the connection state, the account mirror or the market data type changes
+    private final List<Runnable> stateListeners = new CopyOnWriteArrayList<>();
 
     private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
     private final AtomicBoolean isReconnecting = new AtomicBoolean(false);
     private static final int MAX_RECONNECT_ATTEMPTS = 10;
     private static final int[] RECONNECT_DELAYS_MS = {1000, 2000, 4000, 8000, 16000, 30000};
     private volatile boolean manualDisconnect = false;
+    // Single managed account (from managedAccounts), used for the portfolio subscription; null for FA logins
+    private volatile String managedAccount;
 
     // Connection generation counter to detect stale callbacks from old threads
     private final AtomicInteger connectionGeneration = new AtomicInteger(0);
@@ -49,15 +72,74 @@ public class IBKRConnection {
     private volatile long lastConnectTime = 0;
     private static final long RECONNECT_COOLDOWN_MS = 5000; // Ignore disconnects within 5s of connect
 
+    // IBKR default is 100 simultaneous market data lines; leave headroom for snapshots and manual TWS use
+    private static final int MAX_QUOTE_LINES = 50;
+    // Timeout applied to every tracked request (blocking and async)
+    private static final int REQUEST_TIMEOUT_SECONDS = 10;
+    // Concurrent keepUpToDate historical subscriptions (each one also counts against market data lines)
+    private static final int MAX_LIVE_BAR_SUBSCRIPTIONS = 30;
+    // Positions/open orders results younger than this are reused instead of issuing another fixed-reqId request
+    private static final long FIXED_ID_RESULT_MAX_AGE_MS = 2000;
+
+    // orderId -> System.nanoTime() when placeOrder was sent, until its first orderStatus
+    private final ConcurrentHashMap<Integer, Long> orderSentNanos = new ConcurrentHashMap<>();
+    // Orders never acknowledged (rejected before any orderStatus) are forgotten after this long
+    private static final long ORDER_ACK_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int ORDER_ACK_PRUNE_SIZE = 256;
+
+    private final LatencyHistogram orderAckLatency = Metrics.histogram("ibkr_order_ack_seconds",
+            "Time from sending placeOrder to the first orderStatus for the order");
+    private final LatencyHistogram readerLag = Metrics.histogram("ibkr_reader_lag_seconds",
+            "Time a TWS message waits in the EReader queue before the processing thread picks it up");
+
     public IBKRConnection() {
-        eWrapper = new EWrapperImpl(requestTrackerManager, this);
+        eWrapper = new EWrapperImpl(requestTrackerManager, quoteCache, barStore, accountMirror, this);
         client = new EClientSocket( eWrapper, eSignal);
+        accountMirror.setChangeListener(this::fireStateChanged);
+    }
+
+    @Override
+    public Clock clock() {
+        return Constants.EASTERN_CLOCK;
     }
 
     public ConnectionState getConnectionState() {
         return connectionState;
     }
 
+    private void setConnectionState(ConnectionState state) {
+        ConnectionState previous = connectionState;
+        connectionState = state;
+        if (previous == state) {
+            return;
+        }
+        MonitoringServer m = monitor;
+        if (m != null) {
+            m.onConnectionState(state);
+        }
+        fireStateChanged();
+    }
+
+    /**
+     * Calls {@code listener} whenever the connection state, the account mirror or the market data
+     * type changes, so views can redraw from {@link #getAccountSnapshot()} instead of polling TWS.
+     * Runs on TWS and connection threads (for mirror changes, under the mirror's lock): the listener
+     * must only schedule work.
+     */
+    public void addStateListener(Runnable listener) {
+        stateListeners.add(listener);
+    }
+
+    void fireStateChanged() {
+        for (Runnable listener : stateListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("State listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
     public boolean isConnected() {
         return client != null && client.isConnected() &&
                connectionState == ConnectionState.CONNECTED;
@@ -68,7 +150,7 @@ public class IBKRConnection {
     }
 
     public void onConnect() throws InterruptedException, ExecutionException {
-        connectionState = ConnectionState.CONNECTING;
+        setConnectionState(ConnectionState.CONNECTING);
         manualDisconnect = false;
 
         // If already connected, disconnect first to avoid "Already connected" error
@@ -87,7 +169,6 @@ public class IBKRConnection {
 
         log.info("Attempting to connect to IB Gateway at {}:{} with clientId={}", host, port, clientId);
 
-        client.setConnectOptions("+PACEAPI");
         client.optionalCapabilities("");
 
         //7497 for paper trading, 7496 for live
@@ -115,6 +196,10 @@ public class IBKRConnection {
             log.debug("Message processing thread started");
             while (client.isConnected()) {
                 eSignal.waitForSignal();
+                long lag = eSignal.takeLagNanos();
+                if (lag >= 0) {
+                    readerLag.recordNanos(lag);
+                }
                 try {
                     reader.processMsgs();
                 } catch (Exception e) {
@@ -137,8 +222,22 @@ public class IBKRConnection {
         int gen = connectionGeneration.incrementAndGet();
         lastConnectTime = System.currentTimeMillis();
 
-        connectionState = ConnectionState.CONNECTED;
+        setConnectionState(ConnectionState.CONNECTED);
         log.info("Connection fully established, state: {}, generation: {}", connectionState, gen);
+
+        // Live bar subscriptions are re-seeded lazily on the next read
+        barStore.clear();
+
+        startAccountMirror();
+
+        // Market data subscriptions do not survive a reconnect - re-issue them
+        List<Contract> quoteContracts = quoteCache.resetForReconnect();
+        if (!quoteContracts.isEmpty()) {
+            log.info("Re-subscribing {} streaming quotes after connect", quoteContracts.size());
+            for (Contract contract : quoteContracts) {
+                subscribeQuotes(contract);
+            }
+        }
     }
 
     private void processMessages() {
@@ -156,7 +255,7 @@ public class IBKRConnection {
     public void onDisconnect() {
         log.info("Disconnecting from TWS...");
         manualDisconnect = true;
-        connectionState = ConnectionState.DISCONNECTED;
+        setConnectionState(ConnectionState.DISCONNECTED);
         client.eDisconnect();
         log.info("Disconnected from TWS");
     }
@@ -189,7 +288,7 @@ public class IBKRConnection {
         }
 
         log.warn("Connection loss detected, initiating reconnection sequence");
-        connectionState = ConnectionState.RECONNECTING;
+        setConnectionState(ConnectionState.RECONNECTING);
 
         // Start reconnection in separate thread (don't block callback)
         new Thread(this::attemptReconnection, "IBKR-Reconnect").start();
@@ -214,7 +313,7 @@ public class IBKRConnection {
 
         // Cancel any pending requests with corrupted state
         requestTrackerManager.cancelAllPending("Connection restored - cleaning up stale requests");
-        connectionState = ConnectionState.RECONNECTING;
+        setConnectionState(ConnectionState.RECONNECTING);
 
         new Thread(() -> {
             try {
@@ -231,7 +330,7 @@ public class IBKRConnection {
 
             } catch (Exception e) {
                 log.error("Clean reconnect failed after IBKR auto-restore: {}", e.getMessage());
-                connectionState = ConnectionState.FAILED;
+                setConnectionState(ConnectionState.FAILED);
             } finally {
                 isReconnecting.set(false);
             }
@@ -250,7 +349,7 @@ public class IBKRConnection {
                 LocalTime now = Constants.timeNow();
                 if (now.isBefore(LocalTime.of(4, 0)) || now.isAfter(LocalTime.of(20, 0))) {
                     log.warn("Outside extended market hours (4 AM - 8 PM ET), stopping reconnection attempts");
-                    connectionState = ConnectionState.FAILED;
+                    setConnectionState(ConnectionState.FAILED);
                     return;
                 }
 
@@ -288,7 +387,7 @@ public class IBKRConnection {
                     }
                     if (attempt >= MAX_RECONNECT_ATTEMPTS) {
                         log.error("Maximum reconnection attempts ({}) reached, giving up", MAX_RECONNECT_ATTEMPTS);
-                        connectionState = ConnectionState.FAILED;
+                        setConnectionState(ConnectionState.FAILED);
                         if (monitor != null) monitor.sendAlert("🔴 Reconnection FAILED after " + MAX_RECONNECT_ATTEMPTS + " attempts");
                     }
                 }
@@ -313,6 +412,19 @@ public class IBKRConnection {
     }
 
     public List<TickPriceOutput> reqMarketData(MarketDataInput marketDataInput) throws ExecutionException, InterruptedException, TimeoutException {
+        return await(reqMarketDataAsync(marketDataInput));
+    }
+
+    public CompletableFuture<List<TickPriceOutput>> reqMarketDataAsync(MarketDataInput marketDataInput) {
+        if (!marketDataInput.isSnapshot()) {
+            return sendMarketDataAsync(marketDataInput);
+        }
+        String key = "mktdata|" + contractKey(marketDataInput.getContract()) + "|" + marketDataInput.getGenericTickList()
+                + "|" + marketDataInput.isRegulatorySnapshot();
+        return singleFlight.execute(key, () -> sendMarketDataAsync(marketDataInput));
+    }
+
+    private CompletableFuture<List<TickPriceOutput>> sendMarketDataAsync(MarketDataInput marketDataInput) {
         String symbol = marketDataInput.getContract().symbol();
         log.debug("[{}] Requesting market data (snapshot={})", symbol, marketDataInput.isSnapshot());
 
@@ -322,25 +434,89 @@ public class IBKRConnection {
 
         tickPriceTracker.start(reqId, completableFuture);
 
-        client.reqMktData(reqId,
-                marketDataInput.getContract(),
-                marketDataInput.getGenericTickList(),
-                marketDataInput.isSnapshot(),
-                marketDataInput.isRegulatorySnapshot(),
-                marketDataInput.getTagValues());
+        scheduler.submit(RequestScheduler.Priority.QUOTE, null, completableFuture, REQUEST_TIMEOUT_SECONDS,
+                () -> client.reqMktData(reqId,
+                        marketDataInput.getContract(),
+                        marketDataInput.getGenericTickList(),
+                        marketDataInput.isSnapshot(),
+                        marketDataInput.isRegulatorySnapshot(),
+                        marketDataInput.getTagValues()));
+
+        return withCleanup(completableFuture, tickPriceTracker, reqId, (result, ex) -> {
+            if (ex instanceof TimeoutException) {
+                log.warn("[{}] Market data request timed out after {} seconds", symbol, REQUEST_TIMEOUT_SECONDS);
+            } else if (result != null) {
+                log.debug("[{}] Received {} tick prices", symbol, result.size());
+            }
+        });
+    }
+
+    /**
+     * Returns the streaming L1 quote for {@code contract}, subscribing on first use.
+     * Once the subscription has a bid and ask this is an O(1) cache read with no network round trip;
+     * only the first call for a symbol blocks (up to 10 seconds) waiting for the initial ticks.
+     */
+    @Override
+    public Quote reqQuote(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
+        String symbol = contract.symbol();
+        Quote cached = quoteCache.get(symbol);
+        if (cached != null && cached.hasBidAsk()) {
+            return cached;
+        }
 
+        subscribeQuotes(contract);
+        CompletableFuture<Quote> firstQuote = quoteCache.awaitFirstQuote(symbol);
+        if (firstQuote == null) {
+            throw new ExecutionException("Quote subscription for " + symbol + " was rejected", null);
+        }
         try {
-            List<TickPriceOutput> result = completableFuture.get(10, TimeUnit.SECONDS);
-            log.debug("[{}] Received {} tick prices", symbol, result.size());
-            return result;
+            Quote quote = firstQuote.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            log.debug("[{}] First streaming quote: bid={}, ask={}, last={}", symbol, quote.getBid(), quote.getAsk(), quote.getLast());
+            return quote;
         } catch (TimeoutException e) {
-            tickPriceTracker.timeout(reqId);
-            log.warn("[{}] Market data request timed out after 10 seconds", symbol);
+            log.warn("[{}] No streaming quote received within {} seconds", symbol, REQUEST_TIMEOUT_SECONDS);
             throw e;
         }
     }
 
+    /** Starts a streaming (non-snapshot) market data subscription feeding the quote cache. No-op if already subscribed. */
+    public synchronized void subscribeQuotes(Contract contract) {
+        if (quoteCache.isSubscribed(contract.symbol())) {
+            return;
+        }
+        if (quoteCache.size() >= MAX_QUOTE_LINES) {
+            String evicted = quoteCache.leastRecentlyUsed();
+            log.info("Quote cache at capacity ({}), unsubscribing least recently used: {}", MAX_QUOTE_LINES, evicted);
+            unsubscribeQuotes(evicted);
+        }
+        int reqId = quoteCache.register(contract);
+        if (reqId < 0) {
+            return;
+        }
+        log.debug("[{}] Subscribing to streaming quotes (reqId={})", contract.symbol(), reqId);
+        scheduler.submit(RequestScheduler.Priority.QUOTE,
+                () -> client.reqMktData(reqId, contract, "", false, false, null));
+    }
+
+    public synchronized void unsubscribeQuotes(String symbol) {
+        int reqId = quoteCache.remove(symbol);
+        if (reqId >= 0) {
+            log.debug("[{}] Cancelling streaming quotes (reqId={})", symbol, reqId);
+            scheduler.submit(RequestScheduler.Priority.ORDER, () -> client.cancelMktData(reqId));
+        }
+    }
+
     public List<Bar> reqHistoricalData(HistoricalDataInput historicalDataInput) throws ExecutionException, InterruptedException, TimeoutException {
+        return await(reqHistoricalDataAsync(historicalDataInput));
+    }
+
+    public CompletableFuture<List<Bar>> reqHistoricalDataAsync(HistoricalDataInput historicalDataInput) {
+        String key = "history|" + historicalPacing(historicalDataInput).requestKey() + "|"
+                + historicalDataInput.getFormatData();
+        return singleFlight.execute(key, () -> sendHistoricalDataAsync(historicalDataInput));
+    }
+
+    private CompletableFuture<List<Bar>> sendHistoricalDataAsync(HistoricalDataInput historicalDataInput) {
         String symbol = historicalDataInput.getContract().symbol();
         log.debug("[{}] Requesting historical data: duration={}, barSize={}",
                 symbol, historicalDataInput.getDurationStr(), historicalDataInput.getBarSize());
@@ -350,28 +526,134 @@ public class IBKRConnection {
         CompletableFuture<List<Bar>> completableFuture = new CompletableFuture<>();
         historicalTracker.start(reqId, completableFuture);
 
-        client.reqHistoricalData(reqId, historicalDataInput.getContract(),
-                historicalDataInput.getEndDateTime(),
-                historicalDataInput.getDurationStr(),
-                historicalDataInput.getBarSize().toString(),
-                historicalDataInput.getWhatToShow().toString(),
-                historicalDataInput.getUseRth().ordinal(),
-                historicalDataInput.getFormatData().getValue(),
-                historicalDataInput.isKeepUpToDate(),
-                historicalDataInput.getChartOptions());
+        scheduler.submit(RequestScheduler.Priority.HISTORY, historicalPacing(historicalDataInput), completableFuture, REQUEST_TIMEOUT_SECONDS,
+                () -> client.reqHistoricalData(reqId, historicalDataInput.getContract(),
+                        historicalDataInput.getEndDateTime(),
+                        historicalDataInput.getDurationStr(),
+                        historicalDataInput.getBarSize().toString(),
+                        historicalDataInput.getWhatToShow().toString(),
+                        historicalDataInput.getUseRth().ordinal(),
+                        historicalDataInput.getFormatData().getValue(),
+                        historicalDataInput.isKeepUpToDate(),
+                        historicalDataInput.getChartOptions()));
+
+        return withCleanup(completableFuture, historicalTracker, reqId, (result, ex) -> {
+            if (ex instanceof TimeoutException) {
+                log.warn("[{}] Historical data request timed out after {} seconds", symbol, REQUEST_TIMEOUT_SECONDS);
+            } else if (result != null) {
+                log.debug("[{}] Received {} historical bars", symbol, result.size());
+            }
+        });
+    }
+
+    /**
+     * Returns the live intraday series for {@code historicalDataInput}, kept current by a
+     * keepUpToDate=true subscription. The first call per symbol/bar settings (and the first call of
+     * each new session) downloads the history once; later calls copy the in-memory series with no I/O.
+     * {@code endDateTime} must be empty, as required by IBKR for keepUpToDate requests.
+     */
+    @Override
+    public BarSeries reqLiveBars(HistoricalDataInput historicalDataInput) throws ExecutionException, InterruptedException, TimeoutException {
+        Contract contract = historicalDataInput.getContract();
+        String symbol = contract.symbol();
+        String key = symbol + "|" + historicalDataInput.getBarSize() + "|"
+                + historicalDataInput.getWhatToShow() + "|" + historicalDataInput.getUseRth();
+
+        LocalDate today = LocalDate.now(Constants.EASTERN);
+        LocalDate sessionDate = barStore.sessionDate(key);
+        if (sessionDate != null && !sessionDate.equals(today)) {
+            log.info("[{}] Live bar series is from {} - re-seeding for new session", symbol, sessionDate);
+            cancelLiveBars(key);
+        }
 
+        BarSeries cached = barStore.snapshot(key);
+        if (!cached.isEmpty()) {
+            return cached;
+        }
+
+        subscribeLiveBars(key, historicalDataInput, today);
+        CompletableFuture<Void> seeded = barStore.awaitSeeded(key);
+        if (seeded == null) {
+            throw new ExecutionException("Live bar subscription for " + symbol + " was rejected", null);
+        }
         try {
-            List<Bar> result = completableFuture.get(10, TimeUnit.SECONDS);
-            log.debug("[{}] Received {} historical bars", symbol, result.size());
-            return result;
+            seeded.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (TimeoutException e) {
-            historicalTracker.timeout(reqId);
-            log.warn("[{}] Historical data request timed out after 10 seconds", symbol);
+            log.warn("[{}] Live bar seed request timed out after {} seconds", symbol, REQUEST_TIMEOUT_SECONDS);
+            cancelLiveBars(key);
             throw e;
         }
+        BarSeries result = barStore.snapshot(key);
+        log.debug("[{}] Seeded live bar series with {} bars", symbol, result.size());
+        return result;
+    }
+
+    private synchronized void subscribeLiveBars(String key, HistoricalDataInput historicalDataInput, LocalDate sessionDate) {
+        if (barStore.isSubscribed(key)) {
+            return;
+        }
+        if (barStore.size() >= MAX_LIVE_BAR_SUBSCRIPTIONS) {
+            String evicted = barStore.leastRecentlyUsed();
+            log.info("Live bar store at capacity ({}), cancelling least recently used: {}", MAX_LIVE_BAR_SUBSCRIPTIONS, evicted);
+            cancelLiveBars(evicted);
+        }
+        Contract contract = historicalDataInput.getContract();
+        boolean archived = historicalDataInput.getBarSize() == Types.BarSize._1_min
+                && historicalDataInput.getWhatToShow() == Types.WhatToShow.TRADES;
+        int reqId = barStore.register(key, contract, sessionDate, archived);
+        if (reqId < 0) {
+            return;
+        }
+        log.debug("[{}] Requesting live bars: duration={}, barSize={} (reqId={})",
+                contract.symbol(), historicalDataInput.getDurationStr(), historicalDataInput.getBarSize(), reqId);
+        // Seed wait is bounded by the caller (reqLiveBars), so no scheduler timeout here
+        scheduler.submit(RequestScheduler.Priority.HISTORY, historicalPacing(historicalDataInput), barStore.awaitSeeded(key), 0,
+                () -> client.reqHistoricalData(reqId, contract,
+                        "",
+                        historicalDataInput.getDurationStr(),
+                        historicalDataInput.getBarSize().toString(),
+                        historicalDataInput.getWhatToShow().toString(),
+                        historicalDataInput.getUseRth().ordinal(),
+                        historicalDataInput.getFormatData().getValue(),
+                        true,
+                        historicalDataInput.getChartOptions()));
+    }
+
+    private synchronized void cancelLiveBars(String key) {
+        int reqId = barStore.remove(key);
+        if (reqId >= 0) {
+            log.debug("Cancelling live bars {} (reqId={})", key, reqId);
+            scheduler.submit(RequestScheduler.Priority.ORDER, () -> client.cancelHistoricalData(reqId));
+        }
     }
 
+    @Override
     public ContractDetails reqContractDetails(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
+        return await(reqContractDetailsAsync(contract));
+    }
+
+    /**
+     * Served from the conId-keyed contract details cache when possible. A hit whose trading hours
+     * were fetched on an earlier day is returned immediately and refreshed in the background.
+     */
+    public CompletableFuture<ContractDetails> reqContractDetailsAsync(Contract contract) {
+        String key = "details|" + contractKey(contract);
+        ContractDetailsCache.Lookup cached = contractDetailsCache.lookup(contract);
+        if (cached != null) {
+            if (cached.refreshDue()) {
+                log.debug("[{}] Refreshing cached contract details for new session", contract.symbol());
+                singleFlight.execute(key, () -> sendContractDetailsAsync(contract))
+                        .exceptionally(ex -> {
+                            log.warn("[{}] Background contract details refresh failed: {}", contract.symbol(), ex.getMessage());
+                            return null;
+                        });
+            }
+            return CompletableFuture.completedFuture(cached.details());
+        }
+        return singleFlight.execute(key, () -> sendContractDetailsAsync(contract));
+    }
+
+    private CompletableFuture<ContractDetails> sendContractDetailsAsync(Contract contract) {
         log.debug("[{}] Requesting contract details", contract.symbol());
 
         RequestTracker<ContractDetails> contractDetailsTracker = requestTrackerManager.getTracker(ContractDetails.class);
@@ -379,27 +661,35 @@ public class IBKRConnection {
         CompletableFuture<List<ContractDetails>> completableFuture = new CompletableFuture<>();
         contractDetailsTracker.start(reqId, completableFuture);
 
-        client.reqContractDetails(reqId, contract);
+        scheduler.submit(RequestScheduler.Priority.QUOTE, null, completableFuture, REQUEST_TIMEOUT_SECONDS,
+                () -> client.reqContractDetails(reqId, contract));
 
-        List<ContractDetails> contractDetails;
-        try {
-            contractDetails = completableFuture.get(10, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-            contractDetailsTracker.timeout(reqId);
-            log.warn("[{}] Contract details request timed out after 10 seconds", contract.symbol());
-            throw e;
-        }
+        return withCleanup(completableFuture, contractDetailsTracker, reqId, (result, ex) -> {
+            if (ex instanceof TimeoutException) {
+                log.warn("[{}] Contract details request timed out after {} seconds", contract.symbol(), REQUEST_TIMEOUT_SECONDS);
+            }
+        }).thenApply(contractDetails -> {
+            if (contractDetails == null || contractDetails.isEmpty()) {
+                log.error("[{}] No contract details found", contract.symbol());
+                throw new IllegalStateException("No contract details found for: " + contract.symbol());
+            }
+            log.debug("[{}] Contract details received (conId={})", contract.symbol(), contractDetails.getFirst().conid());
+            contractDetailsCache.put(contractDetails.getFirst());
+            return contractDetails.getFirst();
+        });
+    }
 
-        if (contractDetails == null || contractDetails.isEmpty()) {
-            log.error("[{}] No contract details found", contract.symbol());
-            throw new IllegalStateException("No contract details found for: " + contract.symbol());
-        }
+    @Override
+    public List<ScanData> marketScan(ScannerSubscription scannerSubscription, List<TagValue> filterOptions) throws ExecutionException, InterruptedException, TimeoutException {
+        return await(marketScanAsync(scannerSubscription, filterOptions));
+    }
 
-        log.debug("[{}] Contract details received (conId={})", contract.symbol(), contractDetails.getFirst().conid());
-        return contractDetails.getFirst();
+    public CompletableFuture<List<ScanData>> marketScanAsync(ScannerSubscription scannerSubscription, List<TagValue> filterOptions) {
+        return singleFlight.execute(scanKey(scannerSubscription, filterOptions),
+                () -> sendMarketScanAsync(scannerSubscription, filterOptions));
     }
 
-    public List<ScanData> marketScan(ScannerSubscription scannerSubscription, List<TagValue> filterOptions) throws ExecutionException, InterruptedException, TimeoutException {
+    private CompletableFuture<List<ScanData>> sendMarketScanAsync(ScannerSubscription scannerSubscription, List<TagValue> filterOptions) {
         log.debug("Running market scan: code={}, rows={}", scannerSubscription.scanCode(), scannerSubscription.numberOfRows());
 
         RequestTracker<ScanData> scanDataTracker = requestTrackerManager.getTracker(ScanData.class);
@@ -407,32 +697,33 @@ public class IBKRConnection {
         CompletableFuture<List<ScanData>> completableFuture = new CompletableFuture<>();
         scanDataTracker.start(reqId, completableFuture);
 
-        client.reqScannerSubscription(reqId, scannerSubscription, new ArrayList<>(), filterOptions);
-        List<ScanData> results;
-        try {
-            results = completableFuture.get(10, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-            scanDataTracker.timeout(reqId);
-            log.warn("Market scan timed out after 10 seconds");
-            client.cancelScannerSubscription(reqId);
-            throw e;
-        }
-        client.cancelScannerSubscription(reqId);
-
-        log.debug("Market scan complete: {} results", results.size());
-        return results;
+        // Scanner requests are low priority but not subject to historical pacing
+        scheduler.submit(RequestScheduler.Priority.HISTORY, null, completableFuture, REQUEST_TIMEOUT_SECONDS,
+                () -> client.reqScannerSubscription(reqId, scannerSubscription, new ArrayList<>(), filterOptions));
+
+        return withCleanup(completableFuture, scanDataTracker, reqId, (results, ex) -> {
+            // Scanner subscriptions stay open until cancelled, whatever the outcome
+            scheduler.submit(RequestScheduler.Priority.ORDER, () -> client.cancelScannerSubscription(reqId));
+            if (ex instanceof TimeoutException) {
+                log.warn("Market scan timed out after {} seconds", REQUEST_TIMEOUT_SECONDS);
+            } else if (results != null) {
+                log.debug("Market scan complete: {} results", results.size());
+            }
+        });
     }
 
+    @Override
     public void placeOrder(Contract contract, Order order) {
         int orderId = eWrapper.getAndIncrementOrderId();
         log.info("Placing order: orderId={}, symbol={}, action={}, qty={}, type={}, price={}",
                 orderId, contract.symbol(), order.action(), order.totalQuantity(),
                 order.orderType(), order.lmtPrice());
 
-        client.placeOrder(orderId, contract, order);
-        log.debug("Order submitted to TWS: orderId={}", orderId);
+        scheduler.submit(RequestScheduler.Priority.ORDER, () -> sendOrder(orderId, contract, order));
+        log.debug("Order queued for TWS: orderId={}", orderId);
     }
 
+    @Override
     public void placeBracketOrders(Contract contract, Order parentOrder, Order childOrder1, Order childOrder2) {
         // Atomically reserve 3 sequential order IDs to prevent race conditions
         // This ensures bracket orders maintain proper parent-child relationships
@@ -449,72 +740,296 @@ public class IBKRConnection {
         childOrder1.parentId(parentOrderId);
         childOrder2.parentId(parentOrderId);
 
-        client.placeOrder(parentOrderId, contract, parentOrder);
-        client.placeOrder(childOrderId1, contract, childOrder1);
-        client.placeOrder(childOrderId2, contract, childOrder2);
+        // Same priority is FIFO, so the parent is always sent before its children
+        scheduler.submit(RequestScheduler.Priority.ORDER, () -> sendOrder(parentOrderId, contract, parentOrder));
+        scheduler.submit(RequestScheduler.Priority.ORDER, () -> sendOrder(childOrderId1, contract, childOrder1));
+        scheduler.submit(RequestScheduler.Priority.ORDER, () -> sendOrder(childOrderId2, contract, childOrder2));
+
+        log.info("Bracket orders queued for TWS for {}", contract.symbol());
+    }
+
+    /** Sends the order and starts its ack-latency clock. Runs on the scheduler's sender thread. */
+    private void sendOrder(int orderId, Contract contract, Order order) {
+        long now = System.nanoTime();
+        if (orderSentNanos.size() > ORDER_ACK_PRUNE_SIZE) {
+            orderSentNanos.values().removeIf(sent -> now - sent > ORDER_ACK_MAX_AGE_NANOS);
+        }
+        orderSentNanos.put(orderId, now);
+        client.placeOrder(orderId, contract, order);
+    }
 
-        log.info("Bracket orders submitted to TWS for {}", contract.symbol());
+    /** Called for every orderStatus; the first one for an order sent by this client records its ack latency. */
+    void onOrderStatus(int orderId) {
+        Long sent = orderSentNanos.remove(orderId);
+        if (sent != null) {
+            orderAckLatency.recordSince(sent);
+        }
     }
 
+    @Override
     public List<PositionOutput> reqPositions() throws ExecutionException, InterruptedException, TimeoutException {
+        return await(reqPositionsAsync());
+    }
+
+    /** Served from the account mirror once it is seeded; falls back to a wire request until then. */
+    public CompletableFuture<List<PositionOutput>> reqPositionsAsync() {
+        AccountMirror.Snapshot mirror = accountMirror.snapshot();
+        if (mirror.ready()) {
+            return CompletableFuture.completedFuture(mirror.positions());
+        }
+        return singleFlight.execute("positions", FIXED_ID_RESULT_MAX_AGE_MS, this::sendPositionsAsync);
+    }
+
+    /**
+     * Positions and open orders use fixed reqIds (TWS does not take one), so only one tracked request
+     * of each kind may be outstanding. Every caller goes through the single-flight layer, which joins
+     * the in-flight request or reuses a result younger than {@link #FIXED_ID_RESULT_MAX_AGE_MS}.
+     */
+    private CompletableFuture<List<PositionOutput>> sendPositionsAsync() {
         log.debug("Requesting all positions...");
         RequestTracker<PositionOutput> positionTracker = requestTrackerManager.getTracker(PositionOutput.class);
         CompletableFuture<List<PositionOutput>> completableFuture = new CompletableFuture<>();
         positionTracker.start(Constants.POSITIONS_REQ_ID, completableFuture);
 
-        client.reqPositions();
+        scheduler.submit(RequestScheduler.Priority.QUOTE, null, completableFuture, REQUEST_TIMEOUT_SECONDS,
+                client::reqPositions);
 
-        try {
-            List<PositionOutput> result = completableFuture.get(10, TimeUnit.SECONDS);
-            log.debug("Received {} positions", result.size());
-            return result;
-        } catch (TimeoutException e) {
-            positionTracker.timeout(Constants.POSITIONS_REQ_ID);
-            log.warn("Positions request timed out after 10 seconds");
-            throw e;
-        }
+        return withCleanup(completableFuture, positionTracker, Constants.POSITIONS_REQ_ID, (result, ex) -> {
+            if (ex instanceof TimeoutException) {
+                log.warn("Positions request timed out after {} seconds", REQUEST_TIMEOUT_SECONDS);
+            } else if (result != null) {
+                log.debug("Received {} positions", result.size());
+            }
+        });
     }
 
+    @Override
     public List<OrderOutput> reqAllOpenOrder() throws ExecutionException, InterruptedException, TimeoutException {
+        return await(reqAllOpenOrderAsync());
+    }
+
+    /**
+     * Always a wire request, never the mirror alone: the strategies' pre-entry check must see orders
+     * placed manually in TWS or by another client, which this client is not streamed. Concurrent calls
+     * share one request and a result younger than {@link #FIXED_ID_RESULT_MAX_AGE_MS} is reused; each
+     * dump also reconciles the mirror's open orders.
+     */
+    public CompletableFuture<List<OrderOutput>> reqAllOpenOrderAsync() {
+        return singleFlight.execute("openOrders", FIXED_ID_RESULT_MAX_AGE_MS, this::sendAllOpenOrderAsync);
+    }
+
+    private CompletableFuture<List<OrderOutput>> sendAllOpenOrderAsync() {
         log.debug("Requesting all open orders...");
         RequestTracker<OrderOutput> orderTracker = requestTrackerManager.getTracker(OrderOutput.class);
         CompletableFuture<List<OrderOutput>> completableFuture = new CompletableFuture<>();
         orderTracker.start(Constants.OPEN_ORDERS_REQ_ID, completableFuture);
 
-        client.reqAllOpenOrders();
+        scheduler.submit(RequestScheduler.Priority.QUOTE, null, completableFuture, REQUEST_TIMEOUT_SECONDS, () -> {
+            accountMirror.onOpenOrdersRequested();
+            client.reqAllOpenOrders();
+        });
 
-        try {
-            List<OrderOutput> result = completableFuture.get(10, TimeUnit.SECONDS);
-            log.debug("Received {} open orders", result.size());
-            return result;
-        } catch (TimeoutException e) {
-            orderTracker.timeout(Constants.OPEN_ORDERS_REQ_ID);
-            log.warn("Open orders request timed out after 10 seconds");
-            throw e;
-        }
+        return withCleanup(completableFuture, orderTracker, Constants.OPEN_ORDERS_REQ_ID, (result, ex) -> {
+            if (ex instanceof TimeoutException) {
+                log.warn("Open orders request timed out after {} seconds", REQUEST_TIMEOUT_SECONDS);
+            } else if (result != null) {
+                log.debug("Received {} open orders", result.size());
+            }
+        });
     }
 
+    @Override
     public List<AccountSummaryOutput> reqAccountSummary(String tags) throws ExecutionException, InterruptedException, TimeoutException {
+        return await(reqAccountSummaryAsync(tags));
+    }
+
+    /** Served from the account mirror when it is seeded and tracks every requested tag. */
+    public CompletableFuture<List<AccountSummaryOutput>> reqAccountSummaryAsync(String tags) {
+        AccountMirror.Snapshot mirror = accountMirror.snapshot();
+        if (mirror.ready()) {
+            List<AccountSummaryOutput> values = mirror.accountValues(tags);
+            if (values != null) {
+                return CompletableFuture.completedFuture(values);
+            }
+        }
+        return singleFlight.execute("account|" + tags, () -> sendAccountSummaryAsync(tags));
+    }
+
+    private CompletableFuture<List<AccountSummaryOutput>> sendAccountSummaryAsync(String tags) {
         log.debug("Requesting account summary for tags: {}", tags);
         RequestTracker<AccountSummaryOutput> accountSummaryTracker = requestTrackerManager.getTracker(AccountSummaryOutput.class);
         int reqId = accountSummaryTracker.nextReqId();
         CompletableFuture<List<AccountSummaryOutput>> completableFuture = new CompletableFuture<>();
         accountSummaryTracker.start(reqId, completableFuture);
 
-        client.reqAccountSummary(reqId, "All", tags);
-        List<AccountSummaryOutput> result;
+        scheduler.submit(RequestScheduler.Priority.QUOTE, null, completableFuture, REQUEST_TIMEOUT_SECONDS,
+                () -> client.reqAccountSummary(reqId, "All", tags));
+
+        return withCleanup(completableFuture, accountSummaryTracker, reqId, (result, ex) -> {
+            // Account summary is a subscription - always cancel it so it doesn't count against the 2-request limit
+            scheduler.submit(RequestScheduler.Priority.ORDER, () -> client.cancelAccountSummary(reqId));
+            if (ex instanceof TimeoutException) {
+                log.warn("Account summary request timed out after {} seconds", REQUEST_TIMEOUT_SECONDS);
+            } else if (result != null) {
+                log.debug("Received {} account summary entries", result.size());
+            }
+        });
+    }
+
+    // -------------------------------------------------------------------------
+    // Async helpers
+    // -------------------------------------------------------------------------
+
+    /**
+     * Registers cleanup for a tracked future (the timeout itself is applied by the scheduler when the
+     * request is sent). On timeout or caller cancellation the tracker entry is released so late callbacks
+     * are dropped; {@code onDone} runs for every outcome. Returns the same future so cancelling it also
+     * releases the tracker entry and, if still queued, stops the request from being sent.
+     * Callers of coalesced requests receive dependent copies (see {@link SingleFlight}), so a caller
+     * cancelling only detaches itself; the shared request runs until it completes or times out.
+     */
+    private static <T> CompletableFuture<List<T>> withCleanup(CompletableFuture<List<T>> future, RequestTracker<T> tracker,
+                                                              int reqId, BiConsumer<List<T>, Throwable> onDone) {
+        future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                tracker.timeout(reqId);
+            }
+            onDone.accept(result, ex);
+        });
+        return future;
+    }
+
+    /** Pacing identity for IBKR's historical rules: identical-request key and same-contract key. */
+    private static RequestScheduler.HistoricalPacing historicalPacing(HistoricalDataInput input) {
+        Contract contract = input.getContract();
+        String contractKey = contract.symbol() + "|" + contract.secType() + "|" + contract.exchange() + "|" + input.getWhatToShow();
+        String requestKey = contractKey + "|" + input.getEndDateTime() + "|" + input.getDurationStr() + "|"
+                + input.getBarSize() + "|" + input.getUseRth() + "|" + input.isKeepUpToDate();
+        return new RequestScheduler.HistoricalPacing(requestKey, contractKey);
+    }
+
+    /**
+     * Canonical contract identity for request coalescing. The conId is authoritative when set;
+     * otherwise the fields TWS uses to resolve the contract.
+     */
+    private static String contractKey(Contract contract) {
+        if (contract.conid() > 0) {
+            return "conId=" + contract.conid();
+        }
+        return contract.symbol() + "|" + contract.secType() + "|" + contract.exchange() + "|"
+                + contract.primaryExch() + "|" + contract.currency();
+    }
+
+    /** Canonical scanner descriptor: the subscription fields we set plus the filter tags, order-insensitive. */
+    private static String scanKey(ScannerSubscription sub, List<TagValue> filterOptions) {
+        StringBuilder key = new StringBuilder("scan|")
+                .append(sub.instrument()).append('|')
+                .append(sub.locationCode()).append('|')
+                .append(sub.scanCode()).append('|')
+                .append(sub.numberOfRows()).append('|')
+                .append(sub.abovePrice()).append('|')
+                .append(sub.belowPrice()).append('|')
+                .append(sub.aboveVolume()).append('|')
+                .append(sub.marketCapAbove()).append('|')
+                .append(sub.marketCapBelow()).append('|')
+                .append(sub.stockTypeFilter());
+        if (filterOptions != null) {
+            filterOptions.stream()
+                    .map(tv -> tv.m_tag + "=" + tv.m_value)
+                    .sorted()
+                    .forEach(tv -> key.append('|').append(tv));
+        }
+        return key.toString();
+    }
+
+    /** Wire requests actually issued through the single-flight layer. */
+    public long getIssuedRequestCount() {
+        return singleFlight.getIssuedCount();
+    }
+
+    /** Requests that joined an identical in-flight request instead of going to the wire. */
+    public long getCoalescedRequestCount() {
+        return singleFlight.getCoalescedCount();
+    }
+
+    /** Requests answered from a recent completed result (positions/open orders) with no wire request. */
+    public long getReusedRequestCount() {
+        return singleFlight.getReusedCount();
+    }
+
+    // -------------------------------------------------------------------------
+    // Account mirror
+    // -------------------------------------------------------------------------
+
+    /**
+     * Resets the account mirror and sends its seed requests. Positions, open orders and the account
+     * summary are subscriptions, so after the initial dump TWS keeps streaming updates into the mirror.
+     */
+    private void startAccountMirror() {
+        accountMirror.reset();
+        // Seed through the single-flight layer so the seed never races a caller's fixed-reqId request
+        singleFlight.execute("positions", this::sendPositionsAsync)
+                .exceptionally(ex -> {
+                    log.warn("Account mirror position seed failed: {}", ex.getMessage());
+                    return null;
+                });
+        singleFlight.execute("openOrders", this::sendAllOpenOrderAsync)
+                .exceptionally(ex -> {
+                    log.warn("Account mirror open order seed failed: {}", ex.getMessage());
+                    return null;
+                });
+        scheduler.submit(RequestScheduler.Priority.QUOTE,
+                () -> client.reqAccountSummary(Constants.ACCOUNT_MIRROR_REQ_ID, "All", AccountMirror.ACCOUNT_TAGS));
+        String account = managedAccount;
+        if (account != null) {
+            // Portfolio updates add market value and P&L to the mirrored positions
+            scheduler.submit(RequestScheduler.Priority.QUOTE, () -> client.reqAccountUpdates(true, account));
+        }
+        log.debug("Account mirror seed requests queued");
+    }
+
+    /** Consistent, versioned view of open orders, positions and account values. Check {@code ready()} before relying on it. */
+    public AccountMirror.Snapshot getAccountSnapshot() {
+        return accountMirror.snapshot();
+    }
+
+    void setManagedAccounts(String accountsList) {
+        String[] accounts = accountsList != null ? accountsList.split(",") : new String[0];
+        managedAccount = accounts.length == 1 && !accounts[0].isBlank() ? accounts[0].trim() : null;
+    }
+
+    public ContractDetailsCache.Stats getContractDetailsCacheStats() {
+        return contractDetailsCache.getStats();
+    }
+
+    /** Attaches persistent storage for the contract details cache and warms it. Call once on startup. */
+    public void setContractDetailsDatabase(ContractDetailsDatabase db) {
+        contractDetailsCache.setDatabase(db);
+    }
+
+    /** Archives live 1-min TRADES bars as they arrive; see {@link BarArchive}. */
+    public void setBarArchive(BarArchive archive) {
+        barStore.setArchive(archive);
+    }
+
+    public RequestScheduler.QueueStats[] getSchedulerStats() {
+        return scheduler.getQueueStats();
+    }
+
+    /**
+     * Blocks on an async request, unwrapping timeouts so blocking callers keep seeing
+     * {@link TimeoutException} as before. The request's own timeout only starts once the scheduler
+     * sends it, so the wait is bounded here by the longest the scheduler may queue it plus that timeout.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws ExecutionException, InterruptedException, TimeoutException {
         try {
-            result = completableFuture.get(10, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-            accountSummaryTracker.timeout(reqId);
-            log.warn("Account summary request timed out after 10 seconds");
-            client.cancelAccountSummary(reqId);
+            return future.get(RequestScheduler.MAX_QUEUE_WAIT_MS + REQUEST_TIMEOUT_SECONDS * 1000L, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException te) {
+                throw te;
+            }
             throw e;
         }
-        client.cancelAccountSummary(reqId);
-
-        log.debug("Received {} account summary entries", result.size());
-        return result;
     }
 
     public void setTradeJournal(TradeJournal j) {
@@ -536,13 +1051,14 @@ public class IBKRConnection {
         filter.lastNDays(lastNDays);
         int reqId = 1; // fixed reqId for execution history requests
         log.info("Requesting execution history (last {} day(s))...", lastNDays);
-        client.reqExecutions(reqId, filter);
+        scheduler.submit(RequestScheduler.Priority.QUOTE, () -> client.reqExecutions(reqId, filter));
     }
 
+    @Override
     public void closeAllOrders() {
         log.warn("Cancelling ALL open orders via global cancel");
-        client.reqGlobalCancel(new OrderCancel());
-        log.info("Global cancel request sent to TWS");
+        scheduler.submit(RequestScheduler.Priority.ORDER, () -> client.reqGlobalCancel(new OrderCancel()));
+        log.info("Global cancel request queued for TWS");
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+package ibkr;
+
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound request scheduler for IBKRConnection.
+ *
+ * All wire requests go through a single dispatcher thread that enforces IBKR's pacing rules
+ * deterministically instead of relying on +PACEAPI (which silently delays and causes our timeouts):
+ *   - overall message rate: 50 msgs/s (token bucket)
+ *   - historical data: 60 requests / 10 min, no identical request within 15 s,
+ *     at most 6 requests for the same contract within 2 s
+ *
+ * Requests are dispatched by priority (orders/cancels, then quotes/queries, then history),
+ * FIFO within a priority. The request timeout starts when a request is actually sent, so time
+ * spent queued for pacing does not count against it.
+ */
+public class RequestScheduler {
+    private static final Logger log = LoggerFactory.getLogger(RequestScheduler.class);
+
+    public enum Priority {
+        ORDER,      // placeOrder, cancels
+        QUOTE,      // market data, contract details, account/position queries
+        HISTORY     // historical data and scanner requests
+    }
+
+    /** Pacing identity of a historical data request; {@code null} for requests not under historical pacing. */
+    public record HistoricalPacing(String requestKey, String contractKey) {}
+
+    /** Per-priority queue wait statistics. */
+    public record QueueStats(Priority priority, int queued, long dispatched, long expired, long totalWaitMs, long maxWaitMs) {
+        public double avgWaitMs() {
+            return dispatched > 0 ? (double) totalWaitMs / dispatched : 0.0;
+        }
+    }
+
+    private static final int MAX_MSGS_PER_SECOND = 50;
+    private static final int HISTORICAL_MAX_PER_WINDOW = 60;
+    private static final long HISTORICAL_WINDOW_MS = 10 * 60 * 1000L;
+    private static final long IDENTICAL_REQUEST_MS = 15_000L;
+    private static final int SAME_CONTRACT_MAX = 6;
+    private static final long SAME_CONTRACT_WINDOW_MS = 2_000L;
+    // Requests queued longer than this are failed instead of being sent late. Kept well below the
+    // 60s strategy interval so a cycle never stalls on a request that was going to be stale anyway.
+    static final long MAX_QUEUE_WAIT_MS = 30_000L;
+    private static final long SLOW_DISPATCH_WARN_MS = 1_000L;
+
+    private record Task(Priority priority, HistoricalPacing pacing, CompletableFuture<?> future,
+                        long timeoutSeconds, Runnable send, long enqueuedAt) {}
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Priority, ArrayDeque<Task>> queues = new EnumMap<>(Priority.class);
+
+    // Global message token bucket
+    private double tokens = MAX_MSGS_PER_SECOND;
+    private long lastRefillNanos = System.nanoTime();
+
+    // Historical pacing state (dispatcher thread + lock)
+    private final ArrayDeque<Long> historicalSent = new ArrayDeque<>();
+    private final Map<String, Long> lastIdenticalSent = new HashMap<>();
+    private final Map<String, ArrayDeque<Long>> contractSent = new HashMap<>();
+
+    private final Map<Priority, AtomicLong> dispatchedCount = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> totalWaitMs = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> maxWaitMs = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> expiredCount = new EnumMap<>(Priority.class);
+    private final Map<Priority, LatencyHistogram> queueWait = new EnumMap<>(Priority.class);
+
+    private volatile boolean running = true;
+    private final Thread dispatcher;
+
+    public RequestScheduler() {
+        for (Priority p : Priority.values()) {
+            queues.put(p, new ArrayDeque<>());
+            dispatchedCount.put(p, new AtomicLong());
+            totalWaitMs.put(p, new AtomicLong());
+            maxWaitMs.put(p, new AtomicLong());
+            expiredCount.put(p, new AtomicLong());
+            queueWait.put(p, Metrics.histogram("ibkr_scheduler_queue_wait_seconds",
+                    "Time requests spent queued for pacing before being sent", "priority", p.name()));
+        }
+        dispatcher = new Thread(this::dispatchLoop, "IBKR-RequestScheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /** Queues a fire-and-forget wire request (orders, cancels, subscriptions). */
+    public void submit(Priority priority, Runnable send) {
+        submit(priority, null, null, 0, send);
+    }
+
+    /**
+     * Queues a wire request whose response completes {@code future}.
+     * The request is skipped if {@code future} is already done when its turn comes (cancelled, connection lost),
+     * and {@code future} is timed out {@code timeoutSeconds} after the request is sent.
+     */
+    public void submit(Priority priority, HistoricalPacing pacing, CompletableFuture<?> future,
+                       long timeoutSeconds, Runnable send) {
+        lock.lock();
+        try {
+            queues.get(priority).addLast(new Task(priority, pacing, future, timeoutSeconds, send, System.currentTimeMillis()));
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public QueueStats[] getQueueStats() {
+        lock.lock();
+        try {
+            QueueStats[] stats = new QueueStats[Priority.values().length];
+            for (Priority p : Priority.values()) {
+                stats[p.ordinal()] = new QueueStats(p, queues.get(p).size(),
+                        dispatchedCount.get(p).get(), expiredCount.get(p).get(),
+                        totalWaitMs.get(p).get(), maxWaitMs.get(p).get());
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+    }
+
+    // -------------------------------------------------------------------------
+    // Dispatcher
+    // -------------------------------------------------------------------------
+
+    private void dispatchLoop() {
+        while (running) {
+            Task task;
+            lock.lock();
+            try {
+                task = nextReadyTask();
+                if (task == null) {
+                    long waitMs = millisUntilNextReady();
+                    if (waitMs < 0) {
+                        changed.await();
+                    } else {
+                        changed.await(Math.max(1, waitMs), TimeUnit.MILLISECONDS);
+                    }
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                lock.unlock();
+            }
+            dispatch(task);
+        }
+        log.debug("Request scheduler stopped");
+    }
+
+    /** Removes and returns the highest-priority task that may be sent now, or {@code null}. Caller holds the lock. */
+    private Task nextReadyTask() {
+        long now = System.currentTimeMillis();
+        refillTokens();
+        if (tokens < 1) return null;
+
+        for (Priority p : Priority.values()) {
+            Iterator<Task> it = queues.get(p).iterator();
+            while (it.hasNext()) {
+                Task task = it.next();
+                if (task.future() != null && task.future().isDone()) {
+                    it.remove();    // cancelled or failed while queued - never send it
+                    continue;
+                }
+                if (now - task.enqueuedAt() > MAX_QUEUE_WAIT_MS) {
+                    it.remove();
+                    expire(task);
+                    continue;
+                }
+                if (task.pacing() == null || historicalWaitMs(task.pacing(), now) == 0) {
+                    it.remove();
+                    tokens -= 1;
+                    if (task.pacing() != null) recordHistorical(task.pacing(), now);
+                    return task;
+                }
+                // Paced historical task not ready - a later one (different contract) may be
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fails a task that waited too long. Tasks with a future report it to their caller; fire-and-forget
+     * tasks have nobody to tell, and a dropped order or cancel must never go unnoticed. Caller holds the lock.
+     */
+    private void expire(Task task) {
+        expiredCount.get(task.priority()).incrementAndGet();
+        String reason = "Request queued for more than " + MAX_QUEUE_WAIT_MS / 1000 + "s by pacing";
+        if (task.future() != null) {
+            task.future().completeExceptionally(new TimeoutException(reason));
+        } else if (task.priority() == Priority.ORDER) {
+            log.error("{} request discarded: {}", task.priority(), reason);
+        } else {
+            log.warn("{} request discarded: {}", task.priority(), reason);
+        }
+    }
+
+    /** Milliseconds until some queued task could become ready, or -1 if all queues are empty. Caller holds the lock. */
+    private long millisUntilNextReady() {
+        long now = System.currentTimeMillis();
+        long best = -1;
+        for (ArrayDeque<Task> queue : queues.values()) {
+            for (Task task : queue) {
+                long wait = tokens < 1 ? (long) Math.ceil((1 - tokens) * 1000.0 / MAX_MSGS_PER_SECOND) : 0;
+                if (task.pacing() != null) wait = Math.max(wait, historicalWaitMs(task.pacing(), now));
+                best = best < 0 ? wait : Math.min(best, wait);
+            }
+        }
+        return best;
+    }
+
+    private void dispatch(Task task) {
+        long waitMs = System.currentTimeMillis() - task.enqueuedAt();
+        dispatchedCount.get(task.priority()).incrementAndGet();
+        totalWaitMs.get(task.priority()).addAndGet(waitMs);
+        maxWaitMs.get(task.priority()).accumulateAndGet(waitMs, Math::max);
+        queueWait.get(task.priority()).record(waitMs, TimeUnit.MILLISECONDS);
+        if (waitMs >= SLOW_DISPATCH_WARN_MS) {
+            log.info("{} request waited {}ms for pacing ({})", task.priority(), waitMs,
+                    task.pacing() != null ? task.pacing().requestKey() : "rate limit");
+        }
+
+        if (task.future() != null && task.timeoutSeconds() > 0) {
+            task.future().orTimeout(task.timeoutSeconds(), TimeUnit.SECONDS);
+        }
+        try {
+            task.send().run();
+        } catch (Exception e) {
+            log.error("Failed to send {} request: {}", task.priority(), e.getMessage(), e);
+            if (task.future() != null) {
+                task.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Pacing rules (caller holds the lock)
+    // -------------------------------------------------------------------------
+
+    private void refillTokens() {
+        long nowNanos = System.nanoTime();
+        double elapsedSeconds = (nowNanos - lastRefillNanos) / 1_000_000_000.0;
+        tokens = Math.min(MAX_MSGS_PER_SECOND, tokens + elapsedSeconds * MAX_MSGS_PER_SECOND);
+        lastRefillNanos = nowNanos;
+    }
+
+    private long historicalWaitMs(HistoricalPacing pacing, long now) {
+        long wait = 0;
+
+        while (!historicalSent.isEmpty() && now - historicalSent.peekFirst() >= HISTORICAL_WINDOW_MS) {
+            historicalSent.pollFirst();
+        }
+        if (historicalSent.size() >= HISTORICAL_MAX_PER_WINDOW) {
+            wait = Math.max(wait, historicalSent.peekFirst() + HISTORICAL_WINDOW_MS - now);
+        }
+
+        Long lastIdentical = lastIdenticalSent.get(pacing.requestKey());
+        if (lastIdentical != null && now - lastIdentical < IDENTICAL_REQUEST_MS) {
+            wait = Math.max(wait, lastIdentical + IDENTICAL_REQUEST_MS - now);
+        }
+
+        ArrayDeque<Long> sameContract = contractSent.get(pacing.contractKey());
+        if (sameContract != null) {
+            while (!sameContract.isEmpty() && now - sameContract.peekFirst() >= SAME_CONTRACT_WINDOW_MS) {
+                sameContract.pollFirst();
+            }
+            if (sameContract.size() >= SAME_CONTRACT_MAX) {
+                wait = Math.max(wait, sameContract.peekFirst() + SAME_CONTRACT_WINDOW_MS - now);
+            }
+        }
+        return wait;
+    }
+
+    private void recordHistorical(HistoricalPacing pacing, long now) {
+        historicalSent.addLast(now);
+        lastIdenticalSent.put(pacing.requestKey(), now);
+        lastIdenticalSent.values().removeIf(t -> now - t >= IDENTICAL_REQUEST_MS);
+        contractSent.computeIfAbsent(pacing.contractKey(), k -> new ArrayDeque<>()).addLast(now);
+        contractSent.values().removeIf(ArrayDeque::isEmpty);
+    }
+}
@@ -0,0 +1,27 @@
+package ibkr;
+
+import com.ib.client.EJavaSignal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EReader signal that remembers when the oldest message not yet picked up by the processing thread
+ * was queued, so the processor can measure how long callbacks lag behind the socket.
+ */
+final class TimedReaderSignal extends EJavaSignal {
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final AtomicLong pendingSince = new AtomicLong(NONE);
+
+    @Override
+    public void issueSignal() {
+        pendingSince.compareAndSet(NONE, System.nanoTime());
+        super.issueSignal();
+    }
+
+    /** Nanoseconds since the oldest signal not yet taken, or -1 if there is none; resets it. */
+    long takeLagNanos() {
+        long since = pendingSince.getAndSet(NONE);
+        return since == NONE ? -1 : System.nanoTime() - since;
+    }
+}
@@ -14,4 +14,10 @@ public class PositionOutput {
     private Contract contract;
     private Decimal pos;
     private double avgCost;
+
+    // From updatePortfolio (account mirror only); 0 until the first portfolio update
+    private double marketPrice;
+    private double marketValue;
+    private double unrealizedPnL;
+    private double realizedPnL;
 }
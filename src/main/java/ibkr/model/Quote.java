@@ -0,0 +1,27 @@
+package ibkr.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Immutable top-of-book snapshot for one symbol, maintained by {@link data.QuoteCache}
+ * from streaming tickPrice / tickSize / tickGeneric callbacks.
+ * A new instance replaces the old one on every tick, so readers always see a consistent bid/ask pair.
+ */
+@Value
+@Builder(toBuilder = true)
+public class Quote {
+    String symbol;
+    double bid;
+    double ask;
+    double last;
+    double bidSize;
+    double askSize;
+    boolean pastLimit;    // TickAttrib.pastLimit() on the latest bid/ask tick (LULD band)
+    boolean halted;       // generic tick 49 (HALTED) > 0
+    long updatedAt;       // epoch millis of the latest tick
+
+    public boolean hasBidAsk() {
+        return bid > 0 && ask > 0;
+    }
+}
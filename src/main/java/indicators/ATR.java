@@ -1,6 +1,7 @@
 package indicators;
 
 import com.ib.client.Bar;
+import data.BarSeries;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -9,9 +10,19 @@ public final class ATR {
     // ATR = [Previous ATR * (n-1) + True Range)] / n
     private ATR() {} // Prevent instantiation
 
+    /** Latest ATR value; streams the bars through {@link AverageTrueRange} without building the series. */
     public static double calculate(List<Bar> bars, int period) {
-        List<Double> series = calculateSeries(bars, period);
-        return series.get(series.size() - 1);
+        validateInputs(bars, period);
+        return new AverageTrueRange(period).over(bars);
+    }
+
+    /** Latest ATR value over a columnar series. */
+    public static double calculate(BarSeries bars, int period) {
+        if (bars == null) {
+            throw new IllegalArgumentException("Bars series cannot be null");
+        }
+        validateInputs(bars.size(), period);
+        return new AverageTrueRange(period).over(bars);
     }
 
     public static List<Double> calculateSeries(List<Bar> bars, int period) {
@@ -74,13 +85,17 @@ public final class ATR {
         if (bars == null) {
             throw new IllegalArgumentException("Bars list cannot be null");
         }
+        validateInputs(bars.size(), period);
+    }
+
+    private static void validateInputs(int barCount, int period) {
         if (period < 1) {
             throw new IllegalArgumentException("Period must be at least 1, got: " + period);
         }
-        if (bars.size() < period + 1) {
+        if (barCount < period + 1) {
             throw new IllegalArgumentException(
                 String.format("Not enough bars for ATR calculation. Required: %d, Available: %d",
-                    period + 1, bars.size())
+                    period + 1, barCount)
             );
         }
     }
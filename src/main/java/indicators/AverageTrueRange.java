@@ -0,0 +1,78 @@
+package indicators;
+
+import com.ib.client.Bar;
+import data.BarSeries;
+
+/**
+ * Streaming ATR with Wilder smoothing, matching {@link ATR#calculateSeries}:
+ * the first value is the simple average of the first {@code period} true ranges (the first bar only
+ * supplies a previous close), then ATR = (previous ATR * (n-1) + TR) / n.
+ */
+public class AverageTrueRange implements Indicator {
+    private final int period;
+
+    private boolean hasPrevClose;
+    private double prevClose;
+    private int trueRanges;      // true ranges seen so far
+    private double seedSum;      // sum of the first 'period' true ranges
+    private double atr;
+
+    public AverageTrueRange(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be at least 1, got: " + period);
+        }
+        this.period = period;
+    }
+
+    @Override
+    public void update(Bar bar) {
+        update(bar.high(), bar.low(), bar.close());
+    }
+
+    @Override
+    public void update(BarSeries series, int index) {
+        update(series.high(index), series.low(index), series.close(index));
+    }
+
+    private void update(double high, double low, double close) {
+        if (!hasPrevClose) {
+            prevClose = close;
+            hasPrevClose = true;
+            return;
+        }
+        double tr = Math.max(high - low,
+                Math.max(Math.abs(high - prevClose), Math.abs(prevClose - low)));
+        prevClose = close;
+        trueRanges++;
+        if (trueRanges < period) {
+            seedSum += tr;
+        } else if (trueRanges == period) {
+            atr = (seedSum + tr) / period;
+        } else {
+            atr = (atr * (period - 1) + tr) / period;
+        }
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? atr : 0.0;
+    }
+
+    @Override
+    public boolean isReady() {
+        return trueRanges >= period;
+    }
+
+    @Override
+    public void reset() {
+        hasPrevClose = false;
+        prevClose = 0.0;
+        trueRanges = 0;
+        seedSum = 0.0;
+        atr = 0.0;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+}
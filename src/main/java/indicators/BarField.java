@@ -0,0 +1,44 @@
+package indicators;
+
+import com.ib.client.Bar;
+import com.ib.client.Decimal;
+import data.BarSeries;
+
+/** Bar value an indicator is computed over. */
+public enum BarField {
+    OPEN, HIGH, LOW, CLOSE, VOLUME,
+    /** Candle body size, |close - open|. */
+    BODY,
+    /** Typical price, (high + low + close) / 3. */
+    TYPICAL;
+
+    public double of(Bar bar) {
+        return switch (this) {
+            case OPEN -> bar.open();
+            case HIGH -> bar.high();
+            case LOW -> bar.low();
+            case CLOSE -> bar.close();
+            case VOLUME -> volume(bar);
+            case BODY -> Math.abs(bar.close() - bar.open());
+            case TYPICAL -> (bar.high() + bar.low() + bar.close()) / 3.0;
+        };
+    }
+
+    public double of(BarSeries series, int i) {
+        return switch (this) {
+            case OPEN -> series.open(i);
+            case HIGH -> series.high(i);
+            case LOW -> series.low(i);
+            case CLOSE -> series.close(i);
+            case VOLUME -> series.volume(i);
+            case BODY -> series.body(i);
+            case TYPICAL -> (series.high(i) + series.low(i) + series.close(i)) / 3.0;
+        };
+    }
+
+    /** Same rule as BarSeries: missing or invalid volume counts as 0. */
+    static double volume(Bar bar) {
+        Decimal volume = bar.volume();
+        return volume != null && volume.isValid() ? volume.longValue() : 0.0;
+    }
+}
@@ -0,0 +1,69 @@
+package indicators;
+
+import com.ib.client.Bar;
+import data.BarSeries;
+
+/**
+ * Exponential moving average of one {@link BarField}, alpha = 2 / (period + 1).
+ * Seeded with the simple average of the first {@code period} bars.
+ */
+public class EMA implements Indicator {
+    private final int period;
+    private final BarField field;
+    private final double alpha;
+
+    private int count;
+    private double seedSum;
+    private double ema;
+
+    public EMA(int period) {
+        this(period, BarField.CLOSE);
+    }
+
+    public EMA(int period, BarField field) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Period must be at least 1, got: " + period);
+        }
+        this.period = period;
+        this.field = field;
+        this.alpha = 2.0 / (period + 1);
+    }
+
+    @Override
+    public void update(Bar bar) {
+        add(field.of(bar));
+    }
+
+    @Override
+    public void update(BarSeries series, int index) {
+        add(field.of(series, index));
+    }
+
+    private void add(double v) {
+        count++;
+        if (count < period) {
+            seedSum += v;
+        } else if (count == period) {
+            ema = (seedSum + v) / period;
+        } else {
+            ema += alpha * (v - ema);
+        }
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? ema : 0.0;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= period;
+    }
+
+    @Override
+    public void reset() {
+        count = 0;
+        seedSum = 0.0;
+        ema = 0.0;
+    }
+}
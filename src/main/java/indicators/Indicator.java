@@ -1,10 +1,48 @@
 package indicators;
 
 import com.ib.client.Bar;
+import data.BarSeries;
 
 import java.util.List;
 
+/**
+ * Streaming indicator: fed one completed bar at a time, holds only primitive state.
+ *
+ * {@link #update(Bar)} is O(1) and allocation-free, so an indicator can be kept per symbol and
+ * advanced as bars arrive instead of recomputing over the whole {@code List<Bar>} every cycle.
+ * {@link #update(BarSeries, int)} reads the same values straight from a columnar series.
+ */
 public interface Indicator {
-    double calculate ();
-    List<Double> calculateSeries();
+    /** Folds one bar into the indicator. Bars must arrive in time order. */
+    void update(Bar bar);
+
+    /** Folds bar {@code index} of {@code series} into the indicator. */
+    void update(BarSeries series, int index);
+
+    /** Current value; {@code 0.0} until {@link #isReady()}. */
+    double value();
+
+    /** True once enough bars have been seen for {@link #value()} to be meaningful. */
+    boolean isReady();
+
+    /** Drops all state, as if no bar had been seen. */
+    void reset();
+
+    /** Resets, replays {@code bars} and returns the resulting value. For one-shot use over a series. */
+    default double over(List<Bar> bars) {
+        reset();
+        for (int i = 0; i < bars.size(); i++) {
+            update(bars.get(i));
+        }
+        return value();
+    }
+
+    /** Resets, replays {@code series} and returns the resulting value. */
+    default double over(BarSeries series) {
+        reset();
+        for (int i = 0; i < series.size(); i++) {
+            update(series, i);
+        }
+        return value();
+    }
 }
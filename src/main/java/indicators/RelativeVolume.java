@@ -0,0 +1,52 @@
+package indicators;
+
+import com.ib.client.Bar;
+import data.BarSeries;
+
+/**
+ * Relative volume: the latest bar's volume divided by the mean volume of the {@code lookback} bars
+ * before it. Ready once {@code lookback} prior bars have been seen.
+ */
+public class RelativeVolume implements Indicator {
+    private final RollingStats prior;
+    private double rvol;
+    private boolean ready;
+
+    public RelativeVolume(int lookback) {
+        this.prior = new RollingStats(BarField.VOLUME, lookback);
+    }
+
+    @Override
+    public void update(Bar bar) {
+        add(BarField.volume(bar));
+    }
+
+    @Override
+    public void update(BarSeries series, int index) {
+        add(series.volume(index));
+    }
+
+    private void add(double vol) {
+        double avg = prior.mean();
+        ready = prior.isReady() && avg > 0.0;
+        rvol = ready ? vol / avg : 0.0;
+        prior.add(vol);
+    }
+
+    @Override
+    public double value() {
+        return rvol;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void reset() {
+        prior.reset();
+        rvol = 0.0;
+        ready = false;
+    }
+}
@@ -0,0 +1,139 @@
+package indicators;
+
+import com.ib.client.Bar;
+import data.BarSeries;
+
+/**
+ * Rolling mean and standard deviation of one {@link BarField} over the last {@code window} bars.
+ *
+ * Keeps a ring buffer plus running sum and sum of squares, so each update is O(1). The running sums
+ * are rebuilt from the ring once per full revolution to stop floating-point drift accumulating over
+ * a long session. {@link #value()} is the mean.
+ */
+public final class RollingStats implements Indicator {
+    private final BarField field;
+    private final int window;
+    private final int minCount;
+
+    private final double[] values;
+    private int count;
+    private int next;
+    private double sum;
+    private double sumSq;
+
+    /** Ready once the window is full. */
+    public RollingStats(BarField field, int window) {
+        this(field, window, window);
+    }
+
+    /**
+     * Ready once {@code minCount} bars are in the window (the mean is 0.0 before that); from then until
+     * the window is full the mean is over the bars seen.
+     */
+    public RollingStats(BarField field, int window, int minCount) {
+        if (window < 1 || minCount < 1 || minCount > window) {
+            throw new IllegalArgumentException("Invalid window " + window + " / minCount " + minCount);
+        }
+        this.field = field;
+        this.window = window;
+        this.minCount = minCount;
+        this.values = new double[window];
+    }
+
+    /** Copy constructor, for evaluating a tentative bar without disturbing the committed state. */
+    public RollingStats(RollingStats other) {
+        this(other.field, other.window, other.minCount);
+        copyFrom(other);
+    }
+
+    /** Overwrites this instance's state with {@code other}'s. Both must have the same window. */
+    public void copyFrom(RollingStats other) {
+        if (other.window != window) {
+            throw new IllegalArgumentException("Window mismatch: " + window + " vs " + other.window);
+        }
+        System.arraycopy(other.values, 0, values, 0, window);
+        count = other.count;
+        next = other.next;
+        sum = other.sum;
+        sumSq = other.sumSq;
+    }
+
+    @Override
+    public void update(Bar bar) {
+        add(field.of(bar));
+    }
+
+    @Override
+    public void update(BarSeries series, int index) {
+        add(field.of(series, index));
+    }
+
+    /** Adds a raw value, for callers that already hold it. */
+    public void add(double v) {
+        if (count == window) {
+            double old = values[next];
+            sum -= old;
+            sumSq -= old * old;
+        } else {
+            count++;
+        }
+        values[next] = v;
+        sum += v;
+        sumSq += v * v;
+        next++;
+        if (next == window) {
+            next = 0;
+            resum();
+        }
+    }
+
+    @Override
+    public double value() {
+        return mean();
+    }
+
+    /** Mean of the window; 0.0 until {@link #isReady()}. */
+    public double mean() {
+        return isReady() ? sum / count : 0.0;
+    }
+
+    /** Population standard deviation of the window; 0.0 until {@link #isReady()}. */
+    public double stddev() {
+        if (!isReady()) return 0.0;
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0.0, sumSq / count - mean * mean));
+    }
+
+    /** Number of standard deviations {@code v} is from the window mean; 0.0 if the window is flat or not ready. */
+    public double zScore(double v) {
+        double sd = stddev();
+        return sd > 0.0 ? (v - mean()) / sd : 0.0;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= minCount;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public void reset() {
+        count = 0;
+        next = 0;
+        sum = 0.0;
+        sumSq = 0.0;
+    }
+
+    private void resum() {
+        double s = 0.0, sq = 0.0;
+        for (int i = 0; i < count; i++) {
+            s += values[i];
+            sq += values[i] * values[i];
+        }
+        sum = s;
+        sumSq = sq;
+    }
+}
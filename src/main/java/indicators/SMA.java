@@ -0,0 +1,42 @@
+package indicators;
+
+import com.ib.client.Bar;
+import data.BarSeries;
+
+/** Simple moving average of one {@link BarField} over the last {@code period} bars. */
+public class SMA implements Indicator {
+    private final RollingStats window;
+
+    public SMA(int period) {
+        this(period, BarField.CLOSE);
+    }
+
+    public SMA(int period, BarField field) {
+        this.window = new RollingStats(field, period);
+    }
+
+    @Override
+    public void update(Bar bar) {
+        window.update(bar);
+    }
+
+    @Override
+    public void update(BarSeries series, int index) {
+        window.update(series, index);
+    }
+
+    @Override
+    public double value() {
+        return window.mean();
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isReady();
+    }
+
+    @Override
+    public void reset() {
+        window.reset();
+    }
+}
@@ -0,0 +1,76 @@
+package indicators;
+
+import com.ib.client.Bar;
+import data.BarSeries;
+
+/**
+ * Cumulative volume-weighted average price for the current session; resets when the bar date changes.
+ *
+ * Each bar contributes its own WAP (as reported by IBKR) times its volume, falling back to the typical
+ * price when the bar has no WAP. For {@code Bar} input the date is read from the first 8 digits of
+ * IBKR's "yyyyMMdd HH:mm:ss ..." time without allocating, and the WAP's {@code doubleValue()} takes
+ * BigDecimal's non-allocating path for the short decimals IBKR sends; {@link BarSeries} input uses
+ * its Eastern date column.
+ */
+public class SessionVWAP implements Indicator {
+    private int sessionDate = -1;
+    private double priceVolume;
+    private double volume;
+
+    @Override
+    public void update(Bar bar) {
+        double wap = bar.wap() != null && bar.wap().isValid() ? bar.wap().value().doubleValue() : 0.0;
+        add(barDate(bar.time()), wap > 0.0 ? wap : BarField.TYPICAL.of(bar), BarField.volume(bar));
+    }
+
+    @Override
+    public void update(BarSeries series, int index) {
+        double wap = series.vwap(index);
+        add(series.date(index), wap > 0.0 ? wap : BarField.TYPICAL.of(series, index), series.volume(index));
+    }
+
+    private void add(int date, double price, double vol) {
+        if (date != sessionDate) {
+            sessionDate = date;
+            priceVolume = 0.0;
+            volume = 0.0;
+        }
+        if (vol <= 0.0) return;
+        priceVolume += price * vol;
+        volume += vol;
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? priceVolume / volume : 0.0;
+    }
+
+    @Override
+    public boolean isReady() {
+        return volume > 0.0;
+    }
+
+    /** Volume accumulated in the current session. */
+    public double sessionVolume() {
+        return volume;
+    }
+
+    @Override
+    public void reset() {
+        sessionDate = -1;
+        priceVolume = 0.0;
+        volume = 0.0;
+    }
+
+    /** yyyyMMdd prefix as an int, or 0 if the time has no date prefix (e.g. epoch-seconds bars). */
+    static int barDate(String time) {
+        if (time == null || time.length() < 8) return 0;
+        int date = 0;
+        for (int i = 0; i < 8; i++) {
+            char c = time.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            date = date * 10 + (c - '0');
+        }
+        return date;
+    }
+}
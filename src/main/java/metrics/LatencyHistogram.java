@@ -0,0 +1,126 @@
+package metrics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear latency histogram in microseconds.
+ *
+ * Each power of two is split into {@value #SUB_BUCKETS} linear buckets, so bucket upper bounds run
+ * 1, 2, 3, 4, 5, 6, 7, 8, 10, 12, 14, 16, 20, ... us and any recorded value is within 25% of its
+ * bucket bound, from microseconds up to about {@value #MAX_OCTAVE}-bit values (days). Recording is one
+ * {@code numberOfLeadingZeros}, an atomic bucket increment and two adders - cheap enough for the TWS
+ * message thread. Values are exposed in seconds, the Prometheus base unit.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_OCTAVE = 40;
+    private static final int BUCKETS = (MAX_OCTAVE - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private static final int EXPOSED_MAX_OCTAVE = 27;
+    /** Buckets whose upper bound is a power of two up to 2^{@value #EXPOSED_MAX_OCTAVE} us, in order. */
+    private static final int[] EXPOSED = new int[EXPOSED_MAX_OCTAVE + 1];
+    private static final String[] EXPOSED_LE = new String[EXPOSED_MAX_OCTAVE + 1];
+
+    static {
+        for (int octave = 0; octave <= EXPOSED_MAX_OCTAVE; octave++) {
+            EXPOSED[octave] = index(1L << octave);
+            EXPOSED_LE[octave] = seconds(1L << octave);
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+
+    LatencyHistogram() {
+    }
+
+    public void recordMicros(long micros) {
+        long v = Math.max(micros, 0);
+        counts.incrementAndGet(index(v));
+        count.increment();
+        sumMicros.add(v);
+    }
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        recordMicros(unit.toMicros(duration));
+    }
+
+    /** Records the time since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Bucket for {@code v}: buckets cover (lower, upper], so {@code v - 1} is classified. Values up to
+     * {@value #SUB_BUCKETS} get a bucket each; above that the top {@value #SUB_BITS} bits after the
+     * leading one pick the sub-bucket within the octave.
+     */
+    static int index(long v) {
+        long x = Math.max(v - 1, 0);
+        if (x < SUB_BUCKETS) {
+            return (int) x;
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(x);
+        if (octave > MAX_OCTAVE) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (x >>> (octave - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (octave - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** Inclusive upper bound of bucket {@code i} in microseconds. */
+    static long upperBound(int i) {
+        if (i < SUB_BUCKETS) {
+            return i + 1;
+        }
+        int octave = i / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = i % SUB_BUCKETS;
+        return (1L << octave) + ((long) (sub + 1) << (octave - SUB_BITS));
+    }
+
+    /**
+     * Writes the {@code _bucket}, {@code _sum} and {@code _count} samples. Every series exposes the same
+     * fixed {@code le} set - one bound per octave from 1us to {@value #EXPOSED_MAX_OCTAVE}-bit values
+     * (about two minutes) - so {@code histogram_quantile} can aggregate across label sets and scrapes;
+     * the finer internal buckets are summed into the octave that contains them.
+     */
+    void write(Appendable out, String name, String labels) throws IOException {
+        String prefix = labels.isEmpty() ? "{" : "{" + labels + ",";
+        long cumulative = 0;
+        int next = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts.get(i);
+            if (next < EXPOSED.length && i == EXPOSED[next]) {
+                out.append(name).append("_bucket").append(prefix)
+                   .append("le=\"").append(EXPOSED_LE[next]).append("\"} ")
+                   .append(Long.toString(cumulative)).append('\n');
+                next++;
+            }
+        }
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_bucket").append(prefix).append("le=\"+Inf\"} ")
+           .append(Long.toString(cumulative)).append('\n');
+        out.append(name).append("_sum").append(suffix).append(' ')
+           .append(seconds(sumMicros.sum())).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ')
+           .append(Long.toString(cumulative)).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return BigDecimal.valueOf(micros, 6).stripTrailingZeros().toPlainString();
+    }
+}
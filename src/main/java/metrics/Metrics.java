@@ -0,0 +1,102 @@
+package metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of counters and latency histograms, exposed in the Prometheus text format
+ * by MonitoringServer's {@code /metrics}.
+ *
+ * Metrics are created on first use and live for the life of the process. {@code labels} are
+ * name/value pairs; each distinct set of values is its own series, so keep label values to a small
+ * fixed set (request types, strategy names). Looking a series up is a map read, so call sites with
+ * fixed labels keep the returned instance in a field and the rest look it up per event.
+ */
+public final class Metrics {
+    private static final Map<String, Family<?>> families = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        return family(name, help, "counter", Counter.class).child(labels, Counter::new);
+    }
+
+    public static LatencyHistogram histogram(String name, String help, String... labels) {
+        return family(name, help, "histogram", LatencyHistogram.class).child(labels, LatencyHistogram::new);
+    }
+
+    /** Writes every metric in the text exposition format (version 0.0.4), families sorted by name. */
+    public static void writeTo(Appendable out) throws IOException {
+        for (Family<?> family : families.values()) {
+            family.write(out);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Family<T> family(String name, String help, String type, Class<T> kind) {
+        Family<?> family = families.computeIfAbsent(name, n -> new Family<>(n, help, type, kind));
+        if (family.kind != kind) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return (Family<T>) family;
+    }
+
+    private static final class Family<T> {
+        final String name;
+        final String help;
+        final String type;
+        final Class<T> kind;
+        // Rendered label pairs -> series
+        final Map<String, T> children = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type, Class<T> kind) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.kind = kind;
+        }
+
+        T child(String[] labels, Supplier<T> factory) {
+            String key = render(labels);
+            T child = children.get(key);
+            return child != null ? child : children.computeIfAbsent(key, k -> factory.get());
+        }
+
+        void write(Appendable out) throws IOException {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<String, T> e : new TreeMap<>(children).entrySet()) {
+                String labels = e.getKey();
+                if (e.getValue() instanceof LatencyHistogram histogram) {
+                    histogram.write(out, name, labels);
+                } else if (e.getValue() instanceof Counter counter) {
+                    out.append(name);
+                    if (!labels.isEmpty()) {
+                        out.append('{').append(labels).append('}');
+                    }
+                    out.append(' ').append(Long.toString(counter.get())).append('\n');
+                }
+            }
+        }
+    }
+
+    private static String render(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            String value = labels[i + 1] != null ? labels[i + 1] : "";
+            sb.append(labels[i]).append("=\"")
+              .append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+              .append('"');
+        }
+        return sb.toString();
+    }
+}
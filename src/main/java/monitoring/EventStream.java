@@ -0,0 +1,178 @@
+package monitoring;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Server-Sent Events fan-out behind {@code /api/stream}.
+ *
+ * {@link #publish} formats an event once and offers the frame to every client's bounded queue; it
+ * never blocks, so it is safe on the TWS message thread. Each client has its own writer thread that
+ * drains the queue to the socket, so the HTTP handler pool is not held by open streams. A client
+ * whose queue is full has fallen {@value #CLIENT_BUFFER_EVENTS} events behind and is dropped rather
+ * than slowing down the publishers or growing without bound; it can reconnect and re-read state
+ * from the snapshot events sent on connect.
+ *
+ * A new client is registered before its snapshot is taken, so nothing published while the snapshot
+ * is built is missed: those events wait in its queue and are written after the snapshot. The
+ * snapshot events carry no {@code id}, so ids on the wire stay increasing.
+ */
+public class EventStream {
+    private static final Logger log = LoggerFactory.getLogger(EventStream.class);
+
+    static final int CLIENT_BUFFER_EVENTS = 256;
+    static final int MAX_CLIENTS = 16;
+    private static final long HEARTBEAT_MS = 15_000;
+    private static final byte[] HEARTBEAT = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    // Guards the client limit check and the add, so concurrent connects cannot exceed MAX_CLIENTS
+    private final Object registerLock = new Object();
+    private final AtomicLong eventId = new AtomicLong();
+    private final AtomicInteger clientSeq = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Snapshot of stream activity for /api/status. */
+    public record Stats(int clients, long events, long dropped) {}
+
+    boolean hasClients() {
+        return !clients.isEmpty();
+    }
+
+    Stats getStats() {
+        return new Stats(clients.size(), eventId.get(), dropped.get());
+    }
+
+    /** Queues {@code data} (one line of JSON) as an {@code event} for every connected client. */
+    void publish(String event, String data) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        String frame = frame(eventId.incrementAndGet(), event, data);
+        for (Client client : clients) {
+            if (!client.queue.offer(frame)) {
+                drop(client, "buffer full", true);
+            }
+        }
+    }
+
+    /**
+     * Takes over {@code exchange} as a new stream: registers the client so live events start
+     * buffering, takes the {@code snapshot} {event, data} pairs, sends the headers and starts the
+     * client's writer thread, which writes the snapshot ahead of the buffered events.
+     * Returns false without touching the exchange if the client limit is reached.
+     */
+    boolean open(HttpExchange exchange, Supplier<List<String[]>> snapshot) throws IOException {
+        Client client = new Client(clientSeq.incrementAndGet(), exchange);
+        synchronized (registerLock) {
+            if (clients.size() >= MAX_CLIENTS) {
+                return false;
+            }
+            clients.add(client);
+        }
+        try {
+            for (String[] event : snapshot.get()) {
+                client.initial.add(frame(0, event[0], event[1]));
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().set("X-Accel-Buffering", "no");
+            exchange.sendResponseHeaders(200, 0);    // chunked, open until either side closes
+        } catch (IOException | RuntimeException e) {
+            clients.remove(client);
+            throw e;
+        }
+        client.writer.start();
+        log.info("SSE client {} connected from {} ({} open)", client.id, exchange.getRemoteAddress(), clients.size());
+        return true;
+    }
+
+    /** Closes every stream. */
+    void close() {
+        for (Client client : clients) {
+            drop(client, "server stopping", false);
+        }
+    }
+
+    /**
+     * Detaches {@code client}. Only its writer thread touches the exchange - closing it here could
+     * block the publisher on a socket that is not being read - so the writer is woken to close it.
+     */
+    private void drop(Client client, String reason, boolean slow) {
+        if (clients.remove(client)) {
+            if (slow) {
+                dropped.incrementAndGet();
+                log.warn("SSE client {} dropped: {}", client.id, reason);
+            } else {
+                log.info("SSE client {} closed: {}", client.id, reason);
+            }
+            client.closed = true;
+            client.writer.interrupt();
+        }
+    }
+
+    /** One SSE frame; {@code id} 0 leaves the id out. */
+    private static String frame(long id, String event, String data) {
+        return (id > 0 ? "id: " + id + "\n" : "") + "event: " + event + "\ndata: " + data + "\n\n";
+    }
+
+    private final class Client implements Runnable {
+        final int id;
+        final HttpExchange exchange;
+        final BlockingQueue<String> queue = new ArrayBlockingQueue<>(CLIENT_BUFFER_EVENTS);
+        // Snapshot frames, filled in before the writer starts and written ahead of the queue
+        final List<String> initial = new ArrayList<>();
+        final Thread writer;
+        volatile boolean closed;
+
+        Client(int id, HttpExchange exchange) {
+            this.id = id;
+            this.exchange = exchange;
+            this.writer = new Thread(this, "SSE-Client-" + id);
+            this.writer.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            OutputStream out = exchange.getResponseBody();
+            try {
+                for (String frame : initial) {
+                    out.write(frame.getBytes(StandardCharsets.UTF_8));
+                }
+                out.flush();
+                while (!closed) {
+                    String frame = queue.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+                    if (closed) {
+                        break;
+                    }
+                    // A heartbeat also detects clients that went away without closing the socket
+                    out.write(frame != null ? frame.getBytes(StandardCharsets.UTF_8) : HEARTBEAT);
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("SSE client {} write failed: {}", id, e.getMessage());
+                drop(this, "disconnected", false);
+            } catch (InterruptedException e) {
+                // Woken by drop()
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package monitoring;
 
+import com.ib.client.Decimal;
+import data.ContractDetailsCache;
 import ibkr.IBKRConnection;
+import ibkr.RequestScheduler;
 import ibkr.model.PositionOutput;
+import trade.TradeDatabase;
 import trade.TradeJournal;
 import trade.TradeRecord;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
@@ -14,16 +20,72 @@ public class JsonBuilder {
 
     public static String statusJson(IBKRConnection.ConnectionState state,
                                     int lastErrorCode, String lastErrorMsg,
-                                    String tradingMode, long uptimeSeconds) {
+                                    String tradingMode, long uptimeSeconds,
+                                    long requestsIssued, long requestsCoalesced, long requestsReused,
+                                    RequestScheduler.QueueStats[] scheduler,
+                                    ContractDetailsCache.Stats contractCache,
+                                    TradeDatabase.WriterStats tradeDb,
+                                    TradeJournal.PendingStats journal,
+                                    EventStream.Stats stream) {
         return "{"
             + "\"connectionState\":" + jsonString(state.name()) + ","
             + "\"lastErrorCode\":" + lastErrorCode + ","
             + "\"lastErrorMsg\":" + jsonString(lastErrorMsg) + ","
             + "\"tradingMode\":" + jsonString(tradingMode) + ","
-            + "\"uptimeSeconds\":" + uptimeSeconds
+            + "\"uptimeSeconds\":" + uptimeSeconds + ","
+            + "\"requestsIssued\":" + requestsIssued + ","
+            + "\"requestsCoalesced\":" + requestsCoalesced + ","
+            + "\"requestsReused\":" + requestsReused + ","
+            + "\"requestScheduler\":" + schedulerJson(scheduler) + ","
+            + "\"contractDetailsCache\":{"
+            +     "\"size\":" + contractCache.size() + ","
+            +     "\"hits\":" + contractCache.hits() + ","
+            +     "\"misses\":" + contractCache.misses() + ","
+            +     "\"refreshes\":" + contractCache.refreshes() + ","
+            +     "\"hitRate\":" + round2(contractCache.hitRate())
+            + "}"
+            + (tradeDb == null ? "" : ",\"tradeDbWriter\":{"
+            +     "\"queued\":" + tradeDb.queued() + ","
+            +     "\"maxQueued\":" + tradeDb.maxQueued() + ","
+            +     "\"written\":" + tradeDb.written() + ","
+            +     "\"failed\":" + tradeDb.failed() + ","
+            +     "\"batches\":" + tradeDb.batches() + ","
+            +     "\"avgBatchSize\":" + round2(tradeDb.avgBatchSize()) + ","
+            +     "\"avgCommitMs\":" + round2(tradeDb.avgCommitMs()) + ","
+            +     "\"maxCommitMs\":" + round2(tradeDb.maxCommitMs())
+            + "}")
+            + ",\"tradeJournal\":{"
+            +     "\"pendingExecutions\":" + journal.pendingExecutions() + ","
+            +     "\"pendingCommissions\":" + journal.pendingCommissions() + ","
+            +     "\"expiredExecutions\":" + journal.expiredExecutions() + ","
+            +     "\"expiredCommissions\":" + journal.expiredCommissions() + ","
+            +     "\"dedupExecIds\":" + journal.dedupExecIds() + ","
+            +     "\"dedupDays\":" + journal.dedupDays()
+            + "}"
+            + ",\"eventStream\":{"
+            +     "\"clients\":" + stream.clients() + ","
+            +     "\"events\":" + stream.events() + ","
+            +     "\"dropped\":" + stream.dropped()
+            + "}"
             + "}";
     }
 
+    private static String schedulerJson(RequestScheduler.QueueStats[] stats) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < stats.length; i++) {
+            RequestScheduler.QueueStats q = stats[i];
+            if (i > 0) sb.append(",");
+            sb.append(jsonString(q.priority().name())).append(":{")
+              .append("\"queued\":").append(q.queued()).append(",")
+              .append("\"dispatched\":").append(q.dispatched()).append(",")
+              .append("\"expired\":").append(q.expired()).append(",")
+              .append("\"avgWaitMs\":").append(round2(q.avgWaitMs())).append(",")
+              .append("\"maxWaitMs\":").append(q.maxWaitMs())
+              .append("}");
+        }
+        return sb.append("}").toString();
+    }
+
     public static String positionsJson(List<PositionOutput> positions) {
         StringBuilder sb = new StringBuilder("[");
         for (int i = 0; i < positions.size(); i++) {
@@ -42,47 +104,90 @@ public class JsonBuilder {
         return sb.toString();
     }
 
-    public static String tradesJson(List<TradeRecord> trades,
-                                    Map<String, TradeJournal.StrategySummary> summaries) {
-        StringBuilder sb = new StringBuilder("{");
-
-        sb.append("\"strategySummaries\":[");
+    /**
+     * Streams one page of trades, preceded by the all-time strategy summaries. {@code next} is the
+     * execId to pass as {@code since} for the following page (or the next poll).
+     */
+    public static void writeTrades(Appendable out, List<TradeRecord> trades,
+                                   Map<String, TradeJournal.StrategySummary> summaries,
+                                   boolean hasMore, String next) throws IOException {
+        out.append("{\"strategySummaries\":[");
         boolean first = true;
         for (TradeJournal.StrategySummary s : summaries.values()) {
-            if (!first) sb.append(",");
+            if (!first) out.append(",");
             first = false;
-            sb.append("{")
-              .append("\"strategy\":").append(jsonString(s.strategy())).append(",")
-              .append("\"totalTrades\":").append(s.totalTrades()).append(",")
-              .append("\"winningTrades\":").append(s.winningTrades()).append(",")
-              .append("\"totalNetPnL\":").append(round2(s.totalNetPnL())).append(",")
-              .append("\"totalCommission\":").append(round2(s.totalCommission()))
-              .append("}");
+            out.append("{")
+               .append("\"strategy\":").append(jsonString(s.strategy())).append(",")
+               .append("\"totalTrades\":").append(String.valueOf(s.totalTrades())).append(",")
+               .append("\"winningTrades\":").append(String.valueOf(s.winningTrades())).append(",")
+               .append("\"totalNetPnL\":").append(String.valueOf(round2(s.totalNetPnL()))).append(",")
+               .append("\"totalCommission\":").append(String.valueOf(round2(s.totalCommission())))
+               .append("}");
         }
-        sb.append("],");
+        out.append("],");
 
-        sb.append("\"trades\":[");
+        out.append("\"count\":").append(String.valueOf(trades.size())).append(",")
+           .append("\"hasMore\":").append(String.valueOf(hasMore)).append(",")
+           .append("\"next\":").append(jsonString(next)).append(",");
+
+        out.append("\"trades\":[");
         for (int i = 0; i < trades.size(); i++) {
-            TradeRecord t = trades.get(i);
-            if (i > 0) sb.append(",");
-            sb.append("{")
-              .append("\"execId\":").append(jsonString(t.getExecId())).append(",")
-              .append("\"symbol\":").append(jsonString(t.getSymbol())).append(",")
-              .append("\"strategy\":").append(jsonString(t.getStrategy())).append(",")
-              .append("\"time\":").append(jsonString(t.getTime() != null ? t.getTime().format(FMT) : "")).append(",")
-              .append("\"side\":").append(jsonString(t.getSide())).append(",")
-              .append("\"shares\":").append(t.getShares()).append(",")
-              .append("\"fillPrice\":").append(t.getFillPrice()).append(",")
-              .append("\"commission\":").append(round2(t.getCommission())).append(",")
-              .append("\"realizedPnL\":").append(round2(t.getRealizedPnL())).append(",")
-              .append("\"netPnL\":").append(round2(t.getNetPnL())).append(",")
-              .append("\"isClosingTrade\":").append(t.isClosingTrade())
-              .append("}");
+            if (i > 0) out.append(",");
+            appendTrade(out, trades.get(i));
+        }
+        out.append("]}");
+    }
+
+    /** One trade, as in {@code /api/trades}; the data of a {@code fill} stream event. */
+    public static String tradeJson(TradeRecord trade) {
+        StringBuilder sb = new StringBuilder(256);
+        try {
+            appendTrade(sb, trade);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);    // StringBuilder does not throw
         }
-        sb.append("]}");
         return sb.toString();
     }
 
+    private static void appendTrade(Appendable out, TradeRecord t) throws IOException {
+        out.append("{")
+           .append("\"execId\":").append(jsonString(t.getExecId())).append(",")
+           .append("\"symbol\":").append(jsonString(t.getSymbol())).append(",")
+           .append("\"strategy\":").append(jsonString(t.getStrategy())).append(",")
+           .append("\"time\":").append(jsonString(t.getTime() != null ? t.getTime().format(FMT) : "")).append(",")
+           .append("\"side\":").append(jsonString(t.getSide())).append(",")
+           .append("\"shares\":").append(String.valueOf(t.getShares())).append(",")
+           .append("\"fillPrice\":").append(String.valueOf(t.getFillPrice())).append(",")
+           .append("\"commission\":").append(String.valueOf(round2(t.getCommission()))).append(",")
+           .append("\"realizedPnL\":").append(String.valueOf(round2(t.getRealizedPnL()))).append(",")
+           .append("\"netPnL\":").append(String.valueOf(round2(t.getNetPnL()))).append(",")
+           .append("\"isClosingTrade\":").append(String.valueOf(t.isClosingTrade()))
+           .append("}");
+    }
+
+    /** Data of a {@code connection} stream event. */
+    public static String connectionJson(IBKRConnection.ConnectionState state, LocalDateTime time) {
+        return "{\"state\":" + jsonString(state.name()) + ",\"time\":" + jsonString(time.format(FMT)) + "}";
+    }
+
+    /** Data of an {@code orderStatus} stream event. */
+    public static String orderStatusJson(int orderId, String status, Decimal filled, Decimal remaining,
+                                         double avgFillPrice, LocalDateTime time) {
+        return "{"
+            + "\"orderId\":" + orderId + ","
+            + "\"status\":" + jsonString(status) + ","
+            + "\"filled\":" + decimal(filled) + ","
+            + "\"remaining\":" + decimal(remaining) + ","
+            + "\"avgFillPrice\":" + avgFillPrice + ","
+            + "\"time\":" + jsonString(time.format(FMT))
+            + "}";
+    }
+
+    /** Data of a {@code positions} stream event: the account mirror's positions at {@code version}. */
+    public static String positionsEventJson(long version, List<PositionOutput> positions) {
+        return "{\"version\":" + version + ",\"positions\":" + positionsJson(positions) + "}";
+    }
+
     private static String jsonString(String s) {
         if (s == null) return "null";
         return "\"" + s.replace("\\", "\\\\")
@@ -91,6 +196,10 @@ public class JsonBuilder {
                        .replace("\r", "\\r") + "\"";
     }
 
+    private static String decimal(Decimal d) {
+        return Decimal.isValid(d) ? d.value().stripTrailingZeros().toPlainString() : "null";
+    }
+
     private static double round2(double v) {
         return Math.round(v * 100.0) / 100.0;
     }
@@ -1,33 +1,59 @@
 package monitoring;
 
+import com.ib.client.Decimal;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
+import data.AccountMirror;
 import ibkr.IBKRConnection;
 import ibkr.model.PositionOutput;
+import metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import trade.TradeDatabase;
 import trade.TradeJournal;
+import trade.TradeRecord;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 
 public class MonitoringServer {
     private static final Logger log = LoggerFactory.getLogger(MonitoringServer.class);
 
+    private static final int DEFAULT_TRADES_PAGE = 1000;
+    private static final int MAX_TRADES_PAGE = 10_000;
+    private static final int STREAM_BUFFER_BYTES = 16 * 1024;
+    private static final long POSITIONS_EVENT_INTERVAL_MS = 5_000;
+
     private final MonitoringConfig config;
     private final IBKRConnection ibkrConnection;
     private final TradeJournal tradeJournal;
     private final TelegramAlerter telegramAlerter;
+    private final EventStream eventStream = new EventStream();
 
     private HttpServer httpServer;
     private TelegramCommandHandler commandHandler;
     private Thread commandHandlerThread;
+    private ScheduledExecutorService positionsPublisher;
+    private String lastPositionsJson;    // positions publisher thread only
     private final long startTime = System.currentTimeMillis();
 
     private volatile int lastErrorCode = -1;
@@ -55,10 +81,21 @@ public class MonitoringServer {
         httpServer.createContext("/api/status", this::handleStatus);
         httpServer.createContext("/api/positions", this::handlePositions);
         httpServer.createContext("/api/trades", this::handleTrades);
+        httpServer.createContext("/api/stream", this::handleStream);
+        httpServer.createContext("/metrics", this::handleMetrics);
         httpServer.setExecutor(Executors.newFixedThreadPool(4));
         httpServer.start();
         log.info("Monitoring HTTP server started on port {}", config.port);
 
+        tradeJournal.addTradeListener(this::onTrade);
+        positionsPublisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SSE-Positions");
+            t.setDaemon(true);
+            return t;
+        });
+        positionsPublisher.scheduleWithFixedDelay(this::publishPositions,
+                POSITIONS_EVENT_INTERVAL_MS, POSITIONS_EVENT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
         if (config.telegramCommandsEnabled
                 && config.telegramBotToken != null && !config.telegramBotToken.isBlank()
                 && config.telegramChatId != null && !config.telegramChatId.isBlank()) {
@@ -76,6 +113,10 @@ public class MonitoringServer {
         if (commandHandler != null) {
             commandHandler.stop();
         }
+        if (positionsPublisher != null) {
+            positionsPublisher.shutdownNow();
+        }
+        eventStream.close();
         if (httpServer != null) {
             httpServer.stop(2);
             log.info("Monitoring HTTP server stopped");
@@ -91,6 +132,46 @@ public class MonitoringServer {
         telegramAlerter.sendAlert(msg);
     }
 
+    // -------------------------------------------------------------------------
+    // Stream events - called on the TWS threads, so they only queue
+    // -------------------------------------------------------------------------
+
+    public void onConnectionState(IBKRConnection.ConnectionState state) {
+        if (eventStream.hasClients()) {
+            eventStream.publish("connection", JsonBuilder.connectionJson(state, LocalDateTime.now()));
+        }
+    }
+
+    public void onOrderStatus(int orderId, String status, Decimal filled, Decimal remaining, double avgFillPrice) {
+        if (eventStream.hasClients()) {
+            eventStream.publish("orderStatus",
+                    JsonBuilder.orderStatusJson(orderId, status, filled, remaining, avgFillPrice, LocalDateTime.now()));
+        }
+    }
+
+    private void onTrade(TradeRecord trade) {
+        if (eventStream.hasClients()) {
+            eventStream.publish("fill", JsonBuilder.tradeJson(trade));
+        }
+    }
+
+    /** Publishes the mirrored positions when they changed since the last event. */
+    private void publishPositions() {
+        try {
+            AccountMirror.Snapshot mirror = ibkrConnection.getAccountSnapshot();
+            if (!eventStream.hasClients() || !mirror.ready()) {
+                return;
+            }
+            String positions = JsonBuilder.positionsJson(mirror.positions());
+            if (!positions.equals(lastPositionsJson)) {
+                lastPositionsJson = positions;
+                eventStream.publish("positions", JsonBuilder.positionsEventJson(mirror.version(), mirror.positions()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error publishing positions event: {}", e.getMessage());
+        }
+    }
+
     private boolean isAuthorized(HttpExchange exchange) {
         if (config.token == null || config.token.isBlank()
                 || "CHANGE_ME_USE_A_UUID".equals(config.token)) {
@@ -119,10 +200,19 @@ public class MonitoringServer {
             return;
         }
         long uptimeSeconds = (System.currentTimeMillis() - startTime) / 1000;
+        TradeDatabase tradeDb = tradeJournal.getDatabase();
         String json = JsonBuilder.statusJson(
                 ibkrConnection.getConnectionState(),
                 lastErrorCode, lastErrorMsg,
-                tradingMode, uptimeSeconds);
+                tradingMode, uptimeSeconds,
+                ibkrConnection.getIssuedRequestCount(),
+                ibkrConnection.getCoalescedRequestCount(),
+                ibkrConnection.getReusedRequestCount(),
+                ibkrConnection.getSchedulerStats(),
+                ibkrConnection.getContractDetailsCacheStats(),
+                tradeDb != null ? tradeDb.getWriterStats() : null,
+                tradeJournal.getPendingStats(),
+                eventStream.getStats());
         sendResponse(exchange, 200, json);
     }
 
@@ -131,6 +221,11 @@ public class MonitoringServer {
             sendResponse(exchange, 401, "{\"error\":\"Unauthorized\"}");
             return;
         }
+        AccountMirror.Snapshot mirror = ibkrConnection.getAccountSnapshot();
+        if (mirror.ready()) {
+            sendResponse(exchange, 200, JsonBuilder.positionsJson(mirror.positions()));
+            return;
+        }
         try {
             List<PositionOutput> positions = ibkrConnection.reqPositions();
             sendResponse(exchange, 200, JsonBuilder.positionsJson(positions));
@@ -145,15 +240,156 @@ public class MonitoringServer {
         }
     }
 
+    /**
+     * {@code /api/trades[?since=<execId|yyyy-MM-dd[ HH:mm:ss]>][&limit=N]}: one page of completed trades,
+     * oldest first, streamed straight to the exchange (gzip if accepted). Without {@code since} the page
+     * is the newest {@code limit} trades, and its {@code next} is the cursor for polling new fills; earlier
+     * trades are read with a time cursor. {@code since} is exclusive; an execId cursor is found by
+     * scanning back from the newest trade, so a poller passing the {@code next} it got last time only
+     * pays for the trades added since, and a time cursor fetches at most {@code limit + 1} trades. The ETag is the journal
+     * size, which only changes when a fill lands, so an unchanged poll gets a bodiless 304.
+     */
     private void handleTrades(HttpExchange exchange) throws IOException {
         if (!isAuthorized(exchange)) {
             sendResponse(exchange, 401, "{\"error\":\"Unauthorized\"}");
             return;
         }
-        String json = JsonBuilder.tradesJson(
-                tradeJournal.getCompletedTrades(),
-                tradeJournal.getStrategySummaries());
-        sendResponse(exchange, 200, json);
+        Map<String, String> params = queryParams(exchange);
+        String since = params.get("since");
+        int limit;
+        try {
+            limit = params.containsKey("limit")
+                    ? Math.max(1, Math.min(Integer.parseInt(params.get("limit")), MAX_TRADES_PAGE))
+                    : DEFAULT_TRADES_PAGE;
+        } catch (NumberFormatException e) {
+            sendResponse(exchange, 400, "{\"error\":\"Invalid limit\"}");
+            return;
+        }
+
+        // Summaries first: the first all-time query may fold in older history
+        Map<String, TradeJournal.StrategySummary> summaries = tradeJournal.getStrategySummaries();
+        List<TradeRecord> trades = tradeJournal.getCompletedTrades();
+        String etag = "\"" + trades.size() + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        List<TradeRecord> page;
+        if (since == null || since.isBlank()) {
+            page = trades.subList(Math.max(0, trades.size() - limit), trades.size());
+        } else if (isDate(since)) {
+            LocalDateTime from;
+            try {
+                from = since.length() == 10
+                        ? LocalDate.parse(since).atStartOfDay()
+                        : LocalDateTime.parse(since.replace(' ', 'T')).plusNanos(1);
+            } catch (DateTimeParseException e) {
+                sendResponse(exchange, 400, "{\"error\":\"Invalid since time\"}");
+                return;
+            }
+            page = tradeJournal.getTrades(from, null, null, null, limit + 1);    // one extra to set hasMore
+        } else {
+            int index = lastIndexOfExecId(trades, since);
+            if (index < 0) {
+                sendResponse(exchange, 400, "{\"error\":\"Unknown execId cursor\"}");
+                return;
+            }
+            page = trades.subList(index + 1, trades.size());
+        }
+        boolean hasMore = page.size() > limit;
+        if (hasMore) {
+            page = page.subList(0, limit);
+        }
+        String next = page.isEmpty() ? since : page.get(page.size() - 1).getExecId();
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);    // chunked
+        try (OutputStream body = exchange.getResponseBody();
+             OutputStream os = gzip ? new GZIPOutputStream(body, STREAM_BUFFER_BYTES) : body;
+             Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), STREAM_BUFFER_BYTES)) {
+            JsonBuilder.writeTrades(out, page, summaries, hasMore, next);
+        }
+    }
+
+    /**
+     * {@code /api/stream}: Server-Sent Events with the current connection state and positions, then
+     * {@code connection}, {@code orderStatus}, {@code fill} and {@code positions} events as they
+     * happen. Served from the account mirror and journal callbacks, never from TWS requests; see
+     * {@link EventStream} for buffering.
+     */
+    private void handleStream(HttpExchange exchange) throws IOException {
+        if (!isAuthorized(exchange)) {
+            sendResponse(exchange, 401, "{\"error\":\"Unauthorized\"}");
+            return;
+        }
+        if (!eventStream.open(exchange, this::streamSnapshot)) {
+            sendResponse(exchange, 503, "{\"error\":\"Too many stream clients\"}");
+        }
+    }
+
+    /** Current connection state and, once the mirror is ready, positions; taken after the client is registered. */
+    private List<String[]> streamSnapshot() {
+        List<String[]> snapshot = new ArrayList<>();
+        snapshot.add(new String[]{"connection",
+                JsonBuilder.connectionJson(ibkrConnection.getConnectionState(), LocalDateTime.now())});
+        AccountMirror.Snapshot mirror = ibkrConnection.getAccountSnapshot();
+        if (mirror.ready()) {
+            snapshot.add(new String[]{"positions", JsonBuilder.positionsEventJson(mirror.version(), mirror.positions())});
+        }
+        return snapshot;
+    }
+
+    /** {@code /metrics}: every {@link Metrics} counter and histogram in the Prometheus text format. */
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!isAuthorized(exchange)) {
+            sendResponse(exchange, 401, "{\"error\":\"Unauthorized\"}");
+            return;
+        }
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        Metrics.writeTo(sb);
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static int lastIndexOfExecId(List<TradeRecord> trades, String execId) {
+        for (int i = trades.size() - 1; i >= 0; i--) {
+            if (execId.equals(trades.get(i).getExecId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDate(String s) {
+        return s.length() >= 10 && s.charAt(4) == '-' && s.charAt(7) == '-';
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
     }
 
     private void sendResponse(HttpExchange exchange, int statusCode, String body) throws IOException {
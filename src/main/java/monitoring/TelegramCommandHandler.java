@@ -6,7 +6,6 @@ import ibkr.model.PositionOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import trade.TradeJournal;
-import trade.TradeRecord;
 
 import java.net.URI;
 import java.net.URLEncoder;
@@ -15,6 +14,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -209,19 +209,17 @@ public class TelegramCommandHandler implements Runnable {
     }
 
     private String buildPnLReply() {
-        List<TradeRecord> trades = tradeJournal.getCompletedTrades();
-        List<TradeRecord> closingTrades = trades.stream()
-                .filter(TradeRecord::isClosingTrade)
-                .collect(Collectors.toList());
+        TradeJournal.StrategySummary totals = tradeJournal.getTotalSummary(LocalDate.MIN);
+        int closed = totals.closedTrades();
 
-        if (closingTrades.isEmpty()) return "💰 <b>P&amp;L</b>\n\nNo closed trades.";
+        if (closed == 0) return "💰 <b>P&amp;L</b>\n\nNo closed trades.";
 
-        int winners = (int) closingTrades.stream().filter(t -> t.getNetPnL() > 0).count();
-        double netPnL = closingTrades.stream().mapToDouble(TradeRecord::getNetPnL).sum();
-        double commission = trades.stream().mapToDouble(TradeRecord::getCommission).sum();
+        int winners = totals.winningTrades();
+        double netPnL = totals.totalNetPnL();
+        double commission = totals.totalCommission();
 
         String emoji = netPnL >= 0 ? "📈" : "📉";
-        int winPct = (int) (100.0 * winners / closingTrades.size());
+        int winPct = (int) (100.0 * winners / closed);
 
         return String.format(
                 "%s <b>P&amp;L Summary</b>\n\n" +
@@ -230,8 +228,8 @@ public class TelegramCommandHandler implements Runnable {
                 "Net P&amp;L: <b>%s$%.2f</b>\n" +
                 "Commission: <b>-$%.2f</b>",
                 emoji,
-                closingTrades.size(),
-                winners, closingTrades.size(), winPct,
+                closed,
+                winners, closed, winPct,
                 netPnL >= 0 ? "+" : "-", Math.abs(netPnL),
                 Math.abs(commission));
     }
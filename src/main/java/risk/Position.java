@@ -1,10 +1,12 @@
 package risk;
 
 import com.ib.client.*;
-import ibkr.IBKRConnection;
+import data.BarSeries;
+import ibkr.Broker;
 import ibkr.model.AccountSummaryOutput;
 import ibkr.model.PositionOutput;
 import indicators.ATR;
+import strategy.BullFlagParams;
 import util.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,19 +26,19 @@ public class Position {
     // this class needs to know account balance/buying
 
     // also differentitate strategies type
-    IBKRConnection ibkrConnection;
+    Broker broker;
     private final double RISK_MULTIPLE = 1.5;
 
-    public Position(IBKRConnection ibkrConnection) {
-        this.ibkrConnection = ibkrConnection;
+    public Position(Broker broker) {
+        this.broker = broker;
     }
 
     //    * NetLiquidation = Total account value (cash + positions)
 //    * AvailableFunds = Funds available for trading
     // need availblefunds to see if can trade enuf money and use netliqudation to do position sizing
-    public void calculateEntryLowFloatMomentum(Contract contract, Bar firstBullishBar, List<Bar> historicalBars, String strategyName) throws ExecutionException, InterruptedException, TimeoutException {
+    public void calculateEntryLowFloatMomentum(Contract contract, BarSeries historicalBars, int firstBullishBar, String strategyName) throws ExecutionException, InterruptedException, TimeoutException {
         // for shares - we need use whole numbers as TWS API dont allow for fractional shares
-        ContractDetails contractDetails = ibkrConnection.reqContractDetails(contract);
+        ContractDetails contractDetails = broker.reqContractDetails(contract);
 
         // Debug: Check what minTick IBKR returns
         double minTick = contractDetails.minTick();
@@ -44,17 +46,17 @@ public class Position {
                 contract.symbol(), minTick, Helper.countDecimals(minTick));
 
         // cash
-        List<AccountSummaryOutput> accountSummaryOutputList = ibkrConnection.reqAccountSummary("NetLiquidation,AvailableFunds,BuyingPower,HighestSeverity");
+        List<AccountSummaryOutput> accountSummaryOutputList = broker.reqAccountSummary("NetLiquidation,AvailableFunds,BuyingPower,HighestSeverity");
         double netLiquidation = AccountSummaryOutput.getValueWithTag(accountSummaryOutputList, "NetLiquidation");
         double availableFunds = AccountSummaryOutput.getValueWithTag(accountSummaryOutputList, "AvailableFunds");
 
         //TODO: Hardcode with my own mintick
-        double entryPrice = roundToTick((firstBullishBar.high() + Constants.STANDARD_TICK_SIZE * 3)
+        double entryPrice = roundToTick((historicalBars.high(firstBullishBar) + Constants.STANDARD_TICK_SIZE * 3)
                 , Constants.STANDARD_TICK_SIZE
                 , false);
 
 
-        double vwap = firstBullishBar.wap().value().doubleValue();
+        double vwap = historicalBars.vwap(firstBullishBar);
         double atr = ATR.calculate(historicalBars, 10);
 
         //TODO: check this ATR multiplier
@@ -98,44 +100,78 @@ public class Position {
         stopLossOrder.transmit(true);  // NOW TRANSMIT ALL THREE
         stopLossOrder.orderRef(strategyName);
 
-        ibkrConnection.placeBracketOrders(contract, parentOrder, takeProfitOrder, stopLossOrder);
+        placeBracket(contract, parentOrder, takeProfitOrder, stopLossOrder);
     }
 
 
     /**
-     * Bull Flag Breakout entry: BUY LIMIT at flagHigh + 3 ticks,
-     * stop at flagLow, target at 2.0× R:R.
+     * Sends the bracket unless the evaluating thread has been interrupted: a candidate cancelled at its
+     * cycle deadline is working from a stale bar and must not place an order after the cycle ended.
+     */
+    private void placeBracket(Contract contract, Order parentOrder, Order takeProfitOrder, Order stopLossOrder)
+            throws InterruptedException {
+        if (Thread.interrupted()) {
+            log.warn("[{}] Evaluation cancelled - bracket order not placed", contract.symbol());
+            throw new InterruptedException("Cancelled before placing bracket order for " + contract.symbol());
+        }
+        broker.placeBracketOrders(contract, parentOrder, takeProfitOrder, stopLossOrder);
+    }
+
+    /** Entry, stop and target of a long bracket. */
+    public record BracketPrices(double entry, double stopLoss, double takeProfit) {
+        /** Stop distance as a fraction of the entry price. */
+        public double riskWidth() {
+            return (entry - stopLoss) / entry;
+        }
+    }
+
+    /**
+     * Bull flag bracket prices: BUY LIMIT {@code entryOffsetTicks} above the flag high (rounded up),
+     * stop at the flag low (rounded down), target at {@code rewardRiskRatio}× the stop distance.
+     * The caller must check that the stop is below the entry and the width is acceptable.
+     */
+    public static BracketPrices bullFlagBracket(double flagHigh, double flagLow, BullFlagParams params) {
+        double entryPrice = roundToTick(flagHigh + Constants.STANDARD_TICK_SIZE * params.getEntryOffsetTicks(),
+                Constants.STANDARD_TICK_SIZE, false);
+        double stopLossPrice = roundToTick(flagLow, Constants.STANDARD_TICK_SIZE, true);
+        double takeProfitPrice = roundToTick(entryPrice + (entryPrice - stopLossPrice) * params.getRewardRiskRatio(),
+                Constants.STANDARD_TICK_SIZE, true);
+        return new BracketPrices(entryPrice, stopLossPrice, takeProfitPrice);
+    }
+
+    /**
+     * Bull Flag Breakout entry: BUY LIMIT at flagHigh + {@code entryOffsetTicks} ticks,
+     * stop at flagLow, target at {@code rewardRiskRatio}× R:R.
      *
      * @param contract       the stock to trade
-     * @param breakoutBar    the current (breakout) bar — used for logging only
+     * @param historicalBars full bar history
+     * @param breakoutBar    index of the current (breakout) bar in {@code historicalBars} — used for logging only
      * @param flagHigh       highest high of the flag consolidation bars
      * @param flagLow        lowest low of the flag consolidation bars
-     * @param historicalBars full bar history (used for ATR sanity reference)
+     * @param params         bracket offsets and limits
      * @param strategyName   written into orderRef for all three bracket legs
      */
-    public void calculateEntryBullFlag(Contract contract, Bar breakoutBar,
-            double flagHigh, double flagLow, List<Bar> historicalBars, String strategyName)
+    public void calculateEntryBullFlag(Contract contract, BarSeries historicalBars, int breakoutBar,
+            double flagHigh, double flagLow, BullFlagParams params, String strategyName)
             throws ExecutionException, InterruptedException, TimeoutException {
 
         String symbol = contract.symbol();
         log.info("[{}] calculateEntryBullFlag called — flagHigh={}, flagLow={}, breakoutBar=[close={}, open={}, vwap={}]",
-                symbol, flagHigh, flagLow, breakoutBar.close(), breakoutBar.open(), breakoutBar.wap());
+                symbol, flagHigh, flagLow, historicalBars.close(breakoutBar), historicalBars.open(breakoutBar),
+                historicalBars.vwap(breakoutBar));
 
-        ContractDetails contractDetails = ibkrConnection.reqContractDetails(contract);
+        ContractDetails contractDetails = broker.reqContractDetails(contract);
         log.info("[{}] Contract minTick: {}", symbol, contractDetails.minTick());
 
-        List<AccountSummaryOutput> accountSummary = ibkrConnection.reqAccountSummary(
+        List<AccountSummaryOutput> accountSummary = broker.reqAccountSummary(
                 "NetLiquidation,AvailableFunds,BuyingPower,HighestSeverity");
         double netLiquidation = AccountSummaryOutput.getValueWithTag(accountSummary, "NetLiquidation");
         double availableFunds = AccountSummaryOutput.getValueWithTag(accountSummary, "AvailableFunds");
         log.info("[{}] Account — netLiquidation={}, availableFunds={}", symbol, netLiquidation, availableFunds);
 
-        // Entry: just above flag high (round UP to next tick)
-        double entryPrice = roundToTick(flagHigh + Constants.STANDARD_TICK_SIZE * 3,
-                Constants.STANDARD_TICK_SIZE, false);
-
-        // Stop: flag low (round DOWN to protect the stop)
-        double stopLossPrice = roundToTick(flagLow, Constants.STANDARD_TICK_SIZE, true);
+        BracketPrices bracket = bullFlagBracket(flagHigh, flagLow, params);
+        double entryPrice = bracket.entry();
+        double stopLossPrice = bracket.stopLoss();
 
         // Defensive guard: stop must be below entry
         if (stopLossPrice >= entryPrice) {
@@ -144,9 +180,9 @@ public class Position {
         }
 
         // Defensive guard: stop width
-        double riskWidth = (entryPrice - stopLossPrice) / entryPrice;
-        if (riskWidth > 0.03) {
-            log.warn("[{}] SKIP: risk too wide ({:.2f}%) — flagHigh={}, flagLow={}, entry={}, stop={}",
+        double riskWidth = bracket.riskWidth();
+        if (riskWidth > params.getMaxRiskWidth()) {
+            log.warn("[{}] SKIP: risk too wide ({}%) — flagHigh={}, flagLow={}, entry={}, stop={}",
                     symbol, String.format("%.2f", riskWidth * 100), flagHigh, flagLow, entryPrice, stopLossPrice);
             return;
         }
@@ -160,11 +196,10 @@ public class Position {
             return;
         }
 
-        double takeProfitPrice = calculateTakeProfitPrice(entryPrice, stopLossPrice, 2.0,
-                Constants.STANDARD_TICK_SIZE, true);
+        double takeProfitPrice = bracket.takeProfit();
 
-        orderLog.info("[{}] BullFlag ORDER — entry={}, stop={}, takeProfit={}, size={}, R:R=2.0, riskWidth={:.2f}%, strategy={}",
-                symbol, entryPrice, stopLossPrice, takeProfitPrice, positionSize,
+        orderLog.info("[{}] BullFlag ORDER — entry={}, stop={}, takeProfit={}, size={}, R:R={}, riskWidth={}%, strategy={}",
+                symbol, entryPrice, stopLossPrice, takeProfitPrice, positionSize, params.getRewardRiskRatio(),
                 String.format("%.2f", riskWidth * 100), strategyName);
 
         // --- Parent BUY LIMIT ---
@@ -196,7 +231,7 @@ public class Position {
 
         log.info("[{}] Placing bracket order — parent BUY LMT @ {}, TP SELL LMT @ {}, SL SELL STP @ {}, qty={}",
                 symbol, entryPrice, takeProfitPrice, stopLossPrice, positionSize);
-        ibkrConnection.placeBracketOrders(contract, parentOrder, takeProfitOrder, stopLossOrder);
+        placeBracket(contract, parentOrder, takeProfitOrder, stopLossOrder);
         log.info("[{}] Bracket order placed successfully", symbol);
     }
 
@@ -265,7 +300,7 @@ public class Position {
             order.orderType("MKT");
             order.tif("GTC");
 
-            ibkrConnection.placeOrder(contract, order);
+            broker.placeOrder(contract, order);
         }
 
     }
@@ -3,15 +3,21 @@ package risk;
 import com.ib.client.*;
 import ibkr.model.OrderOutput;
 import ibkr.model.PositionOutput;
+import ibkr.model.Quote;
 import ibkr.model.TickPriceOutput;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.Constants;
+
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 public class RiskManager {
+    private static final Logger log = LoggerFactory.getLogger(RiskManager.class);
 
     //get trade info and this file will check if only one stock can be traded at one time
     // check rules like certain time do we still have trades - done
@@ -23,6 +29,17 @@ public class RiskManager {
     // Maximum acceptable spread as percentage of mid price (e.g., 0.03 = 3%)
     private static final double MAX_SPREAD_PERCENT = 0.03;
 
+    // Source of "now" for the trading-hours check; a backtest passes its simulated clock
+    private final Clock clock;
+
+    public RiskManager() {
+        this(Constants.EASTERN_CLOCK);
+    }
+
+    public RiskManager(Clock clock) {
+        this.clock = clock;
+    }
+
     /**
      * Checks if the bid-ask spread is acceptable for trading.
      * Wide spreads indicate low liquidity and higher trading costs.
@@ -45,7 +62,7 @@ public class RiskManager {
      */
     public boolean checkBidAskSpread(double bidPrice, double askPrice, double maxSpreadPercent) {
         if (bidPrice <= 0 || askPrice <= 0 || bidPrice >= askPrice) {
-            System.out.println("RiskManager: Invalid bid/ask prices - Bid: " + bidPrice + ", Ask: " + askPrice);
+            log.info("Invalid bid/ask prices - Bid: {}, Ask: {}", bidPrice, askPrice);
             return false;
         }
 
@@ -53,12 +70,12 @@ public class RiskManager {
         double midPrice = (bidPrice + askPrice) / 2;
         double spreadPercent = spread / midPrice;
 
-        System.out.printf("RiskManager: Bid: %.4f, Ask: %.4f, Spread: %.4f (%.2f%%)%n",
-                bidPrice, askPrice, spread, spreadPercent * 100);
+        log.debug("Bid: {}, Ask: {}, Spread: {} ({}%)",
+                bidPrice, askPrice, String.format("%.4f", spread), String.format("%.2f", spreadPercent * 100));
 
         if (spreadPercent > maxSpreadPercent) {
-            System.out.printf("RiskManager: Spread too wide! %.2f%% > %.2f%% max%n",
-                    spreadPercent * 100, maxSpreadPercent * 100);
+            log.info("Spread too wide! {}% > {}% max",
+                    String.format("%.2f", spreadPercent * 100), String.format("%.2f", maxSpreadPercent * 100));
             return false;
         }
 
@@ -84,34 +101,72 @@ public class RiskManager {
         }
 
         if (bidPrice == null || askPrice == null) {
-            System.out.println("RiskManager: Missing bid or ask price from tick data");
+            log.info("Missing bid or ask price from tick data");
             return false;
         }
 
         return checkBidAskSpread(bidPrice, askPrice);
     }
 
+    /**
+     * Checks the spread from a cached streaming quote (no network round trip).
+     *
+     * @param quote Latest quote from the quote cache
+     * @return true if spread is acceptable, false if too wide or missing data
+     */
+    public boolean checkBidAskSpread(Quote quote) {
+        if (quote == null || !quote.hasBidAsk()) {
+            log.info("Missing bid or ask price from quote cache");
+            return false;
+        }
+        return checkBidAskSpread(quote.getBid(), quote.getAsk());
+    }
+
     public boolean isStockTradeable(List<TickPriceOutput> tickPrices, String tradingHours) {
         boolean pastLimit = tickPrices.stream()
                 .filter(x -> x.getAttribs() != null)
                 .anyMatch(x -> x.getAttribs().pastLimit());
 
         if (pastLimit){
-            System.out.println("RiskManager: Stock at LULD limit - potential halt");
+            log.info("Stock at LULD limit - potential halt");
             return false;
         }
 
+        return isWithinTradingHours(tradingHours);
+    }
+
+    /**
+     * Same checks as {@link #isStockTradeable(List, String)} but reads halt/LULD state
+     * from a cached streaming quote instead of a snapshot tick list.
+     */
+    public boolean isStockTradeable(Quote quote, String tradingHours) {
+        if (quote == null) {
+            log.info("No quote available");
+            return false;
+        }
+        if (quote.isHalted()) {
+            log.info("Stock halted");
+            return false;
+        }
+        if (quote.isPastLimit()) {
+            log.info("Stock at LULD limit - potential halt");
+            return false;
+        }
+
+        return isWithinTradingHours(tradingHours);
+    }
+
+    private boolean isWithinTradingHours(String tradingHours) {
         // Use Eastern Time (US market)
-        ZoneId eastern = ZoneId.of("America/New_York");
-        LocalDateTime now = LocalDateTime.now(eastern);
+        LocalDateTime now = LocalDateTime.now(clock.withZone(Constants.EASTERN));
         String today = now.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        System.out.println(tradingHours);
+        log.debug("Trading hours: {}", tradingHours);
         String[] days = tradingHours.split(";");
 
         for (String day : days) {
             if (day.startsWith(today)){
                 if (day.contains("CLOSED")) {
-                    System.out.println("RiskManager: Market CLOSED today");
+                    log.info("Market CLOSED today");
                     return false;
                 }
 
@@ -130,20 +185,20 @@ public class RiskManager {
                 LocalTime closeTime = LocalTime.parse(closeTimeStr, DateTimeFormatter.ofPattern("HHmm"));
                 LocalTime currentTime = now.toLocalTime();
 
-                System.out.printf("RiskManager: Market hours %s - %s, Current: %s%n",
+                log.debug("Market hours {} - {}, Current: {}",
                         openTime, closeTime, currentTime);
 
                 boolean isOpen = !currentTime.isBefore(openTime) && currentTime.isBefore(closeTime);
 
                 if (!isOpen) {
-                    System.out.println("RiskManager: Outside trading hours");
+                    log.info("Outside trading hours");
                 }
 
                 return isOpen;
             }
         }
 
-        System.out.println("RiskManager: Today not found in trading schedule");
+        log.info("Today not found in trading schedule");
         return false;
     }
 
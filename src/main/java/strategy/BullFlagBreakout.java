@@ -1,18 +1,25 @@
 package strategy;
 
 import com.ib.client.*;
-import ibkr.IBKRConnection;
+import data.BarSeries;
+import ibkr.Broker;
 import ibkr.model.*;
 import risk.Position;
 import risk.RiskManager;
+import strategy.BullFlagDetector.FlagSetup;
+import strategy.BullFlagDetector.SymbolState;
 
+import java.time.Duration;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,40 +35,40 @@ import org.slf4j.LoggerFactory;
  *
  * All averages are computed over a rolling 20-bar window for self-calibration.
  * Window: 9:30–11:30 AM ET
+ *
+ * The state machine itself is {@link BullFlagDetector}; its thresholds and the bracket sizing are
+ * in {@link BullFlagParams}.
  */
 public class BullFlagBreakout implements Strategy {
 
     private static final Logger log = LoggerFactory.getLogger(BullFlagBreakout.class);
     private static final Logger orderLog = LoggerFactory.getLogger("ORDER_AUDIT");
 
-    private final IBKRConnection ibkrConnection;
+    private final Broker broker;
     private final Position position;
     private final RiskManager riskManager;
 
-    private static final int    ROLLING_WINDOW             = 10;
-    private static final int    ROLLING_MIN_BARS           = 5;    // minimum bars before averages are trusted
-    private static final double POLE_BODY_MULTIPLIER       = 1.1;  // pole bar body ≥ 1.1× avgBody
-    private static final double POLE_VOLUME_MULTIPLIER     = 1.2;  // pole bar vol  ≥ 1.2× avgVol
-    private static final double FLAG_DEPTH_RATIO           = 0.70; // pullback ≤ 70% of pole range
-    private static final double FLAG_VOLUME_MULTIPLIER     = 1.3;  // flag bar vol  < 1.3× baselineAvgVol (orderly pullback)
-    private static final double BREAKOUT_VOLUME_MULTIPLIER = 1.0;  // breakout vol ≥ 1.0× avgVol (at or above baseline)
-    private static final int    FLAG_MAX_BARS              = 8;    // abandon flag after 8 bars with no breakout
-    private static final int    FLAG_MAX_RED_BARS          = 5;    // max red candles in flag before reset
-    private static final int    POLE_MAX_NON_QUAL          = 3;    // max non-qualifying greens in POLE_FORMING before reset
-
-    public BullFlagBreakout(IBKRConnection ibkrConnection, Position position, RiskManager riskManager) {
-        this.ibkrConnection = ibkrConnection;
-        this.position = position;
-        this.riskManager = riskManager;
-    }
+    private static final int    MAX_CONCURRENT_CANDIDATES     = 4;
+    private static final int    CYCLE_DEADLINE_MARGIN_SECONDS = 10;   // candidates still running this close to the next cycle are cancelled
 
-    // -------------------------------------------------------------------------
-    // State machine types
-    // -------------------------------------------------------------------------
+    private final CandidateEvaluator candidateEvaluator = new CandidateEvaluator("BullFlagBreakout", MAX_CONCURRENT_CANDIDATES);
+    // symbol -> incremental state machine, for symbols currently returned by the scanner
+    private final Map<String, SymbolState> symbolStates = new ConcurrentHashMap<>();
+    // Held across blocking TWS requests on candidate threads: a ReentrantLock, since a monitor would pin
+    // a virtual thread's carrier while it waits
+    private final ReentrantLock entryLock = new ReentrantLock();
+    private final BullFlagDetector detector;
 
-    private enum State { IDLE, POLE_FORMING, FLAG_FORMING }
+    public BullFlagBreakout(Broker broker, Position position, RiskManager riskManager) {
+        this(broker, position, riskManager, BullFlagParams.DEFAULTS);
+    }
 
-    private record FlagSetup(Bar breakoutBar, double poleTopHigh, double flagLow) {}
+    public BullFlagBreakout(Broker broker, Position position, RiskManager riskManager, BullFlagParams params) {
+        this.broker = broker;
+        this.position = position;
+        this.riskManager = riskManager;
+        this.detector = new BullFlagDetector(params);
+    }
 
     // -------------------------------------------------------------------------
     // Strategy interface
@@ -94,71 +101,95 @@ public class BullFlagBreakout implements Strategy {
         List<ScanData> filteredStocks = scanLowFloatMovers();
         log.info("[BullFlagBreakout] Scanner returned {} candidates", filteredStocks.size());
 
-        List<OrderOutput> orders = ibkrConnection.reqAllOpenOrder();
-        List<PositionOutput> positions = ibkrConnection.reqPositions();
+        List<OrderOutput> orders = broker.reqAllOpenOrder();
+        List<PositionOutput> positions = broker.reqPositions();
 
+        List<ScanData> candidates = new ArrayList<>();
         for (ScanData scanResult : filteredStocks) {
             if (scanResult.getContractDetails() == null || scanResult.getContractDetails().contract() == null) {
                 log.warn("[BullFlagBreakout] Skipping scan result with null contract details");
                 continue;
             }
+            candidates.add(scanResult);
+        }
 
-            Contract contract = scanResult.getContractDetails().contract();
-            String symbol = contract.symbol();
-            log.debug("[{}] Evaluating candidate (rank={})", symbol, scanResult.getRank());
+        // Symbols that dropped out of the scanner start from scratch if they come back
+        Set<String> candidateSymbols = new HashSet<>();
+        candidates.forEach(c -> candidateSymbols.add(c.getContractDetails().contract().symbol()));
+        symbolStates.keySet().retainAll(candidateSymbols);
 
-            // --- Historical data ---
-            List<Bar> historicalPrices = getHistoricalPrice(contract);
-            if (historicalPrices.isEmpty()) {
-                log.warn("[{}] SKIP: No historical price data available", symbol);
-                continue;
-            }
-            log.debug("[{}] Retrieved {} historical bars", symbol, historicalPrices.size());
+        candidateEvaluator.evaluateAll(candidates,
+                c -> c.getContractDetails().contract().symbol(),
+                c -> evaluateCandidate(c, orders, positions),
+                Duration.ofSeconds(getIntervalSeconds() - CYCLE_DEADLINE_MARGIN_SECONDS));
 
-            // --- Safety checks ---
-            ContractDetails contractDetails = ibkrConnection.reqContractDetails(contract);
-            List<TickPriceOutput> tickPrices = getTickPrice(contract);
-            boolean isStockTradeable = riskManager.isStockTradeable(tickPrices, contractDetails.tradingHours());
-            boolean hasOrder = riskManager.hasOrder(orders, symbol);
-            boolean hasPosition = riskManager.hasPosition(positions, symbol);
+        log.debug("[BullFlagBreakout] Strategy cycle complete");
+    }
 
-            if (!isStockTradeable) {
-                log.info("[{}] SKIP: Stock not tradeable (halted or outside hours)", symbol);
-                continue;
-            }
-            if (hasOrder) {
-                log.info("[{}] SKIP: Already has open order", symbol);
-                continue;
-            }
-            if (hasPosition) {
-                log.info("[{}] SKIP: Already has position", symbol);
-                continue;
-            }
+    /** Evaluates one scanner candidate; runs concurrently with the cycle's other candidates. */
+    private void evaluateCandidate(ScanData scanResult, List<OrderOutput> orders, List<PositionOutput> positions)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Contract contract = scanResult.getContractDetails().contract();
+        String symbol = contract.symbol();
+        log.debug("[{}] Evaluating candidate (rank={})", symbol, scanResult.getRank());
+
+        // --- Historical data ---
+        BarSeries historicalPrices = getHistoricalPrice(contract);
+        if (historicalPrices.isEmpty()) {
+            log.warn("[{}] SKIP: No historical price data available", symbol);
+            return;
+        }
+        log.debug("[{}] Retrieved {} historical bars", symbol, historicalPrices.size());
+
+        // --- Safety checks ---
+        ContractDetails contractDetails = broker.reqContractDetails(contract);
+        Quote quote = broker.reqQuote(contract);
+        boolean isStockTradeable = riskManager.isStockTradeable(quote, contractDetails.tradingHours());
+        boolean hasOrder = riskManager.hasOrder(orders, symbol);
+        boolean hasPosition = riskManager.hasPosition(positions, symbol);
+
+        if (!isStockTradeable) {
+            log.info("[{}] SKIP: Stock not tradeable (halted or outside hours)", symbol);
+            return;
+        }
+        if (hasOrder) {
+            log.info("[{}] SKIP: Already has open order", symbol);
+            return;
+        }
+        if (hasPosition) {
+            log.info("[{}] SKIP: Already has position", symbol);
+            return;
+        }
 
-            // --- State-machine setup detection ---
-            FlagSetup setup = findSetup(historicalPrices, symbol);
-            if (setup == null) {
-                log.info("[{}] SKIP: No bull flag setup found in {} bars", symbol, historicalPrices.size());
-                continue;
-            }
+        // --- State-machine setup detection ---
+        FlagSetup setup = findSetup(historicalPrices, symbol);
+        if (setup == null) {
+            log.info("[{}] SKIP: No bull flag setup found in {} bars", symbol, historicalPrices.size());
+            return;
+        }
 
-            // --- Freshness check: breakout must be the current bar ---
-            String lastBarTime = historicalPrices.getLast().time();
-            if (!setup.breakoutBar().time().equals(lastBarTime)) {
-                log.info("[{}] SKIP: Stale setup (breakout was at {}, current bar is {})",
-                        symbol, setup.breakoutBar().time(), lastBarTime);
-                continue;
-            }
+        // --- Freshness check: breakout must be the current bar ---
+        int lastBar = historicalPrices.lastIndex();
+        if (setup.breakoutTime() != historicalPrices.time(lastBar)) {
+            log.info("[{}] SKIP: Stale setup (breakout was at {}, current bar is {})",
+                    symbol, historicalPrices.formatTime(setup.breakoutIndex()), historicalPrices.formatTime(lastBar));
+            return;
+        }
 
-            log.info("[{}] *** SETUP CONFIRMED *** poleTopHigh={}, flagLow={}, breakoutClose={}, breakoutTime={}",
-                     symbol, setup.poleTopHigh(), setup.flagLow(),
-                     setup.breakoutBar().close(), setup.breakoutBar().time());
+        log.info("[{}] *** SETUP CONFIRMED *** poleTopHigh={}, flagLow={}, breakoutClose={}, breakoutTime={}",
+                 symbol, setup.poleTopHigh(), setup.flagLow(),
+                 historicalPrices.close(lastBar), historicalPrices.formatTime(lastBar));
 
-            position.calculateEntryBullFlag(contract, setup.breakoutBar(),
-                    setup.poleTopHigh(), setup.flagLow(), historicalPrices, getName());
+        // One entry at a time, so concurrent breakouts are sized and sent in turn rather than interleaved.
+        // The account summary read here does not reserve funds: orders an earlier entry just queued are
+        // not reflected in it yet.
+        entryLock.lockInterruptibly();
+        try {
+            position.calculateEntryBullFlag(contract, historicalPrices, lastBar,
+                    setup.poleTopHigh(), setup.flagLow(), detector.params(), getName());
+        } finally {
+            entryLock.unlock();
         }
-
-        log.debug("[BullFlagBreakout] Strategy cycle complete");
     }
 
     // -------------------------------------------------------------------------
@@ -166,301 +197,33 @@ public class BullFlagBreakout implements Strategy {
     // -------------------------------------------------------------------------
 
     /**
-     * Runs a Pole → Flag → Breakout state machine over {@code bars} in
-     * chronological order, skipping bars before 9:30 AM.
-     * Returns the <em>last</em> valid {@link FlagSetup} found, or {@code null}.
+     * Returns the <em>last</em> valid {@link FlagSetup} in the session series {@code bars}, or {@code null}.
+     *
+     * The Pole → Flag → Breakout state machine is kept per symbol and advanced incrementally: completed
+     * bars are committed once, and only the forming (last) bar is stepped on a copy of the committed state
+     * each cycle, so per-cycle work is O(1) per symbol. The state resets when the session series is
+     * re-seeded (new first bar) and when the symbol drops out of the scanner.
+     * Bars before 9:30 AM are skipped so pre-market candles never enter the rolling averages.
      */
-    FlagSetup findSetup(List<Bar> bars, String symbol) {
-        // Pre-filter to market-hours bars only so rolling averages are never
-        // polluted by pre-market candles (tiny bodies, near-zero volume).
-        List<Bar> marketBars = new ArrayList<>();
-        for (Bar b : bars) {
-            if (!parseBarTime(b.time()).isBefore(LocalTime.of(9, 30))) {
-                marketBars.add(b);
+    FlagSetup findSetup(BarSeries bars, String symbol) {
+        if (bars.isEmpty()) return null;
+        SymbolState committed = symbolStates.computeIfAbsent(symbol, k -> detector.newState());
+        synchronized (committed) {
+            int lastIndex = bars.lastIndex();
+            long firstBarTime = bars.time(0);
+            if (firstBarTime != committed.firstBarTime || committed.consumed > lastIndex) {
+                log.debug("[{}] New bar series (first bar {}) — resetting bull flag state", symbol, firstBarTime);
+                committed.reset(firstBarTime);
             }
-        }
-
-        State state = State.IDLE;
-        List<Bar> poleCandles = new ArrayList<>();
-        List<Bar> flagCandles = new ArrayList<>();
-        double poleTopHigh      = 0.0;
-        double poleRange        = 0.0;
-        double flagLow          = Double.MAX_VALUE;
-        double priorRedHigh     = 0.0;
-        int    flagBarsTotal    = 0;
-        int    poleNonQualCount = 0;  // consecutive non-qualifying greens in POLE_FORMING
-        // Frozen pre-pole baseline — used for all post-detection checks so that
-        // the pole's own large body/volume doesn't inflate the rolling average.
-        double baselineAvgBody  = 0.0;
-        double baselineAvgVol   = 0.0;
-        FlagSetup lastSetup     = null;
-
-        for (int i = 0; i < marketBars.size(); i++) {
-            Bar bar = marketBars.get(i);
-
-            double avgBody = avgBodySize(marketBars, i);
-            double avgVol  = avgVolume(marketBars, i);
-
-            if (avgBody == 0.0 || avgVol == 0.0) {
-                log.debug("[{}] SKIP bar {}: insufficient history for rolling averages", symbol, bar.time());
-                continue;
+            for (int i = committed.consumed; i < lastIndex; i++) {
+                detector.advance(committed, bars, i, symbol);
             }
+            committed.consumed = lastIndex;
 
-            double body = Math.abs(bar.close() - bar.open());
-            double vol  = bar.volume().value().doubleValue();
-
-            switch (state) {
-                case IDLE -> {
-                    if (isGreen(bar)
-                            && body >= POLE_BODY_MULTIPLIER * avgBody
-                            && vol  >= POLE_VOLUME_MULTIPLIER * avgVol) {
-                        // Snapshot clean baseline before pole bars enter the rolling window
-                        baselineAvgBody = avgBody;
-                        baselineAvgVol  = avgVol;
-                        poleCandles = new ArrayList<>();
-                        poleCandles.add(bar);
-                        state = State.POLE_FORMING;
-                        log.info("[{}] PASS: Pole started at {} (body={}, baselineAvgBody={}, vol={}, baselineAvgVol={})",
-                                symbol, bar.time(),
-                                String.format("%.4f", body), String.format("%.4f", baselineAvgBody),
-                                String.format("%.0f", vol), String.format("%.0f", baselineAvgVol));
-                    } else {
-                        log.debug("[{}] IDLE bar {} does not qualify as pole start", symbol, bar.time());
-                    }
-                }
-
-                case POLE_FORMING -> {
-                    if (isGreen(bar)
-                            && body >= POLE_BODY_MULTIPLIER * baselineAvgBody
-                            && vol  >= POLE_VOLUME_MULTIPLIER * baselineAvgVol) {
-                        poleNonQualCount = 0;
-                        poleCandles.add(bar);
-                        if (poleCandles.size() > 4) {
-                            log.info("[{}] SKIP: Parabolic pole ({} big green candles) — resetting IDLE",
-                                    symbol, poleCandles.size());
-                            state = State.IDLE;
-                            poleNonQualCount = 0;
-                        }
-                    } else if (isRed(bar)) {
-                        poleNonQualCount = 0;
-                        // Pole complete — transition to flag
-                        poleTopHigh  = poleCandles.stream().mapToDouble(Bar::high).max().orElse(0.0);
-                        double poleBottomLow = poleCandles.stream().mapToDouble(Bar::low).min().orElse(poleCandles.getFirst().low());
-                        poleRange    = poleTopHigh - poleBottomLow;
-
-                        if (poleRange <= 0) {
-                            log.warn("[{}] SKIP: Pole range is zero — resetting IDLE", symbol);
-                            state = State.IDLE;
-                            break;
-                        }
-
-                        // Validate first flag bar
-                        double depth = poleTopHigh - bar.low();
-                        if (depth <= FLAG_DEPTH_RATIO * poleRange && vol < FLAG_VOLUME_MULTIPLIER * baselineAvgVol) {
-                            flagCandles  = new ArrayList<>();
-                            flagCandles.add(bar);
-                            flagLow      = bar.low();
-                            priorRedHigh = bar.high();
-                            flagBarsTotal = 1;
-                            state        = State.FLAG_FORMING;
-                            log.info("[{}] PASS: Pole complete (poleTopHigh={}, poleRange={}), flag started at {}",
-                                    symbol,
-                                    String.format("%.4f", poleTopHigh),
-                                    String.format("%.4f", poleRange),
-                                    bar.time());
-                        } else {
-                            log.info("[{}] SKIP: First flag bar failed validation " +
-                                     "(depth={}, maxDepth={}, vol={}, baselineAvgVol={}) — resetting IDLE",
-                                    symbol,
-                                    String.format("%.4f", depth),
-                                    String.format("%.4f", FLAG_DEPTH_RATIO * poleRange),
-                                    String.format("%.0f", vol),
-                                    String.format("%.0f", baselineAvgVol));
-                            state = State.IDLE;
-                        }
-                    } else {
-                        // Non-qualifying green — allow up to POLE_MAX_NON_QUAL before resetting
-                        poleNonQualCount++;
-                        if (poleNonQualCount > POLE_MAX_NON_QUAL) {
-                            log.info("[{}] SKIP: Too many non-qualifying greens in POLE_FORMING ({}) — resetting IDLE",
-                                    symbol, poleNonQualCount);
-                            state = State.IDLE;
-                            poleNonQualCount = 0;
-                        } else {
-                            log.debug("[{}] Non-qualifying green in POLE_FORMING (count={}/{}) — staying in POLE_FORMING",
-                                    symbol, poleNonQualCount, POLE_MAX_NON_QUAL);
-                        }
-                    }
-                }
-
-                case FLAG_FORMING -> {
-                    flagBarsTotal++;
-                    if (flagBarsTotal > FLAG_MAX_BARS) {
-                        log.info("[{}] SKIP: Flag expired ({} bars with no breakout) — resetting IDLE",
-                                symbol, flagBarsTotal - 1);
-                        state = State.IDLE;
-                        // Re-evaluate this bar as a potential new pole start rather than discarding it
-                        if (isGreen(bar) && body >= POLE_BODY_MULTIPLIER * avgBody && vol >= POLE_VOLUME_MULTIPLIER * avgVol) {
-                            log.info("[{}] PASS: Flag-expiry bar qualifies as new pole start at {}", symbol, bar.time());
-                            baselineAvgBody = avgBody;
-                            baselineAvgVol  = avgVol;
-                            poleCandles = new ArrayList<>();
-                            poleCandles.add(bar);
-                            state = State.POLE_FORMING;
-                        }
-                        break;
-                    }
-                    if (isRed(bar)) {
-                        if (flagCandles.size() >= FLAG_MAX_RED_BARS) {
-                            log.info("[{}] SKIP: Too many red flag candles ({}) — resetting IDLE",
-                                    symbol, flagCandles.size());
-                            state = State.IDLE;
-                            break;
-                        }
-                        double depth = poleTopHigh - bar.low();
-                        if (depth > FLAG_DEPTH_RATIO * poleRange) {
-                            log.info("[{}] SKIP: Flag pulled back too deep " +
-                                     "(depth={} > maxDepth={}) — resetting IDLE",
-                                    symbol,
-                                    String.format("%.4f", depth),
-                                    String.format("%.4f", FLAG_DEPTH_RATIO * poleRange));
-                            state = State.IDLE;
-                            break;
-                        }
-                        if (vol >= FLAG_VOLUME_MULTIPLIER * baselineAvgVol) {
-                            log.info("[{}] SKIP: Heavy selling in flag (vol={} >= {}× baselineAvgVol={}) — resetting IDLE",
-                                    symbol,
-                                    String.format("%.0f", vol),
-                                    FLAG_VOLUME_MULTIPLIER,
-                                    String.format("%.0f", baselineAvgVol));
-                            state = State.IDLE;
-                            break;
-                        }
-                        flagCandles.add(bar);
-                        flagLow      = Math.min(flagLow, bar.low());
-                        priorRedHigh = bar.high();
-                        log.info("[{}] PASS: Flag candle added (total={}, flagLow={}, priorRedHigh={})",
-                                symbol, flagCandles.size(),
-                                String.format("%.4f", flagLow),
-                                String.format("%.4f", priorRedHigh));
-
-                    } else {
-                        // Green bar — potential breakout
-                        if (flagCandles.isEmpty()) {
-                            log.info("[{}] SKIP: Not enough red flag candles (0 < 1) — resetting IDLE", symbol);
-                            state = State.IDLE;
-                            break;
-                        }
-                        boolean breaksPriorRed  = bar.close() > priorRedHigh;
-                        boolean breaksHOD       = bar.high() >= poleTopHigh * 0.99;
-                        boolean volumeSpike     = vol >= BREAKOUT_VOLUME_MULTIPLIER * baselineAvgVol;
-
-                        if (breaksPriorRed && breaksHOD && volumeSpike) {
-                            lastSetup = new FlagSetup(bar, poleTopHigh, flagLow);
-                            log.info("[{}] PASS: Breakout bar confirmed at {} " +
-                                     "(close={}, priorRedHigh={}, poleTopHigh={}, vol={}, baselineAvgVol={})",
-                                    symbol, bar.time(),
-                                    String.format("%.4f", bar.close()),
-                                    String.format("%.4f", priorRedHigh),
-                                    String.format("%.4f", poleTopHigh),
-                                    String.format("%.0f", vol),
-                                    String.format("%.0f", baselineAvgVol));
-                            state = State.IDLE; // reset and continue — last setup wins
-                        } else {
-                            if (!breaksPriorRed) {
-                                log.info("[{}] Breakout condition FAILED: close ({}) <= priorRedHigh ({})",
-                                        symbol,
-                                        String.format("%.4f", bar.close()),
-                                        String.format("%.4f", priorRedHigh));
-                            }
-                            if (!breaksHOD) {
-                                log.info("[{}] Breakout condition FAILED: high ({}) <= poleTopHigh ({})",
-                                        symbol,
-                                        String.format("%.4f", bar.high()),
-                                        String.format("%.4f", poleTopHigh));
-                            }
-                            if (!volumeSpike) {
-                                log.info("[{}] Breakout condition FAILED: vol ({}) < {}× baselineAvgVol ({})",
-                                        symbol,
-                                        String.format("%.0f", vol),
-                                        BREAKOUT_VOLUME_MULTIPLIER,
-                                        String.format("%.0f", baselineAvgVol));
-                            }
-                            // Check if this failed-breakout green qualifies as a new pole start
-                            if (body >= POLE_BODY_MULTIPLIER * avgBody && vol >= POLE_VOLUME_MULTIPLIER * avgVol) {
-                                log.info("[{}] PASS: Failed breakout green qualifies as new pole start at {} — switching to POLE_FORMING",
-                                        symbol, bar.time());
-                                baselineAvgBody = avgBody;
-                                baselineAvgVol  = avgVol;
-                                poleCandles = new ArrayList<>();
-                                poleCandles.add(bar);
-                                flagBarsTotal = 0;
-                                state = State.POLE_FORMING;
-                            }
-                            // else stay in FLAG_FORMING
-                        }
-                    }
-                }
-            }
-        }
-
-        return lastSetup;
-    }
-
-    // -------------------------------------------------------------------------
-    // Rolling-average helpers
-    // -------------------------------------------------------------------------
-
-    private boolean isGreen(Bar bar) {
-        return bar.close() > bar.open();
-    }
-
-    private boolean isRed(Bar bar) {
-        return bar.close() <= bar.open();
-    }
-
-    /**
-     * Mean body size over the last {@code ROLLING_WINDOW} bars ending at {@code endExclusive}.
-     * Returns 0.0 if fewer than {@code ROLLING_MIN_BARS} bars are available (not yet trusted).
-     * Only pass market-hours bar lists — pre-market bars must be excluded by the caller.
-     */
-    private double avgBodySize(List<Bar> bars, int endExclusive) {
-        int from = Math.max(0, endExclusive - ROLLING_WINDOW);
-        if (endExclusive - from < ROLLING_MIN_BARS) return 0.0;
-        double sum = 0.0;
-        for (int i = from; i < endExclusive; i++) {
-            Bar b = bars.get(i);
-            sum += Math.abs(b.close() - b.open());
-        }
-        return sum / (endExclusive - from);
-    }
-
-    /**
-     * Mean volume over the last {@code ROLLING_WINDOW} bars ending at {@code endExclusive}.
-     * Returns 0.0 if fewer than {@code ROLLING_MIN_BARS} bars are available (not yet trusted).
-     * Only pass market-hours bar lists — pre-market bars must be excluded by the caller.
-     */
-    private double avgVolume(List<Bar> bars, int endExclusive) {
-        int from = Math.max(0, endExclusive - ROLLING_WINDOW);
-        if (endExclusive - from < ROLLING_MIN_BARS) return 0.0;
-        double sum = 0.0;
-        for (int i = from; i < endExclusive; i++) {
-            sum += bars.get(i).volume().value().doubleValue();
-        }
-        return sum / (endExclusive - from);
-    }
-
-    /**
-     * Parses the time component from an IBKR bar timestamp {@code "yyyyMMdd  HH:mm:ss"}.
-     * Returns {@link LocalTime#MIN} and logs a warning on failure.
-     */
-    private LocalTime parseBarTime(String timestamp) {
-        try {
-            String[] tokens = timestamp.trim().split("\\s+");
-            return LocalTime.parse(tokens[1], DateTimeFormatter.ofPattern("HH:mm:ss"));
-        } catch (Exception e) {
-            log.warn("[BullFlagBreakout] Failed to parse bar timestamp '{}': {}", timestamp, e.getMessage());
-            return LocalTime.MIN;
+            // The last bar is still forming - evaluate it without committing
+            SymbolState tentative = committed.copy();
+            detector.advance(tentative, bars, lastIndex, symbol);
+            return tentative.lastSetup;
         }
     }
 
@@ -484,25 +247,14 @@ public class BullFlagBreakout implements Strategy {
         filterOptions.add(new TagValue("volumeVsAvgAbove", "2"));        // 2× relative volume
 
         log.debug("[BullFlagBreakout] Scanning with floatSharesBelow=20M, volumeVsAvgAbove=2, price=$1.50-$20");
-        return ibkrConnection.marketScan(scannerSubscription, filterOptions);
+        return broker.marketScan(scannerSubscription, filterOptions);
     }
 
     // -------------------------------------------------------------------------
     // Market data helpers
     // -------------------------------------------------------------------------
 
-    public List<TickPriceOutput> getTickPrice(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
-        MarketDataInput marketDataInput = MarketDataInput.builder()
-                .contract(contract)
-                .genericTickList("")
-                .snapshot(true)
-                .regulatorySnapshot(false)
-                .tagValues(null)
-                .build();
-        return ibkrConnection.reqMarketData(marketDataInput);
-    }
-
-    private List<Bar> getHistoricalPrice(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
+    private BarSeries getHistoricalPrice(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
         HistoricalDataInput historicalDataInput = HistoricalDataInput.builder()
                 .contract(contract)
                 .endDateTime("")
@@ -510,19 +262,19 @@ public class BullFlagBreakout implements Strategy {
                 .barSize(Types.BarSize._1_min)
                 .whatToShow(Types.WhatToShow.TRADES)
                 .useRth(HistoricalDataInput.UseRth.ALL_HOURS)
-                .formatData(HistoricalDataInput.FormatData.HUMAN_READABLE)
-                .keepUpToDate(false)
+                .formatData(HistoricalDataInput.FormatData.EPOCH_STYLE)
+                .keepUpToDate(true)
                 .chartOptions(null)
                 .build();
         try {
-            List<Bar> historicalData = ibkrConnection.reqHistoricalData(historicalDataInput);
-            return historicalData != null ? historicalData : Collections.emptyList();
+            BarSeries historicalData = broker.reqLiveBars(historicalDataInput);
+            return historicalData != null ? historicalData : new BarSeries(0);
         } catch (TimeoutException e) {
             log.warn("[{}] Historical data request timed out - skipping", contract.symbol());
-            return Collections.emptyList();
-        } catch (ExecutionException | InterruptedException e) {
+            return new BarSeries(0);
+        } catch (ExecutionException e) {
             log.warn("[{}] Historical data request failed: {}", contract.symbol(), e.getMessage());
-            return Collections.emptyList();
+            return new BarSeries(0);
         }
     }
 
@@ -533,9 +285,9 @@ public class BullFlagBreakout implements Strategy {
     @Override
     public void onEndOfDay() {
         try {
-            List<PositionOutput> positions = ibkrConnection.reqPositions();
+            List<PositionOutput> positions = broker.reqPositions();
             position.closeAllPositions(positions);
-            ibkrConnection.closeAllOrders();
+            broker.closeAllOrders();
             log.info("[BullFlagBreakout] Closed all intraday positions and orders at end of day");
         } catch (Exception e) {
             log.error("[BullFlagBreakout] Failed to close positions at end of day", e);
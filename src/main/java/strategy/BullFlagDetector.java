@@ -0,0 +1,392 @@
+package strategy;
+
+import data.BarSeries;
+import indicators.BarField;
+import indicators.RollingStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The bull flag Pole → Flag → Breakout state machine, stepped one bar at a time.
+ *
+ * Thresholds come from a {@link BullFlagParams}; all per-symbol progress lives in a {@link SymbolState},
+ * so one detector serves any number of symbols. {@link BullFlagBreakout} keeps a state per scanner
+ * symbol and advances it incrementally; {@code backtest.BullFlagSweep} reuses one state across every
+ * symbol-day of an archive.
+ */
+public final class BullFlagDetector {
+    private static final Logger log = LoggerFactory.getLogger(BullFlagDetector.class);
+
+    private static final int MARKET_OPEN_MINUTE = 9 * 60 + 30; // bars before 9:30 AM ET are skipped
+
+    enum State { IDLE, POLE_FORMING, FLAG_FORMING }
+
+    /** A confirmed breakout: bar index and start time, and the pole top / flag low that price the bracket. */
+    public record FlagSetup(int breakoutIndex, long breakoutTime, double poleTopHigh, double flagLow) {}
+
+    /**
+     * Per-symbol state machine state plus the rolling body/volume window (last {@code rollingWindow}
+     * market-hours bars). Not thread-safe; callers sharing a state across threads must lock it.
+     */
+    public static final class SymbolState {
+        long   firstBarTime;     // identifies the seeded session series
+        int    consumed;         // number of series bars already committed
+
+        final RollingStats bodies;
+        final RollingStats volumes;
+
+        State     state            = State.IDLE;
+        int       poleCount        = 0;
+        double    poleHigh         = 0.0;
+        double    poleLow          = 0.0;
+        int       flagCount        = 0;   // red candles in the flag
+        double    poleTopHigh      = 0.0;
+        double    poleRange        = 0.0;
+        double    flagLow          = Double.MAX_VALUE;
+        double    priorRedHigh     = 0.0;
+        int       flagBarsTotal    = 0;
+        int       poleNonQualCount = 0;  // consecutive non-qualifying greens in POLE_FORMING
+        // Frozen pre-pole baseline — used for all post-detection checks so that
+        // the pole's own large body/volume doesn't inflate the rolling average.
+        double    baselineAvgBody  = 0.0;
+        double    baselineAvgVol   = 0.0;
+        FlagSetup lastSetup        = null;
+
+        private SymbolState(int window, int minBars) {
+            bodies  = new RollingStats(BarField.BODY, window, minBars);
+            volumes = new RollingStats(BarField.VOLUME, window, minBars);
+        }
+
+        /** Copy, for evaluating a tentative bar without disturbing the committed state. */
+        private SymbolState(SymbolState from) {
+            bodies  = new RollingStats(from.bodies);
+            volumes = new RollingStats(from.volumes);
+            copyInto(from, this);
+        }
+
+        /** Back to a fresh state for the session series starting at {@code firstBarTime}, keeping the buffers. */
+        public void reset(long firstBarTime) {
+            this.firstBarTime = firstBarTime;
+            consumed         = 0;
+            bodies.reset();
+            volumes.reset();
+            state            = State.IDLE;
+            poleCount        = 0;
+            poleHigh         = 0.0;
+            poleLow          = 0.0;
+            flagCount        = 0;
+            poleTopHigh      = 0.0;
+            poleRange        = 0.0;
+            flagLow          = Double.MAX_VALUE;
+            priorRedHigh     = 0.0;
+            flagBarsTotal    = 0;
+            poleNonQualCount = 0;
+            baselineAvgBody  = 0.0;
+            baselineAvgVol   = 0.0;
+            lastSetup        = null;
+        }
+
+        SymbolState copy() {
+            return new SymbolState(this);
+        }
+
+        private static void copyInto(SymbolState from, SymbolState to) {
+            to.firstBarTime     = from.firstBarTime;
+            to.consumed         = from.consumed;
+            to.state            = from.state;
+            to.poleCount        = from.poleCount;
+            to.poleHigh         = from.poleHigh;
+            to.poleLow          = from.poleLow;
+            to.flagCount        = from.flagCount;
+            to.poleTopHigh      = from.poleTopHigh;
+            to.poleRange        = from.poleRange;
+            to.flagLow          = from.flagLow;
+            to.priorRedHigh     = from.priorRedHigh;
+            to.flagBarsTotal    = from.flagBarsTotal;
+            to.poleNonQualCount = from.poleNonQualCount;
+            to.baselineAvgBody  = from.baselineAvgBody;
+            to.baselineAvgVol   = from.baselineAvgVol;
+            to.lastSetup        = from.lastSetup;
+        }
+
+        void push(BarSeries bars, int i) {
+            bodies.update(bars, i);
+            volumes.update(bars, i);
+        }
+
+        void startPole(BarSeries bars, int i) {
+            poleCount = 1;
+            poleHigh  = bars.high(i);
+            poleLow   = bars.low(i);
+        }
+
+        void extendPole(BarSeries bars, int i) {
+            poleCount++;
+            poleHigh = Math.max(poleHigh, bars.high(i));
+            poleLow  = Math.min(poleLow, bars.low(i));
+        }
+
+        /** Mean body size of the window; 0.0 until {@code rollingMinBars} bars are available (not yet trusted). */
+        double avgBody() {
+            return bodies.mean();
+        }
+
+        /** Mean volume of the window; 0.0 until {@code rollingMinBars} bars are available (not yet trusted). */
+        double avgVolume() {
+            return volumes.mean();
+        }
+    }
+
+    private final BullFlagParams p;
+
+    public BullFlagDetector(BullFlagParams params) {
+        this.p = params;
+    }
+
+    public BullFlagParams params() {
+        return p;
+    }
+
+    public SymbolState newState() {
+        return new SymbolState(p.getRollingWindow(), p.getRollingMinBars());
+    }
+
+    /**
+     * Steps the state machine over bar {@code i} and adds the bar to the rolling window.
+     * Bars before 9:30 AM are skipped so pre-market candles never enter the rolling averages.
+     *
+     * @return the setup confirmed by this bar (bar {@code i} is its breakout), or null
+     */
+    public FlagSetup advance(SymbolState s, BarSeries bars, int i, String symbol) {
+        if (bars.minuteOfDay(i) < MARKET_OPEN_MINUTE) {
+            return null;
+        }
+        FlagSetup before = s.lastSetup;
+        double avgBody = s.avgBody();
+        double avgVol  = s.avgVolume();
+        if (avgBody == 0.0 || avgVol == 0.0) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] SKIP bar {}: insufficient history for rolling averages", symbol, bars.formatTime(i));
+            }
+        } else {
+            step(s, bars, i, avgBody, avgVol, symbol);
+        }
+        s.push(bars, i);
+        return s.lastSetup != before ? s.lastSetup : null;
+    }
+
+    private void step(SymbolState s, BarSeries bars, int i, double avgBody, double avgVol, String symbol) {
+        double  high  = bars.high(i);
+        double  low   = bars.low(i);
+        double  close = bars.close(i);
+        double  body  = bars.body(i);
+        double  vol   = bars.volume(i);
+        boolean green = bars.isGreen(i);
+
+        switch (s.state) {
+            case IDLE -> {
+                if (green
+                        && body >= p.getPoleBodyMultiplier() * avgBody
+                        && vol  >= p.getPoleVolumeMultiplier() * avgVol) {
+                    // Snapshot clean baseline before pole bars enter the rolling window
+                    s.baselineAvgBody = avgBody;
+                    s.baselineAvgVol  = avgVol;
+                    s.startPole(bars, i);
+                    s.state = State.POLE_FORMING;
+                    log.info("[{}] PASS: Pole started at {} (body={}, baselineAvgBody={}, vol={}, baselineAvgVol={})",
+                            symbol, bars.formatTime(i),
+                            f4(body), f4(s.baselineAvgBody),
+                            f0(vol), f0(s.baselineAvgVol));
+                } else if (log.isDebugEnabled()) {
+                    log.debug("[{}] IDLE bar {} does not qualify as pole start", symbol, bars.formatTime(i));
+                }
+            }
+
+            case POLE_FORMING -> {
+                if (green
+                        && body >= p.getPoleBodyMultiplier() * s.baselineAvgBody
+                        && vol  >= p.getPoleVolumeMultiplier() * s.baselineAvgVol) {
+                    s.poleNonQualCount = 0;
+                    s.extendPole(bars, i);
+                    if (s.poleCount > p.getPoleMaxBars()) {
+                        log.info("[{}] SKIP: Parabolic pole ({} big green candles) — resetting IDLE",
+                                symbol, s.poleCount);
+                        s.state = State.IDLE;
+                        s.poleNonQualCount = 0;
+                    }
+                } else if (!green) {
+                    s.poleNonQualCount = 0;
+                    // Pole complete — transition to flag
+                    s.poleTopHigh  = s.poleHigh;
+                    s.poleRange    = s.poleTopHigh - s.poleLow;
+
+                    if (s.poleRange <= 0) {
+                        log.warn("[{}] SKIP: Pole range is zero — resetting IDLE", symbol);
+                        s.state = State.IDLE;
+                        break;
+                    }
+
+                    // Validate first flag bar
+                    double depth = s.poleTopHigh - low;
+                    if (depth <= p.getFlagDepthRatio() * s.poleRange && vol < p.getFlagVolumeMultiplier() * s.baselineAvgVol) {
+                        s.flagCount    = 1;
+                        s.flagLow      = low;
+                        s.priorRedHigh = high;
+                        s.flagBarsTotal = 1;
+                        s.state        = State.FLAG_FORMING;
+                        log.info("[{}] PASS: Pole complete (poleTopHigh={}, poleRange={}), flag started at {}",
+                                symbol,
+                                f4(s.poleTopHigh),
+                                f4(s.poleRange),
+                                bars.formatTime(i));
+                    } else {
+                        log.info("[{}] SKIP: First flag bar failed validation " +
+                                 "(depth={}, maxDepth={}, vol={}, baselineAvgVol={}) — resetting IDLE",
+                                symbol,
+                                f4(depth),
+                                f4(p.getFlagDepthRatio() * s.poleRange),
+                                f0(vol),
+                                f0(s.baselineAvgVol));
+                        s.state = State.IDLE;
+                    }
+                } else {
+                    // Non-qualifying green — allow up to poleMaxNonQual before resetting
+                    s.poleNonQualCount++;
+                    if (s.poleNonQualCount > p.getPoleMaxNonQual()) {
+                        log.info("[{}] SKIP: Too many non-qualifying greens in POLE_FORMING ({}) — resetting IDLE",
+                                symbol, s.poleNonQualCount);
+                        s.state = State.IDLE;
+                        s.poleNonQualCount = 0;
+                    } else {
+                        log.debug("[{}] Non-qualifying green in POLE_FORMING (count={}/{}) — staying in POLE_FORMING",
+                                symbol, s.poleNonQualCount, p.getPoleMaxNonQual());
+                    }
+                }
+            }
+
+            case FLAG_FORMING -> {
+                s.flagBarsTotal++;
+                if (s.flagBarsTotal > p.getFlagMaxBars()) {
+                    log.info("[{}] SKIP: Flag expired ({} bars with no breakout) — resetting IDLE",
+                            symbol, s.flagBarsTotal - 1);
+                    s.state = State.IDLE;
+                    // Re-evaluate this bar as a potential new pole start rather than discarding it
+                    if (green && body >= p.getPoleBodyMultiplier() * avgBody && vol >= p.getPoleVolumeMultiplier() * avgVol) {
+                        log.info("[{}] PASS: Flag-expiry bar qualifies as new pole start at {}", symbol, bars.formatTime(i));
+                        s.baselineAvgBody = avgBody;
+                        s.baselineAvgVol  = avgVol;
+                        s.startPole(bars, i);
+                        s.state = State.POLE_FORMING;
+                    }
+                    break;
+                }
+                if (!green) {
+                    if (s.flagCount >= p.getFlagMaxRedBars()) {
+                        log.info("[{}] SKIP: Too many red flag candles ({}) — resetting IDLE",
+                                symbol, s.flagCount);
+                        s.state = State.IDLE;
+                        break;
+                    }
+                    double depth = s.poleTopHigh - low;
+                    if (depth > p.getFlagDepthRatio() * s.poleRange) {
+                        log.info("[{}] SKIP: Flag pulled back too deep " +
+                                 "(depth={} > maxDepth={}) — resetting IDLE",
+                                symbol,
+                                f4(depth),
+                                f4(p.getFlagDepthRatio() * s.poleRange));
+                        s.state = State.IDLE;
+                        break;
+                    }
+                    if (vol >= p.getFlagVolumeMultiplier() * s.baselineAvgVol) {
+                        log.info("[{}] SKIP: Heavy selling in flag (vol={} >= {}× baselineAvgVol={}) — resetting IDLE",
+                                symbol,
+                                f0(vol),
+                                p.getFlagVolumeMultiplier(),
+                                f0(s.baselineAvgVol));
+                        s.state = State.IDLE;
+                        break;
+                    }
+                    s.flagCount++;
+                    s.flagLow      = Math.min(s.flagLow, low);
+                    s.priorRedHigh = high;
+                    log.info("[{}] PASS: Flag candle added (total={}, flagLow={}, priorRedHigh={})",
+                            symbol, s.flagCount,
+                            f4(s.flagLow),
+                            f4(s.priorRedHigh));
+
+                } else {
+                    // Green bar — potential breakout
+                    if (s.flagCount == 0) {
+                        log.info("[{}] SKIP: Not enough red flag candles (0 < 1) — resetting IDLE", symbol);
+                        s.state = State.IDLE;
+                        break;
+                    }
+                    boolean breaksPriorRed  = close > s.priorRedHigh;
+                    boolean breaksHOD       = high >= s.poleTopHigh * p.getBreakoutHighRatio();
+                    boolean volumeSpike     = vol >= p.getBreakoutVolumeMultiplier() * s.baselineAvgVol;
+
+                    if (breaksPriorRed && breaksHOD && volumeSpike) {
+                        s.lastSetup = new FlagSetup(i, bars.time(i), s.poleTopHigh, s.flagLow);
+                        log.info("[{}] PASS: Breakout bar confirmed at {} " +
+                                 "(close={}, priorRedHigh={}, poleTopHigh={}, vol={}, baselineAvgVol={})",
+                                symbol, bars.formatTime(i),
+                                f4(close),
+                                f4(s.priorRedHigh),
+                                f4(s.poleTopHigh),
+                                f0(vol),
+                                f0(s.baselineAvgVol));
+                        s.state = State.IDLE; // reset and continue — last setup wins
+                    } else {
+                        if (!breaksPriorRed) {
+                            log.info("[{}] Breakout condition FAILED: close ({}) <= priorRedHigh ({})",
+                                    symbol,
+                                    f4(close),
+                                    f4(s.priorRedHigh));
+                        }
+                        if (!breaksHOD) {
+                            log.info("[{}] Breakout condition FAILED: high ({}) <= poleTopHigh ({})",
+                                    symbol,
+                                    f4(high),
+                                    f4(s.poleTopHigh));
+                        }
+                        if (!volumeSpike) {
+                            log.info("[{}] Breakout condition FAILED: vol ({}) < {}× baselineAvgVol ({})",
+                                    symbol,
+                                    f0(vol),
+                                    p.getBreakoutVolumeMultiplier(),
+                                    f0(s.baselineAvgVol));
+                        }
+                        // Check if this failed-breakout green qualifies as a new pole start
+                        if (body >= p.getPoleBodyMultiplier() * avgBody && vol >= p.getPoleVolumeMultiplier() * avgVol) {
+                            log.info("[{}] PASS: Failed breakout green qualifies as new pole start at {} — switching to POLE_FORMING",
+                                    symbol, bars.formatTime(i));
+                            s.baselineAvgBody = avgBody;
+                            s.baselineAvgVol  = avgVol;
+                            s.startPole(bars, i);
+                            s.flagBarsTotal = 0;
+                            s.state = State.POLE_FORMING;
+                        }
+                        // else stay in FLAG_FORMING
+                    }
+                }
+            }
+        }
+    }
+
+    /** Deferred "%.4f": formatted only if the log line is actually written. */
+    private static Object f4(double v) {
+        return new Formatted(v, "%.4f");
+    }
+
+    /** Deferred "%.0f". */
+    private static Object f0(double v) {
+        return new Formatted(v, "%.0f");
+    }
+
+    private record Formatted(double value, String format) {
+        @Override
+        public String toString() {
+            return String.format(format, value);
+        }
+    }
+}
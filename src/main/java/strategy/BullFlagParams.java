@@ -0,0 +1,90 @@
+package strategy;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Tunable thresholds for {@link BullFlagBreakout}: the Pole → Flag → Breakout detector and the bracket
+ * it places. {@link #DEFAULTS} are the values the strategy trades live; {@code backtest.BullFlagSweep}
+ * searches around them.
+ */
+@Value
+@Builder(toBuilder = true)
+public class BullFlagParams {
+    public static final BullFlagParams DEFAULTS = BullFlagParams.builder().build();
+
+    // Rolling body/volume baseline
+    @Builder.Default int    rollingWindow            = 10;
+    @Builder.Default int    rollingMinBars           = 5;     // minimum bars before averages are trusted
+
+    // Pole
+    @Builder.Default double poleBodyMultiplier       = 1.1;   // pole bar body ≥ 1.1× avgBody
+    @Builder.Default double poleVolumeMultiplier     = 1.2;   // pole bar vol  ≥ 1.2× avgVol
+    @Builder.Default int    poleMaxBars              = 4;     // more big green candles than this is parabolic
+    @Builder.Default int    poleMaxNonQual           = 3;     // max non-qualifying greens in POLE_FORMING before reset
+
+    // Flag
+    @Builder.Default double flagDepthRatio           = 0.70;  // pullback ≤ 70% of pole range
+    @Builder.Default double flagVolumeMultiplier     = 1.3;   // flag bar vol < 1.3× baselineAvgVol (orderly pullback)
+    @Builder.Default int    flagMaxBars              = 8;     // abandon flag after 8 bars with no breakout
+    @Builder.Default int    flagMaxRedBars           = 5;     // max red candles in flag before reset
+
+    // Breakout
+    @Builder.Default double breakoutVolumeMultiplier = 1.0;   // breakout vol ≥ 1.0× avgVol (at or above baseline)
+    @Builder.Default double breakoutHighRatio        = 0.99;  // breakout high must reach 99% of the pole top
+
+    // Bracket
+    @Builder.Default int    entryOffsetTicks         = 3;     // BUY LIMIT this many ticks above the flag high
+    @Builder.Default double maxRiskWidth             = 0.03;  // skip if (entry - stop) / entry is wider
+    @Builder.Default double rewardRiskRatio          = 2.0;   // take profit at this multiple of the stop distance
+
+    /**
+     * Copy with one parameter replaced, by field name; integer parameters are rounded.
+     * Lets a sweep describe its axes as (name, values) pairs.
+     */
+    public BullFlagParams with(String name, double value) {
+        BullFlagParamsBuilder b = toBuilder();
+        int n = (int) Math.round(value);
+        switch (name) {
+            case "rollingWindow"            -> b.rollingWindow(n);
+            case "rollingMinBars"           -> b.rollingMinBars(n);
+            case "poleBodyMultiplier"       -> b.poleBodyMultiplier(value);
+            case "poleVolumeMultiplier"     -> b.poleVolumeMultiplier(value);
+            case "poleMaxBars"              -> b.poleMaxBars(n);
+            case "poleMaxNonQual"           -> b.poleMaxNonQual(n);
+            case "flagDepthRatio"           -> b.flagDepthRatio(value);
+            case "flagVolumeMultiplier"     -> b.flagVolumeMultiplier(value);
+            case "flagMaxBars"              -> b.flagMaxBars(n);
+            case "flagMaxRedBars"           -> b.flagMaxRedBars(n);
+            case "breakoutVolumeMultiplier" -> b.breakoutVolumeMultiplier(value);
+            case "breakoutHighRatio"        -> b.breakoutHighRatio(value);
+            case "entryOffsetTicks"         -> b.entryOffsetTicks(n);
+            case "maxRiskWidth"             -> b.maxRiskWidth(value);
+            case "rewardRiskRatio"          -> b.rewardRiskRatio(value);
+            default -> throw new IllegalArgumentException("Unknown BullFlag parameter: " + name);
+        }
+        return b.build();
+    }
+
+    /** Value of a parameter by field name, the inverse of {@link #with(String, double)}. */
+    public double get(String name) {
+        return switch (name) {
+            case "rollingWindow"            -> rollingWindow;
+            case "rollingMinBars"           -> rollingMinBars;
+            case "poleBodyMultiplier"       -> poleBodyMultiplier;
+            case "poleVolumeMultiplier"     -> poleVolumeMultiplier;
+            case "poleMaxBars"              -> poleMaxBars;
+            case "poleMaxNonQual"           -> poleMaxNonQual;
+            case "flagDepthRatio"           -> flagDepthRatio;
+            case "flagVolumeMultiplier"     -> flagVolumeMultiplier;
+            case "flagMaxBars"              -> flagMaxBars;
+            case "flagMaxRedBars"           -> flagMaxRedBars;
+            case "breakoutVolumeMultiplier" -> breakoutVolumeMultiplier;
+            case "breakoutHighRatio"        -> breakoutHighRatio;
+            case "entryOffsetTicks"         -> entryOffsetTicks;
+            case "maxRiskWidth"             -> maxRiskWidth;
+            case "rewardRiskRatio"          -> rewardRiskRatio;
+            default -> throw new IllegalArgumentException("Unknown BullFlag parameter: " + name);
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package strategy;
+
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Fan-out stage for a strategy cycle: evaluates scanner candidates concurrently on virtual threads.
+ *
+ * At most {@code maxConcurrency} candidates are in flight at once. Wire requests still go through
+ * IBKRConnection's RequestScheduler, so IBKR pacing limits hold however many candidates run.
+ * Candidates still running at the cycle deadline are cancelled (interrupted) so a slow symbol
+ * cannot push the next cycle back; evaluations must let the interrupt through, and Position checks
+ * it again before placing an order. After the deadline the cycle waits at most
+ * {@value #CANCEL_GRACE_MS}ms for cancelled candidates to unwind. Cycle time becomes roughly the
+ * slowest candidate instead of the sum of all of them.
+ */
+public class CandidateEvaluator {
+    private static final Logger log = LoggerFactory.getLogger(CandidateEvaluator.class);
+
+    private static final long CANCEL_GRACE_MS = 1_000;
+
+    /** Per-candidate evaluation; may block on IBKR requests. */
+    @FunctionalInterface
+    public interface Evaluation<T> {
+        void evaluate(T candidate) throws Exception;
+    }
+
+    /** Outcome counts for one cycle. */
+    public record CycleResult(int candidates, int completed, int failed, int cancelled, long elapsedMs) {}
+
+    private final String strategyName;
+    private final int maxConcurrency;
+    private final LatencyHistogram evaluationTime;
+
+    public CandidateEvaluator(String strategyName, int maxConcurrency) {
+        this.strategyName = strategyName;
+        this.maxConcurrency = maxConcurrency;
+        this.evaluationTime = Metrics.histogram("strategy_candidate_evaluation_seconds",
+                "Time to evaluate one scanner candidate, excluding the wait for a concurrency permit",
+                "strategy", strategyName);
+    }
+
+    /**
+     * Evaluates every candidate and returns once all have finished or {@code deadline} has passed.
+     * Failures are logged per candidate and never abort the other evaluations.
+     */
+    public <T> CycleResult evaluateAll(List<T> candidates, Function<T, String> label,
+                                       Evaluation<T> evaluation, Duration deadline) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long deadlineAt = start + deadline.toMillis();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<?>> futures = new ArrayList<>(candidates.size());
+
+        int completed = 0, failed = 0, cancelled = 0;
+        // Not try-with-resources: close() waits for every task, which would let a straggler hold the cycle
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (T candidate : candidates) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    long started = System.nanoTime();
+                    try {
+                        evaluation.evaluate(candidate);
+                    } finally {
+                        evaluationTime.recordSince(started);
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                Future<?> future = futures.get(i);
+                String name = label.apply(candidates.get(i));
+                long remaining = deadlineAt - System.currentTimeMillis();
+                try {
+                    future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+                    completed++;
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    cancelled++;
+                    log.warn("[{}] Cancelled evaluation still running at the {}ms cycle deadline", name, deadline.toMillis());
+                } catch (CancellationException e) {
+                    cancelled++;
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.error("[{}] [{}] Candidate evaluation failed: {}", strategyName, name,
+                            e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e.getCause());
+                } catch (InterruptedException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            if (!executor.awaitTermination(CANCEL_GRACE_MS, TimeUnit.MILLISECONDS)) {
+                log.warn("[{}] Cancelled candidates still unwinding {}ms after the cycle deadline",
+                        strategyName, CANCEL_GRACE_MS);
+            }
+        }
+
+        count("completed", completed);
+        count("failed", failed);
+        count("cancelled", cancelled);
+        CycleResult result = new CycleResult(candidates.size(), completed, failed, cancelled,
+                System.currentTimeMillis() - start);
+        log.info("[{}] Evaluated {} candidates in {}ms (completed={}, failed={}, cancelled={})",
+                strategyName, result.candidates(), result.elapsedMs(), completed, failed, cancelled);
+        return result;
+    }
+
+    private void count(String outcome, int n) {
+        if (n > 0) {
+            Metrics.counter("strategy_candidates_total", "Candidate evaluations by strategy and outcome",
+                    "strategy", strategyName, "outcome", outcome).add(n);
+        }
+    }
+}
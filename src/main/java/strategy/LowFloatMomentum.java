@@ -1,21 +1,24 @@
 package strategy;
 
 import com.ib.client.*;
-import ibkr.IBKRConnection;
+import data.BarSeries;
+import ibkr.Broker;
 import ibkr.model.*;
 import indicators.ATR;
+import indicators.RelativeVolume;
+import indicators.SessionVWAP;
 import risk.Position;
 import risk.RiskManager;
 import util.Constants;
 //import data.MarketDataService;
 
+import java.time.Duration;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +29,7 @@ import org.slf4j.LoggerFactory;
 public class LowFloatMomentum implements Strategy {
     //    private final MarketDataService marketData;
     List<ScanData> scanData;
-    IBKRConnection ibkrConnection;
+    Broker broker;
     Position position;
     RiskManager riskManager;
 
@@ -39,12 +42,16 @@ public class LowFloatMomentum implements Strategy {
     private final int flagLookback = 6;                 // 6-bar flag window
     private final double maxRiskPercent = 0.03;         // 3% max stop width
     private final double entryThreshold = 0.01;         // close must be within 1% above VWAP
+    private static final int MAX_CONCURRENT_CANDIDATES = 4;
+    private static final int CYCLE_DEADLINE_MARGIN_SECONDS = 10;  // candidates still running this close to the next cycle are cancelled
+    private final CandidateEvaluator candidateEvaluator = new CandidateEvaluator("LowFloatMomentum", MAX_CONCURRENT_CANDIDATES);
+    private final ReentrantLock entryLock = new ReentrantLock();
 //    Contract contract = new Contract();
 
     private static final Logger log = LoggerFactory.getLogger(LowFloatMomentum.class);
 
-    public LowFloatMomentum(IBKRConnection ibkrConnection, Position position, RiskManager riskManager) {
-        this.ibkrConnection = ibkrConnection;
+    public LowFloatMomentum(Broker broker, Position position, RiskManager riskManager) {
+        this.broker = broker;
         this.position = position;
         this.riskManager = riskManager;
 //        // TODO: Remove for testing purposes
@@ -105,95 +112,122 @@ public class LowFloatMomentum implements Strategy {
         * ---. Check holiday, check stock tradable(no halt,etc), after x:xx hours close all trades as we are intraday
          * */
 //       getTickPrice();
-//       ContractDetails contractDetails = ibkrConnection.reqContractDetreqContractDetailsails(contract);
+//       ContractDetails contractDetails = broker.reqContractDetreqContractDetailsails(contract);
 //        System.out.println(contractDetails.tradingHours());
 //        System.out.println(contractDetails.liquidHours());
 //        System.out.println(contractDetails.timeZoneId());
 
-//        ibkrConnection.reqAllOpenOrder();
-//        List<PositionOutput> positions = ibkrConnection.reqPositions();
+//        broker.reqAllOpenOrder();
+//        List<PositionOutput> positions = broker.reqPositions();
 //        System.out.println("hi1 " + positions);
 //
 //        //TODO: we make a successful order here then we reqPositions again see if it works properly
-//        //ibkrConnection.placeOrder();
-//        List<PositionOutput> positions2 = ibkrConnection.reqPositions();
+//        //broker.placeOrder();
+//        List<PositionOutput> positions2 = broker.reqPositions();
 //        System.out.println("hi2 " + positions2);
 
-//        List<OrderOutput> orderOutputs =  ibkrConnection.reqAllOpenOrder();
+//        List<OrderOutput> orderOutputs =  broker.reqAllOpenOrder();
 
 
 
 
         List<ScanData> filterStocks = scanLowFloatMovers();
-        List<OrderOutput> orders = ibkrConnection.reqAllOpenOrder();
-        List<PositionOutput> positions = ibkrConnection.reqPositions();
+        List<OrderOutput> orders = broker.reqAllOpenOrder();
+        List<PositionOutput> positions = broker.reqPositions();
 
+        List<ScanData> candidates = new ArrayList<>();
         for (ScanData filterStock : filterStocks) {
             if (filterStock.getContractDetails() == null || filterStock.getContractDetails().contract() == null) {
                 log.warn("Skipping scan result with null contract details");
                 continue;
             }
+            candidates.add(filterStock);
+        }
 
-            Contract contract = filterStock.getContractDetails().contract();
-            String symbol = contract.symbol();
-            log.debug("[{}] Evaluating stock from scanner (rank={})", symbol, filterStock.getRank());
+        candidateEvaluator.evaluateAll(candidates,
+                c -> c.getContractDetails().contract().symbol(),
+                c -> evaluateCandidate(c, orders, positions),
+                Duration.ofSeconds(getIntervalSeconds() - CYCLE_DEADLINE_MARGIN_SECONDS));
+    }
 
-            List<Bar> historicalPrices = getHistoricalPrice(contract);
-            if (historicalPrices.isEmpty()) {
-                log.warn("[{}] No historical price data available - skipping", symbol);
-                continue;
-            }
-            log.debug("[{}] Retrieved {} historical bars", symbol, historicalPrices.size());
+    /** Evaluates one scanner candidate; runs concurrently with the cycle's other candidates. */
+    private void evaluateCandidate(ScanData filterStock, List<OrderOutput> orders, List<PositionOutput> positions)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        Contract contract = filterStock.getContractDetails().contract();
+        String symbol = contract.symbol();
+        log.debug("[{}] Evaluating stock from scanner (rank={})", symbol, filterStock.getRank());
+
+        BarSeries historicalPrices = getHistoricalPrice(contract);
+        if (historicalPrices.isEmpty()) {
+            log.warn("[{}] No historical price data available - skipping", symbol);
+            return;
+        }
+        log.debug("[{}] Retrieved {} historical bars", symbol, historicalPrices.size());
 
-            // This api call reqContractDetails is necessary as ScanData Contract Details does not return trading hours
-            ContractDetails contractDetails = ibkrConnection.reqContractDetails(contract);
+        // This api call reqContractDetails is necessary as ScanData Contract Details does not return trading hours
+        ContractDetails contractDetails = broker.reqContractDetails(contract);
 
-            // 1. Safety checks first
-            List<TickPriceOutput> tickPrices = getTickPrice(contract);
-            boolean isStockTradeable = riskManager.isStockTradeable(tickPrices, contractDetails.tradingHours());
+        // 1. Safety checks first
+        Quote quote = broker.reqQuote(contract);
+        boolean isStockTradeable = riskManager.isStockTradeable(quote, contractDetails.tradingHours());
 
-            boolean hasOrder = riskManager.hasOrder(orders, symbol);
+        boolean hasOrder = riskManager.hasOrder(orders, symbol);
 
-            boolean hasPosition = riskManager.hasPosition(positions, symbol);
+        boolean hasPosition = riskManager.hasPosition(positions, symbol);
 
-            if (!isStockTradeable) {
-                log.info("[{}] SKIP: Stock not tradeable (halted or outside hours)", symbol);
-                continue;
-            }
-            if (hasOrder) {
-                log.info("[{}] SKIP: Already has open order", symbol);
-                continue;
-            }
-            if (hasPosition) {
-                log.info("[{}] SKIP: Already has position", symbol);
-                continue;
-            }
+        if (!isStockTradeable) {
+            log.info("[{}] SKIP: Stock not tradeable (halted or outside hours)", symbol);
+            return;
+        }
+        if (hasOrder) {
+            log.info("[{}] SKIP: Already has open order", symbol);
+            return;
+        }
+        if (hasPosition) {
+            log.info("[{}] SKIP: Already has position", symbol);
+            return;
+        }
 
-            // 2. Business Logic - Strategy conditions
-            boolean trendValid = isTrend(historicalPrices);
-            boolean vwapExtensionValid = isVwapExtension(historicalPrices);
+        // 2. Business Logic - Strategy conditions
+        boolean trendValid = isTrend(historicalPrices);
+        boolean vwapExtensionValid = isVwapExtension(historicalPrices);
 
-            if (!trendValid) {
-                log.info("[{}] SKIP: Trend condition not met", symbol);
-                continue;
-            }
-            if (!vwapExtensionValid) {
-                log.info("[{}] SKIP: VWAP extension condition not met", symbol);
-                continue;
-            }
-
-            // 3. Entry condition
-            Bar currentBar = historicalPrices.getLast();
-            if (!isEntry(currentBar)) {
-                log.info("[{}] SKIP: Entry condition not met (close={}, vwap={})",
-                        symbol, currentBar.close(), currentBar.wap());
-                continue;
-            }
+        if (!trendValid) {
+            log.info("[{}] SKIP: Trend condition not met", symbol);
+            return;
+        }
+        if (!vwapExtensionValid) {
+            log.info("[{}] SKIP: VWAP extension condition not met", symbol);
+            return;
+        }
 
-            // 4. All conditions passed - place order
-            log.info("[{}] ALL CONDITIONS MET - Placing bracket order. Price={}, VWAP={}",
-                    symbol, currentBar.close(), currentBar.wap());
-            position.calculateEntryLowFloatMomentum(contract, currentBar, historicalPrices, "Low Float Momentum Main");
+        // 3. Entry condition
+        int currentBar = historicalPrices.lastIndex();
+        if (!isEntry(historicalPrices, currentBar)) {
+            log.info("[{}] SKIP: Entry condition not met (close={}, vwap={})",
+                    symbol, historicalPrices.close(currentBar), historicalPrices.vwap(currentBar));
+            return;
+        }
+        // The checks above read each bar's own WAP; the entry must also hold above the session VWAP.
+        // Relative volume is logged with the entry. Both stream over the series once.
+        double sessionVwap = new SessionVWAP().over(historicalPrices);
+        if (historicalPrices.close(currentBar) <= sessionVwap) {
+            log.info("[{}] SKIP: Close below session VWAP (close={}, sessionVwap={})",
+                    symbol, historicalPrices.close(currentBar), String.format("%.4f", sessionVwap));
+            return;
+        }
+        double relativeVolume = new RelativeVolume(lookBackPeriod).over(historicalPrices);
+
+        // 4. All conditions passed - place order
+        log.info("[{}] ALL CONDITIONS MET - Placing bracket order. Price={}, VWAP={}, sessionVWAP={}, RVOL={}",
+                symbol, historicalPrices.close(currentBar), historicalPrices.vwap(currentBar),
+                String.format("%.4f", sessionVwap), String.format("%.2f", relativeVolume));
+        // Candidates enter one at a time (see BullFlagBreakout.evaluateCandidate)
+        entryLock.lockInterruptibly();
+        try {
+            position.calculateEntryLowFloatMomentum(contract, historicalPrices, currentBar, "Low Float Momentum Main");
+        } finally {
+            entryLock.unlock();
         }
     }
 
@@ -227,25 +261,11 @@ public class LowFloatMomentum implements Strategy {
         // scannerSubscription.moodyRatingAbove("Baa"); // Credit rating filters
         // scannerSubscription.stockTypeFilter("ALL");  // "CORP" or "ADR" or "ETF"
 
-        return ibkrConnection.marketScan(scannerSubscription, filterOptions);
-
-    }
-
-    public List<TickPriceOutput> getTickPrice(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
-        MarketDataInput marketDataInput = MarketDataInput.builder()
-                .contract(contract)
-                .genericTickList("")
-//                .genericTickList("100,101,104,106,165,221,232,236,258,293,294,295,318,411,460,619")
-                .snapshot(true)
-                .regulatorySnapshot(false)
-                .tagValues(null)
-                .build();
+        return broker.marketScan(scannerSubscription, filterOptions);
 
-        List<TickPriceOutput> result = ibkrConnection.reqMarketData(marketDataInput);
-        return result;
     }
 
-    private List<Bar> getHistoricalPrice(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
+    private BarSeries getHistoricalPrice(Contract contract) throws ExecutionException, InterruptedException, TimeoutException {
         HistoricalDataInput historicalDataInput = HistoricalDataInput.builder()
                 .contract(contract)
                 .endDateTime("")
@@ -253,26 +273,26 @@ public class LowFloatMomentum implements Strategy {
                 .barSize(Types.BarSize._1_min)
                 .whatToShow(Types.WhatToShow.TRADES)
                 .useRth(HistoricalDataInput.UseRth.ALL_HOURS)
-                .formatData(HistoricalDataInput.FormatData.HUMAN_READABLE)
-                .keepUpToDate(false)
+                .formatData(HistoricalDataInput.FormatData.EPOCH_STYLE)
+                .keepUpToDate(true)
                 .chartOptions(null)
                 .build();
 
         try {
-            List<Bar> historicalData = ibkrConnection.reqHistoricalData(historicalDataInput);
-            return historicalData != null ? historicalData : Collections.emptyList();
+            BarSeries historicalData = broker.reqLiveBars(historicalDataInput);
+            return historicalData != null ? historicalData : new BarSeries(0);
         } catch (TimeoutException e) {
             log.warn("[{}] Historical data request timed out - skipping", contract.symbol());
-            return Collections.emptyList();
-        } catch (ExecutionException | InterruptedException e) {
+            return new BarSeries(0);
+        } catch (ExecutionException e) {
             log.warn("[{}] Historical data request failed: {}", contract.symbol(), e.getMessage());
-            return Collections.emptyList();
+            return new BarSeries(0);
         }
     }
 
 
     // Check trend is correct
-    public boolean isTrend(List<Bar> historicalData) {
+    public boolean isTrend(BarSeries historicalData) {
         /*
             1. Price > VWAP (80% of the bars)
             2. VWAP Slope VWAP_Curr - VWAP_10_Candles_Back >= 1.5%
@@ -284,8 +304,8 @@ public class LowFloatMomentum implements Strategy {
 
         int lookBackPeriodIndex = historicalData.size() - lookBackPeriod - 1;
 
-        double currCandle = historicalData.getLast().wap().value().doubleValue();
-        double lookBackCandle  =  historicalData.get(lookBackPeriodIndex).wap().value().doubleValue();
+        double currCandle = historicalData.vwap(historicalData.lastIndex());
+        double lookBackCandle  =  historicalData.vwap(lookBackPeriodIndex);
 
         // Division by zero check - only affect denominator
         if (lookBackCandle <= 0 ){
@@ -299,7 +319,7 @@ public class LowFloatMomentum implements Strategy {
         int barsAboveVwap = 0;
 
         for (int i = historicalData.size() - 1; i >= historicalData.size() - lookBackPeriod; i--) {
-           if (historicalData.get(i).close() > historicalData.get(i).wap().value().doubleValue()) {
+           if (historicalData.close(i) > historicalData.vwap(i)) {
                barsAboveVwap++;
            }
         }
@@ -321,19 +341,21 @@ public class LowFloatMomentum implements Strategy {
     }
 
     // Check to ensure that the price has move enough from VWAP - think of it as a rubberband
-    private boolean isVwapExtension(List<Bar> historicalData) {
-        Bar maxCloseBar = historicalData.stream()
-                .skip(Math.max(0, historicalData.size() - lookBackPeriod))
-                .max(Comparator.comparingDouble(Bar::close))
-                .orElse(null);
+    private boolean isVwapExtension(BarSeries historicalData) {
+        int maxCloseBar = -1;
+        for (int i = Math.max(0, historicalData.size() - lookBackPeriod); i < historicalData.size(); i++) {
+            if (maxCloseBar < 0 || historicalData.close(i) > historicalData.close(maxCloseBar)) {
+                maxCloseBar = i;
+            }
+        }
 
-        if (maxCloseBar == null) {
+        if (maxCloseBar < 0) {
             return false;
         }
 
         // The maxVwap is based on the highest closing bar
-        double maxVwap = maxCloseBar.wap().value().doubleValue();
-        double maxClose = maxCloseBar.close();
+        double maxVwap = historicalData.vwap(maxCloseBar);
+        double maxClose = historicalData.close(maxCloseBar);
 
         // Division by zero check
         if (maxVwap <= 0 ){
@@ -352,25 +374,26 @@ public class LowFloatMomentum implements Strategy {
     }
 
     // Check entry  condition
-    private boolean isEntry(Bar currentBar) {
+    private boolean isEntry(BarSeries bars, int currentBar) {
         /** 1st condition: price above vwap and price not too far above VWAP (within entry threshold)
             2nd condition: Check if is a bullish candle
                 1. Close > Open
                 2. Not a Doji candle
          **/
 
-        double currentVwap = currentBar.wap().value().doubleValue();
+        double currentVwap = bars.vwap(currentBar);
+        double close = bars.close(currentBar);
 
-        if (currentBar.close() <= currentVwap ||
-            currentBar.close() > currentVwap * (1 + entryThreshold)) {
+        if (close <= currentVwap ||
+            close > currentVwap * (1 + entryThreshold)) {
             return false;
         }
 
-        if(currentBar.close() <= currentBar.open()){
+        if(!bars.isGreen(currentBar)){
             return false;
         }
 
-        if(dojiCandle(currentBar)) {
+        if(dojiCandle(bars, currentBar)) {
             return false;
         }
 
@@ -378,25 +401,25 @@ public class LowFloatMomentum implements Strategy {
     }
 
     // A doji candle has a very small body (open ~ close) with long wicks
-    private boolean dojiCandle (Bar bar) {
-        double bodySize = Math.abs(bar.open() - bar.close());
-        double totalRange = bar.high() - bar.low();
+    private boolean dojiCandle (BarSeries bars, int bar) {
+        double bodySize = bars.body(bar);
+        double totalRange = bars.high(bar) - bars.low(bar);
 
         return bodySize <= (totalRange * dojiThreshold);
     }
 
     private void closeAllIntradayPositionsAndOrders (LocalTime cutOffTime, List<PositionOutput> positions) {
-        if(Constants.timeNow().isAfter(cutOffTime)) {
+        if(LocalTime.now(broker.clock()).isAfter(cutOffTime)) {
             position.closeAllPositions(positions);
-            ibkrConnection.closeAllOrders();
+            broker.closeAllOrders();
         }
     }
 
     public void onEndOfDay() {
         try {
-            List<PositionOutput> positions = ibkrConnection.reqPositions();
+            List<PositionOutput> positions = broker.reqPositions();
             position.closeAllPositions(positions);
-            ibkrConnection.closeAllOrders();
+            broker.closeAllOrders();
             log.info("Closed all intraday positions and orders");
         } catch (Exception e) {
             log.error("Failed to close positions", e);
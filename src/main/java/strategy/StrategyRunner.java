@@ -2,6 +2,7 @@ package strategy;
 
 import ibkr.IBKRConnection;
 import lombok.Getter;
+import metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import util.Constants;
@@ -158,12 +159,14 @@ public class StrategyRunner {
             }
 
             log.debug("[{}] Executing strategy cycle at {}", strategyName, now);
-            long startTime = System.currentTimeMillis();
+            long startTime = System.nanoTime();
 
             strategy.run();
 
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("[{}] Cycle completed in {}ms", strategyName, duration);
+            long micros = (System.nanoTime() - startTime) / 1000;
+            Metrics.histogram("strategy_cycle_seconds", "Duration of a strategy's run() cycle",
+                    "strategy", strategyName).recordMicros(micros);
+            log.info("[{}] Cycle completed in {}ms", strategyName, micros / 1000);
 
         } catch (Exception e) {
             log.error("[{}] Strategy execution failed: {}", strategyName, e.getMessage(), e);
@@ -0,0 +1,79 @@
+package trade;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * execIds already journaled, partitioned by execution day so memory stays flat: {@link #prune} drops
+ * whole days older than {@value #RETAINED_DAYS} days. Executions older than that (a long reqExecutions
+ * replay) are checked against the trades table's primary key instead.
+ */
+final class ExecIdSet {
+    /** reqExecutions returns at most about a week of fills; older ones are looked up in SQLite. */
+    static final int RETAINED_DAYS = 7;
+
+    private final ConcurrentSkipListMap<LocalDate, Set<String>> byDay = new ConcurrentSkipListMap<>();
+    private volatile LocalDate oldestRetained = LocalDate.MIN;
+
+    /** Marks {@code execId} (executed on {@code day}) as journaled; false if it already was. */
+    boolean add(String execId, LocalDate day) {
+        if (contains(execId)) {
+            return false;
+        }
+        return byDay.computeIfAbsent(day, k -> ConcurrentHashMap.newKeySet()).add(execId);
+    }
+
+    /** True if {@code execId} is held in memory. */
+    boolean contains(String execId) {
+        for (Set<String> ids : byDay.values()) {
+            if (ids.contains(execId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True if {@code execId} was journaled: held in memory or, for an execution older than the
+     * retained days, present in {@code database}. A database hit is remembered until the next prune
+     * so the replayed commission report for it is recognised too.
+     */
+    boolean contains(String execId, LocalDate day, TradeDatabase database) {
+        if (contains(execId)) {
+            return true;
+        }
+        if (database != null && day.isBefore(oldestRetained) && database.containsExecId(execId)) {
+            byDay.computeIfAbsent(day, k -> ConcurrentHashMap.newKeySet()).add(execId);
+            return true;
+        }
+        return false;
+    }
+
+    /** Drops the partitions for days before {@code today - RETAINED_DAYS}; returns how many IDs were dropped. */
+    int prune(LocalDate today) {
+        LocalDate cutoff = today.minusDays(RETAINED_DAYS);
+        oldestRetained = cutoff;
+        int dropped = 0;
+        Map<LocalDate, Set<String>> old = byDay.headMap(cutoff);
+        for (Set<String> ids : old.values()) {
+            dropped += ids.size();
+        }
+        old.clear();
+        return dropped;
+    }
+
+    int size() {
+        int n = 0;
+        for (Set<String> ids : byDay.values()) {
+            n += ids.size();
+        }
+        return n;
+    }
+
+    int days() {
+        return byDay.size();
+    }
+}
@@ -1,22 +1,91 @@
 package trade;
 
+import metrics.LatencyHistogram;
+import metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * SQLite persistence for the trade journal.
+ *
+ * {@link #insertTrade} only enqueues: a single writer thread drains the queue and commits inserts in
+ * batches of up to {@value #MAX_BATCH} rows, waiting at most {@value #BATCH_WINDOW_MS}ms after the
+ * first row for more to arrive, so a reqExecutions replay costs one fsync per batch instead of one
+ * per fill and the TWS message thread never touches the disk. The database runs in WAL mode with
+ * synchronous=NORMAL: a commit survives a crash of the bot, and a power loss can only drop the last
+ * few commits, which the next reqExecutions replay restores. {@link #close()} drains the queue first.
+ */
 public class TradeDatabase {
     private static final Logger log = LoggerFactory.getLogger(TradeDatabase.class);
 
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH = 500;
+    private static final long BATCH_WINDOW_MS = 50;
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+    private static final long QUEUE_FULL_WARN_INTERVAL_MS = 5_000;
+    private static final int BUSY_TIMEOUT_MS = 5_000;      // trades.db is shared with ContractDetailsDatabase
+
+    private static final String INSERT_SQL = "INSERT OR IGNORE INTO trades (exec_id, symbol, strategy, time, side, shares, fill_price, commission, realized_pnl, net_pnl, is_closing_trade) VALUES (?,?,?,?,?,?,?,?,?,?,?)";
+
+    /** Writer queue and commit metrics; latencies cover executeBatch + commit. */
+    public record WriterStats(int queued, int maxQueued, long written, long failed, long batches,
+                              long totalCommitMicros, long maxCommitMicros) {
+        public double avgBatchSize() {
+            return batches > 0 ? (double) (written + failed) / batches : 0.0;
+        }
+
+        public double avgCommitMs() {
+            return batches > 0 ? totalCommitMicros / 1000.0 / batches : 0.0;
+        }
+
+        public double maxCommitMs() {
+            return maxCommitMicros / 1000.0;
+        }
+    }
+
+    /** One strategy's totals for one trading day, aggregated in SQL. */
+    public record DailyTotals(String strategy, LocalDate day, int trades, int closed, int winners,
+                              double netPnL, double commission) {}
+
     private Connection conn;
+    private final Object connLock = new Object();
+    private final BlockingQueue<TradeRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread writer;
+    private volatile boolean closed;
+    // Producers hold the read lock from the closed check through the enqueue, so once close() has
+    // flipped closed under the write lock nothing more can reach the queue behind the writer's back
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile long lastQueueFullWarnMs;
+
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalCommitMicros = new AtomicLong();
+    private final AtomicLong maxCommitMicros = new AtomicLong();
+    private final LatencyHistogram commitLatency = Metrics.histogram("trade_db_commit_seconds",
+            "Time to write and commit one batch of trades to SQLite");
 
     public void init(String dbPath) throws SQLException {
         conn = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
         conn.setAutoCommit(true);
         try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
             stmt.execute("""
                 CREATE TABLE IF NOT EXISTS trades (
                     exec_id TEXT PRIMARY KEY,
@@ -32,67 +101,309 @@ public class TradeDatabase {
                     is_closing_trade INTEGER
                 )
                 """);
+            // ISO-8601 text sorts chronologically, so range scans on time use these indexes
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_trades_time ON trades(time)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_trades_strategy_time ON trades(strategy, time)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_trades_symbol_time ON trades(symbol, time)");
         }
-        log.info("TradeDatabase: initialized ({})", dbPath);
+        writer = new Thread(this::writeLoop, "TradeDB-Writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("TradeDatabase: initialized ({}, WAL)", dbPath);
     }
 
+    /** Queues the trade for the writer thread; blocks only if the writer has fallen {@value #QUEUE_CAPACITY} rows behind. */
     public void insertTrade(TradeRecord trade) {
         if (conn == null) return;
-        String sql = "INSERT OR IGNORE INTO trades (exec_id, symbol, strategy, time, side, shares, fill_price, commission, realized_pnl, net_pnl, is_closing_trade) VALUES (?,?,?,?,?,?,?,?,?,?,?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, trade.getExecId());
-            ps.setString(2, trade.getSymbol());
-            ps.setString(3, trade.getStrategy());
-            ps.setString(4, trade.getTime() != null ? trade.getTime().toString() : null);
-            ps.setString(5, trade.getSide());
-            ps.setDouble(6, trade.getShares());
-            ps.setDouble(7, trade.getFillPrice());
-            ps.setDouble(8, trade.getCommission());
-            ps.setDouble(9, trade.getRealizedPnL());
-            ps.setDouble(10, trade.getNetPnL());
-            ps.setInt(11, trade.isClosingTrade() ? 1 : 0);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            log.error("TradeDatabase: failed to insert trade execId={}", trade.getExecId(), e);
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                log.error("TradeDatabase: closed, dropping trade execId={}", trade.getExecId());
+                return;
+            }
+            if (!queue.offer(trade)) {
+                long now = System.currentTimeMillis();
+                if (now - lastQueueFullWarnMs >= QUEUE_FULL_WARN_INTERVAL_MS) {
+                    lastQueueFullWarnMs = now;
+                    log.warn("TradeDatabase: write queue full ({}), blocking until the writer catches up", QUEUE_CAPACITY);
+                }
+                try {
+                    queue.put(trade);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.error("TradeDatabase: interrupted, dropping trade execId={}", trade.getExecId());
+                    return;
+                }
+            }
+        } finally {
+            closeLock.readLock().unlock();
         }
+        maxQueued.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    public WriterStats getWriterStats() {
+        return new WriterStats(queue.size(), maxQueued.get(), written.get(), failed.get(), batches.get(),
+                totalCommitMicros.get(), maxCommitMicros.get());
     }
 
-    public List<TradeRecord> loadAll() {
+    /**
+     * Trades with {@code from <= time < to} ({@code to} may be {@code null} for no upper bound), oldest first, optionally restricted to one strategy and/or
+     * symbol ({@code null} = any). Served by the time, strategy and symbol indexes. Trades still queued
+     * for the writer are not visible yet.
+     */
+    public List<TradeRecord> query(LocalDateTime from, LocalDateTime to, String strategy, String symbol) {
+        return query(from, to, strategy, symbol, 0);
+    }
+
+    /** As {@link #query(LocalDateTime, LocalDateTime, String, String)}, returning at most the first {@code limit} trades ({@code 0} = all). */
+    public List<TradeRecord> query(LocalDateTime from, LocalDateTime to, String strategy, String symbol, int limit) {
         List<TradeRecord> trades = new ArrayList<>();
         if (conn == null) return trades;
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM trades ORDER BY time")) {
-            while (rs.next()) {
-                String timeStr = rs.getString("time");
-                LocalDateTime time = timeStr != null ? LocalDateTime.parse(timeStr) : null;
-                trades.add(TradeRecord.builder()
-                        .execId(rs.getString("exec_id"))
-                        .symbol(rs.getString("symbol"))
-                        .strategy(rs.getString("strategy"))
-                        .time(time)
-                        .side(rs.getString("side"))
-                        .shares(rs.getDouble("shares"))
-                        .fillPrice(rs.getDouble("fill_price"))
-                        .commission(rs.getDouble("commission"))
-                        .realizedPnL(rs.getDouble("realized_pnl"))
-                        .netPnL(rs.getDouble("net_pnl"))
-                        .isClosingTrade(rs.getInt("is_closing_trade") == 1)
-                        .build());
+        StringBuilder sql = new StringBuilder("SELECT * FROM trades WHERE time >= ?");
+        if (to != null) sql.append(" AND time < ?");
+        if (strategy != null) sql.append(" AND strategy = ?");
+        if (symbol != null) sql.append(" AND symbol = ?");
+        sql.append(" ORDER BY time");
+        if (limit > 0) sql.append(" LIMIT ?");
+        synchronized (connLock) {
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int i = 1;
+                ps.setString(i++, from.toString());
+                if (to != null) ps.setString(i++, to.toString());
+                if (strategy != null) ps.setString(i++, strategy);
+                if (symbol != null) ps.setString(i++, symbol);
+                if (limit > 0) ps.setInt(i, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        trades.add(readTrade(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                log.error("TradeDatabase: failed to query trades {} .. {}", from, to, e);
             }
-        } catch (SQLException e) {
-            log.error("TradeDatabase: failed to load trades", e);
         }
-        log.info("TradeDatabase: loaded {} trades from database", trades.size());
+        log.debug("TradeDatabase: {} trades in {} .. {} (strategy={}, symbol={})", trades.size(), from, to, strategy, symbol);
         return trades;
     }
 
+    /** True if a trade with {@code execId} has been written (primary-key lookup). */
+    public boolean containsExecId(String execId) {
+        if (conn == null) return false;
+        synchronized (connLock) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM trades WHERE exec_id = ?")) {
+                ps.setString(1, execId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            } catch (SQLException e) {
+                log.error("TradeDatabase: failed to look up execId={}", execId, e);
+                return false;
+            }
+        }
+    }
+
+    /** Trades with {@code time >= from}, oldest first. */
+    public List<TradeRecord> loadSince(LocalDateTime from) {
+        return query(from, null, null, null);
+    }
+
+    /**
+     * Per-strategy, per-day totals for trades before {@code before} (and trades with no time, reported
+     * with a {@code null} day), aggregated in SQL so old history never has to be loaded.
+     */
+    public List<DailyTotals> dailyTotalsBefore(LocalDateTime before) {
+        List<DailyTotals> totals = new ArrayList<>();
+        if (conn == null) return totals;
+        String sql = """
+            SELECT strategy, substr(time, 1, 10) AS day, count(*) AS trades,
+                   sum(is_closing_trade) AS closed,
+                   sum(CASE WHEN is_closing_trade = 1 AND net_pnl > 0 THEN 1 ELSE 0 END) AS winners,
+                   sum(CASE WHEN is_closing_trade = 1 THEN net_pnl ELSE 0 END) AS net_pnl,
+                   sum(commission) AS commission
+            FROM trades
+            WHERE time < ? OR time IS NULL
+            GROUP BY strategy, day
+            ORDER BY min(time)
+            """;
+        synchronized (connLock) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, before.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String day = rs.getString("day");
+                        totals.add(new DailyTotals(rs.getString("strategy"),
+                                day != null ? LocalDate.parse(day) : null,
+                                rs.getInt("trades"), rs.getInt("closed"), rs.getInt("winners"),
+                                rs.getDouble("net_pnl"), rs.getDouble("commission")));
+                    }
+                }
+            } catch (SQLException e) {
+                log.error("TradeDatabase: failed to aggregate trades before {}", before, e);
+            }
+        }
+        log.info("TradeDatabase: aggregated {} strategy-days of history before {}", totals.size(), before.toLocalDate());
+        return totals;
+    }
+
+    /**
+     * Stops accepting trades, waits for the writer to commit everything queued, then closes the connection.
+     * If the writer does not finish in time, whatever is still queued is logged trade by trade and dropped
+     * (the next reqExecutions replay restores it) rather than lost silently.
+     */
     public void close() {
-        if (conn != null) {
+        if (conn == null) return;
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (writer != null) {
+            try {
+                writer.join(CLOSE_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<TradeRecord> unwritten = new ArrayList<>();
+        queue.drainTo(unwritten);
+        if (!unwritten.isEmpty()) {
+            log.error("TradeDatabase: writer still busy after {}ms, {} trades not flushed", CLOSE_TIMEOUT_MS, unwritten.size());
+            for (TradeRecord trade : unwritten) {
+                log.error("TradeDatabase: not flushed execId={} {} {} {}", trade.getExecId(),
+                        trade.getSymbol(), trade.getSide(), trade.getShares());
+            }
+        }
+        synchronized (connLock) {
             try {
                 conn.close();
             } catch (SQLException e) {
                 log.warn("TradeDatabase: error closing connection", e);
             }
         }
+        log.info("TradeDatabase: closed ({} trades written in {} batches, avg commit {}ms)",
+                written.get(), batches.get(), String.format("%.2f", getWriterStats().avgCommitMs()));
+    }
+
+    // -------------------------------------------------------------------------
+    // Writer thread
+    // -------------------------------------------------------------------------
+
+    private void writeLoop() {
+        List<TradeRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                TradeRecord first = queue.poll(BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed) break;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW_MS);
+                while (batch.size() < MAX_BATCH && !closed) {
+                    long remaining = deadline - System.nanoTime();
+                    TradeRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, MAX_BATCH - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // Only close() stops the writer; keep draining
+                continue;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<TradeRecord> batch) {
+        long start = System.nanoTime();
+        synchronized (connLock) {
+            try {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+                    for (TradeRecord trade : batch) {
+                        bind(ps, trade);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+                written.addAndGet(batch.size());
+            } catch (SQLException e) {
+                log.error("TradeDatabase: batch of {} trades failed, retrying individually", batch.size(), e);
+                rollback();
+                writeIndividually(batch);
+            } finally {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    log.warn("TradeDatabase: failed to restore autocommit", e);
+                }
+            }
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        batches.incrementAndGet();
+        totalCommitMicros.addAndGet(micros);
+        maxCommitMicros.accumulateAndGet(micros, Math::max);
+        commitLatency.recordMicros(micros);
+        log.debug("TradeDatabase: committed {} trades in {}us", batch.size(), micros);
+    }
+
+    /** Fallback after a failed batch so one bad row cannot drop the others. Caller holds connLock. */
+    private void writeIndividually(List<TradeRecord> batch) {
+        for (TradeRecord trade : batch) {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+                bind(ps, trade);
+                ps.executeUpdate();
+                conn.commit();
+                written.incrementAndGet();
+            } catch (SQLException e) {
+                rollback();
+                failed.incrementAndGet();
+                log.error("TradeDatabase: failed to insert trade execId={}", trade.getExecId(), e);
+            }
+        }
+    }
+
+    private void rollback() {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            log.warn("TradeDatabase: rollback failed", e);
+        }
+    }
+
+    private static TradeRecord readTrade(ResultSet rs) throws SQLException {
+        String timeStr = rs.getString("time");
+        LocalDateTime time = timeStr != null ? LocalDateTime.parse(timeStr) : null;
+        return TradeRecord.builder()
+                .execId(rs.getString("exec_id"))
+                .symbol(rs.getString("symbol"))
+                .strategy(rs.getString("strategy"))
+                .time(time)
+                .side(rs.getString("side"))
+                .shares(rs.getDouble("shares"))
+                .fillPrice(rs.getDouble("fill_price"))
+                .commission(rs.getDouble("commission"))
+                .realizedPnL(rs.getDouble("realized_pnl"))
+                .netPnL(rs.getDouble("net_pnl"))
+                .isClosingTrade(rs.getInt("is_closing_trade") == 1)
+                .build();
+    }
+
+    private static void bind(PreparedStatement ps, TradeRecord trade) throws SQLException {
+        ps.setString(1, trade.getExecId());
+        ps.setString(2, trade.getSymbol());
+        ps.setString(3, trade.getStrategy());
+        ps.setString(4, trade.getTime() != null ? trade.getTime().toString() : null);
+        ps.setString(5, trade.getSide());
+        ps.setDouble(6, trade.getShares());
+        ps.setDouble(7, trade.getFillPrice());
+        ps.setDouble(8, trade.getCommission());
+        ps.setDouble(9, trade.getRealizedPnL());
+        ps.setDouble(10, trade.getNetPnL());
+        ps.setInt(11, trade.isClosingTrade() ? 1 : 0);
     }
 }
@@ -1,12 +1,16 @@
 package trade;
 
+import data.AppendOnlyLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Thread-safe in-memory trade journal.
@@ -15,7 +19,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
  *
  * Supports both real-time fills (current session) and historical fills
  * replayed via reqExecutions(). Deduplicates by execId so reconnects
- * don't double-count.
+ * don't double-count; the execId set keeps a week in memory and defers to
+ * the database for older fills, the trade log keeps the last
+ * {@value #HOT_WINDOW_DAYS} days and defers to the database for older
+ * queries, and unmatched callbacks expire, so memory stays flat over long
+ * uptimes.
  *
  * Strategy resolution priority:
  *   1. execution.orderRef() — present for all fills (historical + live)
@@ -25,25 +33,64 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class TradeJournal {
     private static final Logger log = LoggerFactory.getLogger(TradeJournal.class);
 
+    /** Days of history kept in memory; covers the longest P&L period the TUI offers. */
+    private static final int HOT_WINDOW_DAYS = 90;
+
+    /** An execution or commission report whose counterpart has not arrived after this long is dropped. */
+    private static final long PENDING_TTL_MS = 10 * 60 * 1000L;
+    private static final long REAP_INTERVAL_MS = 60 * 1000L;
+
     // --- Inner types ---
 
     public record OrderMeta(String strategy, String symbol) {}
 
     private record PendingExecution(
         String execId, int orderId, String orderRef, String symbol,
-        String side, double shares, double price, LocalDateTime time
+        String side, double shares, double price, LocalDateTime time, long receivedAtMs
     ) {}
 
-    private record CommissionData(double commission, double realizedPnL) {}
+    private record CommissionData(double commission, double realizedPnL, long receivedAtMs) {}
+
+    /** Correlation state and what the reaper and the execId set have dropped. */
+    public record PendingStats(
+        int pendingExecutions,
+        int pendingCommissions,
+        long expiredExecutions,
+        long expiredCommissions,
+        int dedupExecIds,
+        int dedupDays
+    ) {}
 
     public record StrategySummary(
         String strategy,
         int totalTrades,
+        int closedTrades,
         int winningTrades,
         double totalNetPnL,
         double totalCommission
     ) {}
 
+    /** Running totals for one strategy on one trading day. Guarded by {@link #dayTotals}. */
+    private static final class DayTotals {
+        int trades;
+        int closed;
+        int winners;
+        double netPnL;
+        double commission;
+
+        void add(TradeRecord trade) {
+            trades++;
+            commission += trade.getCommission();
+            if (trade.isClosingTrade()) {
+                closed++;
+                netPnL += trade.getNetPnL();
+                if (trade.getNetPnL() > 0) {
+                    winners++;
+                }
+            }
+        }
+    }
+
     // --- State ---
 
     /** Optional SQLite persistence — set via setter, not constructor */
@@ -58,11 +105,40 @@ public class TradeJournal {
     /** execId → commission report waiting for execution (handles race where commission arrives first) */
     private final Map<String, CommissionData> pendingCommissionMap = new ConcurrentHashMap<>();
 
-    /** Finalized trade records, ordered by arrival */
-    private final List<TradeRecord> completedTrades = new CopyOnWriteArrayList<>();
+    /** Finalized trade records in the hot window, ordered by arrival; readers take snapshots */
+    private final AppendOnlyLog<TradeRecord> completedTrades = new AppendOnlyLog<>();
+
+    /**
+     * strategy → trading day → totals, strategies in order of their first trade. Maintained as trades
+     * are finalized so summaries sum a few day buckets instead of rescanning the history. Trades without
+     * a time are filed under {@link LocalDate#MIN} and only count towards all-time summaries.
+     */
+    private final Map<String, NavigableMap<LocalDate, DayTotals>> dayTotals = new LinkedHashMap<>();
+
+    /**
+     * First day held in memory. Older trades stay in the database and their rows are queried on demand.
+     * With a database it moves forward as the date rolls over (see {@link #rollWindow}), dropping the
+     * trades that fall out of the window from {@link #completedTrades}.
+     */
+    private volatile LocalDate windowStart = LocalDate.MIN;
+    /**
+     * First day {@link #dayTotals} was built from trades. Day totals before it are aggregated in SQL on
+     * the first query that reaches back that far; rolling the window does not move it.
+     */
+    private volatile LocalDate totalsStart = LocalDate.MIN;
+    private final Object windowLock = new Object();
+    private final Object historyLock = new Object();
+    private volatile boolean historyTotalsLoaded;
 
     /** Tracks already-processed execIds to prevent duplicates on reconnect / reqExecutions replay */
-    private final Set<String> processedExecIds = ConcurrentHashMap.newKeySet();
+    private final ExecIdSet processedExecIds = new ExecIdSet();
+
+    private final AtomicLong expiredExecutions = new AtomicLong();
+    private final AtomicLong expiredCommissions = new AtomicLong();
+    private volatile long lastReapMs = System.currentTimeMillis();
+
+    /** Notified of each finalized trade on the callback thread; must not block */
+    private final List<Consumer<TradeRecord>> tradeListeners = new CopyOnWriteArrayList<>();
 
     // --- Public API ---
 
@@ -70,17 +146,37 @@ public class TradeJournal {
         this.database = db;
     }
 
-    /** Loads all trades from the database into memory. Call once on startup. */
+    /** The persistence layer, or {@code null} if none is set. */
+    public TradeDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Calls {@code listener} with every trade finalized from now on, after it is journaled. Runs on the
+     * TWS message thread, so the listener must hand the record off rather than do I/O.
+     */
+    public void addTradeListener(Consumer<TradeRecord> listener) {
+        tradeListeners.add(listener);
+    }
+
+    /**
+     * Loads the last {@value #HOT_WINDOW_DAYS} days of trades from the database into memory. Call once on
+     * startup; the cost depends on the window, not on how much history the database holds.
+     */
     public void loadFromDatabase() {
         if (database == null) return;
-        List<TradeRecord> dbTrades = database.loadAll();
+        windowStart = LocalDate.now().minusDays(HOT_WINDOW_DAYS);
+        totalsStart = windowStart;
+        List<TradeRecord> dbTrades = database.loadSince(windowStart.atStartOfDay());
         for (TradeRecord trade : dbTrades) {
-            if (processedExecIds.add(trade.getExecId())) {
+            if (processedExecIds.add(trade.getExecId(), dayOf(trade.getTime()))) {
                 completedTrades.add(trade);
+                addToTotals(trade);
             }
         }
-        log.info("TradeJournal: loaded {} trades from database ({} total in memory)",
-                dbTrades.size(), completedTrades.size());
+        processedExecIds.prune(LocalDate.now());
+        log.info("TradeJournal: loaded {} trades since {} from database ({} total in memory)",
+                dbTrades.size(), windowStart, completedTrades.size());
     }
 
     public int getPendingExecCount() {
@@ -91,6 +187,45 @@ public class TradeJournal {
         return pendingCommissionMap.size();
     }
 
+    public PendingStats getPendingStats() {
+        return new PendingStats(pendingExecMap.size(), pendingCommissionMap.size(),
+                expiredExecutions.get(), expiredCommissions.get(),
+                processedExecIds.size(), processedExecIds.days());
+    }
+
+    /**
+     * Drops executions and commission reports whose counterpart has not arrived within
+     * {@value #PENDING_TTL_MS}ms (lost across a disconnect, or never sent for some manual TWS fills),
+     * execIds older than the dedup window, and trades that have left the hot window. Runs at most once
+     * a minute from the record callbacks; may also be called directly.
+     */
+    public void reapStalePending() {
+        long now = System.currentTimeMillis();
+        lastReapMs = now;
+        long cutoff = now - PENDING_TTL_MS;
+        for (Map.Entry<String, PendingExecution> e : pendingExecMap.entrySet()) {
+            PendingExecution exec = e.getValue();
+            if (exec.receivedAtMs() < cutoff && pendingExecMap.remove(e.getKey(), exec)) {
+                expiredExecutions.incrementAndGet();
+                log.warn("TradeJournal: expired execution with no commission report execId={} symbol={} side={} shares={} price={}",
+                        exec.execId(), exec.symbol(), exec.side(), exec.shares(), exec.price());
+            }
+        }
+        for (Map.Entry<String, CommissionData> e : pendingCommissionMap.entrySet()) {
+            CommissionData comm = e.getValue();
+            if (comm.receivedAtMs() < cutoff && pendingCommissionMap.remove(e.getKey(), comm)) {
+                expiredCommissions.incrementAndGet();
+                log.warn("TradeJournal: expired commission report with no execution execId={} commission={}",
+                        e.getKey(), comm.commission());
+            }
+        }
+        int dropped = processedExecIds.prune(LocalDate.now());
+        if (dropped > 0) {
+            log.debug("TradeJournal: dropped {} execIds older than {} days from the dedup set", dropped, ExecIdSet.RETAINED_DAYS);
+        }
+        rollWindow(LocalDate.now());
+    }
+
     /** Called from openOrder() to register strategy/symbol for an order ID. */
     public void recordOrderMeta(int orderId, String strategy, String symbol) {
         if (strategy == null || strategy.isBlank()) return;
@@ -106,12 +241,14 @@ public class TradeJournal {
      */
     public void recordExecution(String execId, int orderId, String orderRef, String symbol,
                                 String side, double shares, double price, LocalDateTime time) {
-        if (processedExecIds.contains(execId)) {
+        maybeReap();
+        if (processedExecIds.contains(execId, dayOf(time), database)) {
             log.debug("TradeJournal: skipping duplicate execId={}", execId);
             return;
         }
 
-        PendingExecution exec = new PendingExecution(execId, orderId, orderRef, symbol, side, shares, price, time);
+        PendingExecution exec = new PendingExecution(execId, orderId, orderRef, symbol, side, shares, price, time,
+                System.currentTimeMillis());
 
         // Check if commission report already arrived for this execId
         CommissionData commission = pendingCommissionMap.remove(execId);
@@ -126,12 +263,14 @@ public class TradeJournal {
 
     /** Called from commissionAndFeesReport(). Triggers trade completion when the matching execution exists. */
     public void recordCommission(String execId, double commission, double realizedPnL) {
+        maybeReap();
+        // Memory only: replayed reports for old executions were remembered when the execution was skipped
         if (processedExecIds.contains(execId)) {
             log.debug("TradeJournal: skipping duplicate commission for execId={}", execId);
             return;
         }
 
-        CommissionData commData = new CommissionData(commission, realizedPnL);
+        CommissionData commData = new CommissionData(commission, realizedPnL, System.currentTimeMillis());
 
         // Check if execution already arrived for this execId
         PendingExecution exec = pendingExecMap.remove(execId);
@@ -143,35 +282,96 @@ public class TradeJournal {
         log.debug("TradeJournal: recorded commission execId={} commission={} realizedPnL={}", execId, commission, realizedPnL);
     }
 
+    /**
+     * Completed trades in the hot window (the last {@value #HOT_WINDOW_DAYS} days when a database is
+     * set, everything since startup otherwise), as an immutable snapshot: O(1), no copy, unaffected by
+     * later fills.
+     */
     public List<TradeRecord> getCompletedTrades() {
-        return Collections.unmodifiableList(completedTrades);
+        return completedTrades.snapshot();
     }
 
-    /** Aggregates completed trades per strategy. */
-    public Map<String, StrategySummary> getStrategySummaries() {
-        Map<String, List<TradeRecord>> byStrategy = new LinkedHashMap<>();
-        for (TradeRecord trade : completedTrades) {
-            byStrategy.computeIfAbsent(trade.getStrategy(), k -> new ArrayList<>()).add(trade);
+    /**
+     * Trades with {@code from <= time < to} ({@code to} may be {@code null}), optionally restricted to
+     * one strategy and/or symbol ({@code null} = any). The part of the range inside the hot window is
+     * filtered in memory; anything older is an indexed database query.
+     */
+    public List<TradeRecord> getTrades(LocalDateTime from, LocalDateTime to, String strategy, String symbol) {
+        return getTrades(from, to, strategy, symbol, 0);
+    }
+
+    /**
+     * As {@link #getTrades(LocalDateTime, LocalDateTime, String, String)}, returning at most the oldest
+     * {@code limit} trades ({@code 0} = all). The limit is pushed into the database query, so a page
+     * near the start of a long history does not load the rest of it.
+     */
+    public List<TradeRecord> getTrades(LocalDateTime from, LocalDateTime to, String strategy, String symbol, int limit) {
+        // Snapshot before reading the window start: rollWindow moves the start before dropping trades
+        List<TradeRecord> hot = completedTrades.snapshot();
+        LocalDateTime hotStart = windowStart.atStartOfDay();
+        List<TradeRecord> trades = new ArrayList<>();
+        if (database != null && from.isBefore(hotStart)) {
+            trades.addAll(database.query(from, to != null && to.isBefore(hotStart) ? to : hotStart, strategy, symbol, limit));
+        }
+        if ((to == null || to.isAfter(hotStart)) && (limit <= 0 || trades.size() < limit)) {
+            LocalDateTime start = from.isBefore(hotStart) ? hotStart : from;
+            for (TradeRecord t : hot) {
+                if (limit > 0 && trades.size() == limit) break;
+                if (t.getTime() != null && !t.getTime().isBefore(start) && (to == null || t.getTime().isBefore(to))
+                        && (strategy == null || strategy.equals(t.getStrategy()))
+                        && (symbol == null || symbol.equals(t.getSymbol()))) {
+                    trades.add(t);
+                }
+            }
         }
+        return trades;
+    }
 
+    /** All-time totals per strategy. */
+    public Map<String, StrategySummary> getStrategySummaries() {
+        return getStrategySummaries(LocalDate.MIN);
+    }
+
+    /** Totals per strategy over trading days from {@code since} (inclusive) onwards. */
+    public Map<String, StrategySummary> getStrategySummaries(LocalDate since) {
+        loadHistoryTotals(since);
         Map<String, StrategySummary> summaries = new LinkedHashMap<>();
-        for (Map.Entry<String, List<TradeRecord>> entry : byStrategy.entrySet()) {
-            String strategy = entry.getKey();
-            List<TradeRecord> trades = entry.getValue();
-            int totalTrades = trades.size();
-            int winningTrades = (int) trades.stream().filter(t -> t.isClosingTrade() && t.getNetPnL() > 0).count();
-            double totalNetPnL = trades.stream().filter(TradeRecord::isClosingTrade).mapToDouble(TradeRecord::getNetPnL).sum();
-            double totalCommission = trades.stream().mapToDouble(TradeRecord::getCommission).sum();
-            summaries.put(strategy, new StrategySummary(strategy, totalTrades, winningTrades, totalNetPnL, totalCommission));
+        synchronized (dayTotals) {
+            for (Map.Entry<String, NavigableMap<LocalDate, DayTotals>> entry : dayTotals.entrySet()) {
+                StrategySummary summary = sum(entry.getKey(), entry.getValue().tailMap(since, true).values());
+                if (summary.totalTrades() > 0) {
+                    summaries.put(entry.getKey(), summary);
+                }
+            }
         }
         return summaries;
     }
 
+    /** Totals across all strategies from {@code since} (inclusive) onwards; the strategy name is {@code null}. */
+    public StrategySummary getTotalSummary(LocalDate since) {
+        loadHistoryTotals(since);
+        List<DayTotals> days = new ArrayList<>();
+        synchronized (dayTotals) {
+            for (NavigableMap<LocalDate, DayTotals> byDay : dayTotals.values()) {
+                days.addAll(byDay.tailMap(since, true).values());
+            }
+            return sum(null, days);
+        }
+    }
+
+    /** Strategies that have at least one completed trade, in order of their first trade. */
+    public List<String> getStrategies() {
+        loadHistoryTotals(LocalDate.MIN);
+        synchronized (dayTotals) {
+            return new ArrayList<>(dayTotals.keySet());
+        }
+    }
+
     // --- Private helpers ---
 
     private void finalizeTrade(PendingExecution exec, CommissionData commData) {
         // Mark as processed before adding to list to prevent any race on duplicate callbacks
-        if (!processedExecIds.add(exec.execId())) {
+        if (!processedExecIds.add(exec.execId(), dayOf(exec.time()))) {
             log.debug("TradeJournal: duplicate finalize for execId={}, ignoring", exec.execId());
             return;
         }
@@ -209,11 +409,98 @@ public class TradeJournal {
                 .build();
 
         completedTrades.add(record);
+        addToTotals(record);
         if (database != null) {
             database.insertTrade(record);
         }
         log.info("TradeJournal: finalized trade execId={} symbol={} strategy='{}' side={} closing={} netPnL={}",
                 exec.execId(), symbol, strategy, exec.side(), isClosing, netPnL);
+        for (Consumer<TradeRecord> listener : tradeListeners) {
+            try {
+                listener.accept(record);
+            } catch (RuntimeException e) {
+                log.warn("TradeJournal: trade listener failed for execId={}: {}", exec.execId(), e.getMessage());
+            }
+        }
+    }
+
+    private void maybeReap() {
+        if (System.currentTimeMillis() - lastReapMs >= REAP_INTERVAL_MS) {
+            reapStalePending();
+        }
+    }
+
+    private static LocalDate dayOf(LocalDateTime time) {
+        return time != null ? time.toLocalDate() : LocalDate.now();
+    }
+
+    private void addToTotals(TradeRecord trade) {
+        LocalDate day = trade.getTime() != null ? trade.getTime().toLocalDate() : LocalDate.MIN;
+        synchronized (dayTotals) {
+            dayTotals.computeIfAbsent(trade.getStrategy(), k -> new TreeMap<>())
+                    .computeIfAbsent(day, k -> new DayTotals())
+                    .add(trade);
+        }
+    }
+
+    /**
+     * Moves the hot window to start {@value #HOT_WINDOW_DAYS} days before {@code today} and drops the
+     * trades before it from memory; they are in the database, which answers queries that reach back
+     * that far. Trades arrive roughly in time order, so the scan stops at the first one still inside
+     * the window; a late replay left behind it is outside the window and filtered out of memory reads.
+     * Without a database nothing is dropped, since older queries would have nowhere to go.
+     */
+    private void rollWindow(LocalDate today) {
+        if (database == null || windowStart.equals(LocalDate.MIN)) return;
+        LocalDate start = today.minusDays(HOT_WINDOW_DAYS);
+        if (!start.isAfter(windowStart)) return;
+        synchronized (windowLock) {
+            if (!start.isAfter(windowStart)) return;
+            windowStart = start;
+            LocalDateTime cutoff = start.atStartOfDay();
+            int dropped = completedTrades.dropWhile(t -> t.getTime() == null || t.getTime().isBefore(cutoff));
+            log.info("TradeJournal: hot window now starts {}, dropped {} older trades from memory ({} remain)",
+                    start, dropped, completedTrades.size());
+        }
+    }
+
+    /**
+     * Folds the SQL-aggregated day totals from before {@link #totalsStart} into {@link #dayTotals} the
+     * first time a query starts before it. The query runs outside the totals lock so fills are not
+     * held up behind it.
+     */
+    private void loadHistoryTotals(LocalDate since) {
+        if (historyTotalsLoaded || database == null || !since.isBefore(totalsStart)) return;
+        synchronized (historyLock) {
+            if (historyTotalsLoaded) return;
+            List<TradeDatabase.DailyTotals> history = database.dailyTotalsBefore(totalsStart.atStartOfDay());
+            synchronized (dayTotals) {
+                for (TradeDatabase.DailyTotals row : history) {
+                    DayTotals d = dayTotals.computeIfAbsent(row.strategy(), k -> new TreeMap<>())
+                            .computeIfAbsent(row.day() != null ? row.day() : LocalDate.MIN, k -> new DayTotals());
+                    d.trades += row.trades();
+                    d.closed += row.closed();
+                    d.winners += row.winners();
+                    d.netPnL += row.netPnL();
+                    d.commission += row.commission();
+                }
+            }
+            historyTotalsLoaded = true;
+        }
+    }
+
+    /** Caller holds the {@link #dayTotals} lock. */
+    private static StrategySummary sum(String strategy, Collection<DayTotals> days) {
+        int trades = 0, closed = 0, winners = 0;
+        double netPnL = 0, commission = 0;
+        for (DayTotals d : days) {
+            trades += d.trades;
+            closed += d.closed;
+            winners += d.winners;
+            netPnL += d.netPnL;
+            commission += d.commission;
+        }
+        return new StrategySummary(strategy, trades, closed, winners, netPnL, commission);
     }
 
     private String resolveSymbol(int orderId) {
@@ -12,6 +12,7 @@ import com.googlecode.lanterna.terminal.DefaultTerminalFactory;
 import com.googlecode.lanterna.terminal.Terminal;
 import com.googlecode.lanterna.TerminalSize;
 import com.googlecode.lanterna.terminal.swing.SwingTerminalFrame;
+import data.AccountMirror;
 import ibkr.IBKRConnection;
 import ibkr.model.AccountSummaryOutput;
 import ibkr.model.OrderOutput;
@@ -28,9 +29,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class TradingBotTUI {
@@ -58,8 +62,32 @@ public class TradingBotTUI {
     private Button startStopButton;
     private Panel strategyPanel;
 
-    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * Everything the status panel shows. Assembled on the refresher thread from in-memory state only
+     * (connection state, account mirror, journal aggregates), so building one never waits on TWS.
+     * Counts are -1 until the account mirror is seeded.
+     */
+    private record StatusSnapshot(IBKRConnection.ConnectionState connection,
+                                  String account, String accountType, String netLiquidation,
+                                  int positions, int orders,
+                                  String marketDataType, boolean marketDataDelayed,
+                                  int closedTrades, double netPnL,
+                                  boolean runnerRunning) {}
+
+    // Events arriving within this window are folded into one refresh
+    private static final long REFRESH_COALESCE_MS = 200;
+    // Safety net for state that changes without an event; repaints nothing unless something changed
+    private static final long REFRESH_FALLBACK_SECONDS = 30;
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "TUI-Refresher");
+        t.setDaemon(true);
+        return t;
+    });
     private volatile boolean isRunning = true;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private StatusSnapshot lastAssembled;   // refresher thread only
+    private StatusSnapshot painted;         // GUI thread only
 
     // P&L dialog filter state (persists between opens)
     private String lastStrategyFilter = "All Strategies";
@@ -191,7 +219,7 @@ public class TradingBotTUI {
         panel.addComponent(new Button("Positions", this::showPositions));
         panel.addComponent(new Button("Orders", this::showOrders));
         panel.addComponent(new Button("P&L", this::showPnL));
-        panel.addComponent(new Button("Refresh", this::refreshUI));
+        panel.addComponent(new Button("Refresh", this::requestRefresh));
         panel.addComponent(new Button("Quit", this::confirmQuit));
 
         return panel;
@@ -212,94 +240,104 @@ public class TradingBotTUI {
             log.info("Strategy runner started via TUI");
         }
         startStopButton.setLabel(strategyRunner.isRunning() ? "Stop" : "Start");
+        requestRefresh();
     }
 
+    /** Opens once the positions are available: at once from the account mirror, else after a TWS request. */
     private void showPositions() {
-        try {
-            List<PositionOutput> positions = ibkrConnection.reqPositions()
-                    .stream().filter(p -> !p.getPos().isZero()).collect(Collectors.toList());
-
-            BasicWindow win = new BasicWindow("Open Positions");
-            win.setHints(List.of(Window.Hint.CENTERED));
-
-            Panel grid = new Panel(new GridLayout(4));
-            addHeaderCell(grid, "Symbol");
-            addHeaderCell(grid, "Qty");
-            addHeaderCell(grid, "Avg Cost");
-            addHeaderCell(grid, "Account");
-
-            if (positions.isEmpty()) {
-                grid.addComponent(new Label("No open positions"));
-                for (int i = 0; i < 3; i++) grid.addComponent(new EmptySpace());
+        ibkrConnection.reqPositionsAsync().whenComplete((positions, ex) -> onGuiThread(() -> {
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                log.error("Failed to fetch positions", cause);
+                MessageDialog.showMessageDialog(gui, "Error", "Failed to fetch positions:\n" + cause.getMessage());
             } else {
-                for (PositionOutput pos : positions) {
-                    grid.addComponent(new Label(pos.getContract().symbol()).addStyle(SGR.BOLD));
-                    grid.addComponent(new Label(pos.getPos().toString()));
-                    grid.addComponent(new Label(String.format("$%.2f", pos.getAvgCost())));
-                    grid.addComponent(new Label(pos.getAccount()));
-                }
+                showPositions(positions.stream().filter(p -> !p.getPos().isZero()).collect(Collectors.toList()));
             }
+        }));
+    }
 
-            Panel main = new Panel(new LinearLayout(Direction.VERTICAL));
-            main.addComponent(grid.withBorder(Borders.singleLine()));
-            main.addComponent(new EmptySpace());
-            main.addComponent(new Button("Close", win::close));
-            win.setComponent(main);
-            gui.addWindowAndWait(win);
+    private void showPositions(List<PositionOutput> positions) {
+        BasicWindow win = new BasicWindow("Open Positions");
+        win.setHints(List.of(Window.Hint.CENTERED));
 
-        } catch (Exception e) {
-            log.error("Failed to fetch positions", e);
-            MessageDialog.showMessageDialog(gui, "Error", "Failed to fetch positions:\n" + e.getMessage());
+        Panel grid = new Panel(new GridLayout(4));
+        addHeaderCell(grid, "Symbol");
+        addHeaderCell(grid, "Qty");
+        addHeaderCell(grid, "Avg Cost");
+        addHeaderCell(grid, "Account");
+
+        if (positions.isEmpty()) {
+            grid.addComponent(new Label("No open positions"));
+            for (int i = 0; i < 3; i++) grid.addComponent(new EmptySpace());
+        } else {
+            for (PositionOutput pos : positions) {
+                grid.addComponent(new Label(pos.getContract().symbol()).addStyle(SGR.BOLD));
+                grid.addComponent(new Label(pos.getPos().toString()));
+                grid.addComponent(new Label(String.format("$%.2f", pos.getAvgCost())));
+                grid.addComponent(new Label(pos.getAccount()));
+            }
         }
+
+        Panel main = new Panel(new LinearLayout(Direction.VERTICAL));
+        main.addComponent(grid.withBorder(Borders.singleLine()));
+        main.addComponent(new EmptySpace());
+        main.addComponent(new Button("Close", win::close));
+        win.setComponent(main);
+        gui.addWindowAndWait(win);
     }
 
+    /** Opens once the open orders are available: at once from the account mirror, else after a TWS request. */
     private void showOrders() {
-        try {
-            List<OrderOutput> orders = ibkrConnection.reqAllOpenOrder();
-
-            BasicWindow win = new BasicWindow("Open Orders");
-            win.setHints(List.of(Window.Hint.CENTERED));
-
-            Panel grid = new Panel(new GridLayout(6));
-            addHeaderCell(grid, "Symbol");
-            addHeaderCell(grid, "Action");
-            addHeaderCell(grid, "Qty");
-            addHeaderCell(grid, "Type");
-            addHeaderCell(grid, "Status");
-            addHeaderCell(grid, "Strategy");
-
-            if (orders.isEmpty()) {
-                grid.addComponent(new Label("No open orders"));
-                for (int i = 0; i < 5; i++) grid.addComponent(new EmptySpace());
+        ibkrConnection.reqAllOpenOrderAsync().whenComplete((orders, ex) -> onGuiThread(() -> {
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                log.error("Failed to fetch orders", cause);
+                MessageDialog.showMessageDialog(gui, "Error", "Failed to fetch orders:\n" + cause.getMessage());
             } else {
-                for (OrderOutput order : orders) {
-                    grid.addComponent(new Label(order.getContract().symbol()).addStyle(SGR.BOLD));
+                showOrders(orders);
+            }
+        }));
+    }
 
-                    String action = order.getOrder().action().name();
-                    Label actionLbl = new Label(action);
-                    actionLbl.setForegroundColor("BUY".equals(action) ? TextColor.ANSI.GREEN : TextColor.ANSI.RED);
-                    grid.addComponent(actionLbl);
+    private void showOrders(List<OrderOutput> orders) {
+        BasicWindow win = new BasicWindow("Open Orders");
+        win.setHints(List.of(Window.Hint.CENTERED));
 
-                    grid.addComponent(new Label(order.getOrder().totalQuantity().toString()));
-                    grid.addComponent(new Label(order.getOrder().orderType().name()));
-                    grid.addComponent(new Label(order.getOrderState().status().name()));
+        Panel grid = new Panel(new GridLayout(6));
+        addHeaderCell(grid, "Symbol");
+        addHeaderCell(grid, "Action");
+        addHeaderCell(grid, "Qty");
+        addHeaderCell(grid, "Type");
+        addHeaderCell(grid, "Status");
+        addHeaderCell(grid, "Strategy");
+
+        if (orders.isEmpty()) {
+            grid.addComponent(new Label("No open orders"));
+            for (int i = 0; i < 5; i++) grid.addComponent(new EmptySpace());
+        } else {
+            for (OrderOutput order : orders) {
+                grid.addComponent(new Label(order.getContract().symbol()).addStyle(SGR.BOLD));
 
-                    String strategy = order.getOrder().orderRef();
-                    grid.addComponent(new Label(strategy != null && !strategy.isBlank() ? strategy : "-"));
-                }
-            }
+                String action = order.getOrder().action().name();
+                Label actionLbl = new Label(action);
+                actionLbl.setForegroundColor("BUY".equals(action) ? TextColor.ANSI.GREEN : TextColor.ANSI.RED);
+                grid.addComponent(actionLbl);
 
-            Panel main = new Panel(new LinearLayout(Direction.VERTICAL));
-            main.addComponent(grid.withBorder(Borders.singleLine()));
-            main.addComponent(new EmptySpace());
-            main.addComponent(new Button("Close", win::close));
-            win.setComponent(main);
-            gui.addWindowAndWait(win);
+                grid.addComponent(new Label(order.getOrder().totalQuantity().toString()));
+                grid.addComponent(new Label(order.getOrder().orderType().name()));
+                grid.addComponent(new Label(order.getOrderState().status().name()));
 
-        } catch (Exception e) {
-            log.error("Failed to fetch orders", e);
-            MessageDialog.showMessageDialog(gui, "Error", "Failed to fetch orders:\n" + e.getMessage());
+                String strategy = order.getOrder().orderRef();
+                grid.addComponent(new Label(strategy != null && !strategy.isBlank() ? strategy : "-"));
+            }
         }
+
+        Panel main = new Panel(new LinearLayout(Direction.VERTICAL));
+        main.addComponent(grid.withBorder(Borders.singleLine()));
+        main.addComponent(new EmptySpace());
+        main.addComponent(new Button("Close", win::close));
+        win.setComponent(main);
+        gui.addWindowAndWait(win);
     }
 
     // -------------------------------------------------------------------------
@@ -318,29 +356,27 @@ public class TradingBotTUI {
         lastStrategyFilter = strategyFilter;
         lastLoadedDays = loadedDays;
 
-        List<TradeRecord> allTrades = tradeJournal.getCompletedTrades();
-
-        // Build strategy options from loaded trades
+        // Build strategy options from the journal's running totals
         List<String> strategyOptions = new ArrayList<>();
         strategyOptions.add(ALL_STRATEGIES);
-        allTrades.stream().map(TradeRecord::getStrategy).distinct().sorted().forEach(strategyOptions::add);
+        tradeJournal.getStrategies().stream().sorted().forEach(strategyOptions::add);
 
-        // Date cutoff: "Today" = since midnight; other periods = last N×24h
-        LocalDateTime dateCutoff = (loadedDays == 1)
-                ? LocalDate.now().atStartOfDay()
-                : LocalDateTime.now().minusDays(loadedDays);
+        // Period: "Today" = since midnight; other periods = the last N calendar days including today
+        LocalDate since = LocalDate.now().minusDays(loadedDays - 1);
 
-        // Filter by date AND strategy
-        List<TradeRecord> filtered = allTrades.stream()
-                .filter(t -> t.getTime() != null && !t.getTime().isBefore(dateCutoff))
-                .filter(t -> ALL_STRATEGIES.equals(strategyFilter) || t.getStrategy().equals(strategyFilter))
-                .collect(Collectors.toList());
+        // Summaries come from the journal's per-day buckets; only the history table needs the trades
+        Map<String, TradeJournal.StrategySummary> summaries = new LinkedHashMap<>(tradeJournal.getStrategySummaries(since));
+        if (!ALL_STRATEGIES.equals(strategyFilter)) {
+            summaries.keySet().retainAll(List.of(strategyFilter));
+        }
+        int totalClosed = summaries.values().stream().mapToInt(TradeJournal.StrategySummary::closedTrades).sum();
+        int winners = summaries.values().stream().mapToInt(TradeJournal.StrategySummary::winningTrades).sum();
+        double totalNetPnL = summaries.values().stream().mapToDouble(TradeJournal.StrategySummary::totalNetPnL).sum();
+        double totalComm = summaries.values().stream().mapToDouble(TradeJournal.StrategySummary::totalCommission).sum();
 
-        List<TradeRecord> closingTrades = filtered.stream().filter(TradeRecord::isClosingTrade).collect(Collectors.toList());
-        int totalClosed = closingTrades.size();
-        int winners = (int) closingTrades.stream().filter(t -> t.getNetPnL() > 0).count();
-        double totalNetPnL = closingTrades.stream().mapToDouble(TradeRecord::getNetPnL).sum();
-        double totalComm = filtered.stream().mapToDouble(TradeRecord::getCommission).sum();
+        LocalDateTime dateCutoff = since.atStartOfDay();
+        List<TradeRecord> filtered = tradeJournal.getTrades(dateCutoff, null,
+                ALL_STRATEGIES.equals(strategyFilter) ? null : strategyFilter, null);
 
         BasicWindow win = new BasicWindow("P&L Report");
         win.setHints(List.of(Window.Hint.CENTERED));
@@ -397,7 +433,6 @@ public class TradingBotTUI {
 
         // ── Strategy summary table ────────────────────────────────────────────
         mainPanel.addComponent(new Label("Strategy Summary").addStyle(SGR.BOLD));
-        Map<String, TradeJournal.StrategySummary> summaries = buildSummaries(filtered);
 
         if (summaries.isEmpty()) {
             mainPanel.addComponent(new Label("  No completed trades for the selected filter."));
@@ -447,7 +482,7 @@ public class TradingBotTUI {
         // ── Trade history ─────────────────────────────────────────────────────
         int entryCount = (int) filtered.stream().filter(t -> !t.isClosingTrade()).count();
         String histTitle = String.format("Trade History  (%d closed, %d entries)",
-                closingTrades.size(), entryCount);
+                filtered.size() - entryCount, entryCount);
         mainPanel.addComponent(new Label(histTitle).addStyle(SGR.BOLD));
 
         if (filtered.isEmpty()) {
@@ -501,64 +536,107 @@ public class TradingBotTUI {
     // Refresh logic
     // -------------------------------------------------------------------------
 
-    private void refreshUI() {
-        refreshStatusPanel();
-        startStopButton.setLabel(strategyRunner.isRunning() ? "Stop" : "Start");
+    /**
+     * Asks for a status refresh. Cheap and callable from any thread: events arriving while one is
+     * pending are folded into it, and the snapshot is assembled on the refresher thread.
+     */
+    private void requestRefresh() {
+        if (!isRunning || !refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.schedule(this::assembleAndPublish, REFRESH_COALESCE_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
     }
 
-    private void refreshStatusPanel() {
+    /** Refresher thread: builds a snapshot and hands it to the GUI thread only if it changed. */
+    private void assembleAndPublish() {
+        refreshPending.set(false);    // events from here on need another pass
         try {
-            // Connection state
-            IBKRConnection.ConnectionState state = ibkrConnection.getConnectionState();
-            switch (state) {
+            StatusSnapshot snapshot = assembleStatus();
+            if (!snapshot.equals(lastAssembled)) {
+                lastAssembled = snapshot;
+                onGuiThread(() -> paintStatus(snapshot));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh status: {}", e.getMessage());
+        }
+    }
+
+    private StatusSnapshot assembleStatus() {
+        AccountMirror.Snapshot mirror = ibkrConnection.getAccountSnapshot();
+        AccountSummaryOutput accountType = mirror.accountValues().get("AccountType");
+        AccountSummaryOutput netLiq = mirror.accountValues().get("NetLiquidation");
+        int positions = -1;
+        int orders = -1;
+        if (mirror.ready()) {
+            positions = (int) mirror.positions().stream().filter(p -> !p.getPos().isZero()).count();
+            orders = mirror.openOrders().size();
+        }
+        TradeJournal.StrategySummary totals = tradeJournal.getTotalSummary(LocalDate.MIN);
+        return new StatusSnapshot(
+                ibkrConnection.getConnectionState(),
+                accountType != null ? accountType.getAccount() : null,
+                accountType != null ? accountType.getValue() : null,
+                netLiq != null ? netLiq.getValue() : null,
+                positions, orders,
+                ibkrConnection.getMarketDataTypeString(), ibkrConnection.isMarketDataDelayed(),
+                totals.closedTrades(), totals.totalNetPnL(),
+                strategyRunner.isRunning());
+    }
+
+    /** GUI thread: updates only the labels whose values differ from the last painted snapshot. */
+    private void paintStatus(StatusSnapshot s) {
+        StatusSnapshot old = painted;
+        painted = s;
+
+        if (old == null || old.connection() != s.connection()) {
+            switch (s.connection()) {
                 case CONNECTED    -> { statusLabel.setText("CONNECTED");     statusLabel.setForegroundColor(TextColor.ANSI.GREEN); }
                 case CONNECTING   -> { statusLabel.setText("CONNECTING..."); statusLabel.setForegroundColor(TextColor.ANSI.YELLOW); }
                 case RECONNECTING -> { statusLabel.setText("RECONNECTING..."); statusLabel.setForegroundColor(TextColor.ANSI.YELLOW); }
                 case DISCONNECTED -> { statusLabel.setText("DISCONNECTED");  statusLabel.setForegroundColor(TextColor.ANSI.RED); }
                 case FAILED       -> { statusLabel.setText("FAILED");        statusLabel.setForegroundColor(TextColor.ANSI.RED); }
             }
+        }
 
-            // Account summary
-            List<AccountSummaryOutput> accountSummary = ibkrConnection.reqAccountSummary("NetLiquidation,AccountType");
-            for (AccountSummaryOutput s : accountSummary) {
-                if ("NetLiquidation".equals(s.getTag())) {
-                    netLiqLabel.setText("$" + s.getValue());
-                }
-                if ("AccountType".equals(s.getTag())) {
-                    accountLabel.setText(s.getAccount() + " (" + s.getValue() + ")");
-                    boolean isPaper = s.getAccount().startsWith("DU") || s.getAccount().startsWith("DF");
-                    tradingModeLabel.setText(isPaper ? "PAPER" : "LIVE");
-                    tradingModeLabel.setForegroundColor(isPaper ? TextColor.ANSI.YELLOW : TextColor.ANSI.RED_BRIGHT);
-                    tradingModeLabel.setBackgroundColor(isPaper ? TextColor.ANSI.BLACK : TextColor.ANSI.WHITE);
-                }
-            }
-
-            // Positions and orders counts
-            List<PositionOutput> positions = ibkrConnection.reqPositions();
-            long activePos = positions.stream().filter(p -> !p.getPos().isZero()).count();
-            positionsCountLabel.setText(String.valueOf(activePos));
+        if (s.account() != null && (old == null || !Objects.equals(old.account(), s.account())
+                || !Objects.equals(old.accountType(), s.accountType()))) {
+            accountLabel.setText(s.account() + " (" + s.accountType() + ")");
+            boolean isPaper = s.account().startsWith("DU") || s.account().startsWith("DF");
+            tradingModeLabel.setText(isPaper ? "PAPER" : "LIVE");
+            tradingModeLabel.setForegroundColor(isPaper ? TextColor.ANSI.YELLOW : TextColor.ANSI.RED_BRIGHT);
+            tradingModeLabel.setBackgroundColor(isPaper ? TextColor.ANSI.BLACK : TextColor.ANSI.WHITE);
+        }
+        if (s.netLiquidation() != null && (old == null || !Objects.equals(old.netLiquidation(), s.netLiquidation()))) {
+            netLiqLabel.setText("$" + s.netLiquidation());
+        }
 
-            List<OrderOutput> orders = ibkrConnection.reqAllOpenOrder();
-            ordersCountLabel.setText(String.valueOf(orders.size()));
+        if (old == null || old.positions() != s.positions()) {
+            positionsCountLabel.setText(s.positions() >= 0 ? String.valueOf(s.positions()) : "-");
+        }
+        if (old == null || old.orders() != s.orders()) {
+            ordersCountLabel.setText(s.orders() >= 0 ? String.valueOf(s.orders()) : "-");
+        }
 
-            // Market data type
-            boolean isDelayed = ibkrConnection.isMarketDataDelayed();
-            marketDataTypeLabel.setText(ibkrConnection.getMarketDataTypeString());
-            marketDataTypeLabel.setForegroundColor(isDelayed ? TextColor.ANSI.RED_BRIGHT : TextColor.ANSI.GREEN);
+        if (old == null || !Objects.equals(old.marketDataType(), s.marketDataType())
+                || old.marketDataDelayed() != s.marketDataDelayed()) {
+            marketDataTypeLabel.setText(s.marketDataType());
+            marketDataTypeLabel.setForegroundColor(s.marketDataDelayed() ? TextColor.ANSI.RED_BRIGHT : TextColor.ANSI.GREEN);
+        }
 
-            // Journal summary
-            List<TradeRecord> closingTrades = tradeJournal.getCompletedTrades().stream()
-                    .filter(TradeRecord::isClosingTrade).collect(Collectors.toList());
-            int closed = closingTrades.size();
-            double netPnL = closingTrades.stream().mapToDouble(TradeRecord::getNetPnL).sum();
-            journalTradesLabel.setText(closed + " closed");
-            journalPnLLabel.setText(formatPnL(netPnL));
-            journalPnLLabel.setForegroundColor(netPnL >= 0 ? TextColor.ANSI.GREEN : TextColor.ANSI.RED);
+        if (old == null || old.closedTrades() != s.closedTrades()) {
+            journalTradesLabel.setText(s.closedTrades() + " closed");
+        }
+        if (old == null || old.netPnL() != s.netPnL()) {
+            journalPnLLabel.setText(formatPnL(s.netPnL()));
+            journalPnLLabel.setForegroundColor(s.netPnL() >= 0 ? TextColor.ANSI.GREEN : TextColor.ANSI.RED);
+        }
 
-        } catch (Exception e) {
-            statusLabel.setText("ERROR");
-            statusLabel.setForegroundColor(TextColor.ANSI.RED);
-            log.warn("Failed to refresh status: {}", e.getMessage());
+        if (old == null || old.runnerRunning() != s.runnerRunning()) {
+            startStopButton.setLabel(s.runnerRunning() ? "Stop" : "Start");
         }
     }
 
@@ -571,6 +649,11 @@ public class TradingBotTUI {
         return String.format("%s$%.2f", value >= 0 ? "+" : "-", Math.abs(value));
     }
 
+    /** Coalesced requests complete dependent futures, which wrap the failure. */
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
     private static void addHeaderCell(Panel panel, String text) {
         panel.addComponent(new Label(text).addStyle(SGR.BOLD).addStyle(SGR.UNDERLINE));
     }
@@ -579,23 +662,6 @@ public class TradingBotTUI {
         panel.addComponent(new Label(text).addStyle(SGR.BOLD));
     }
 
-    /** Builds strategy summaries from an arbitrary list of trades (supports filtered views). */
-    private Map<String, TradeJournal.StrategySummary> buildSummaries(List<TradeRecord> trades) {
-        Map<String, List<TradeRecord>> byStrategy = new LinkedHashMap<>();
-        for (TradeRecord t : trades) byStrategy.computeIfAbsent(t.getStrategy(), k -> new ArrayList<>()).add(t);
-
-        Map<String, TradeJournal.StrategySummary> result = new LinkedHashMap<>();
-        for (Map.Entry<String, List<TradeRecord>> e : byStrategy.entrySet()) {
-            List<TradeRecord> ts = e.getValue();
-            int total   = ts.size();
-            int winners = (int) ts.stream().filter(t -> t.isClosingTrade() && t.getNetPnL() > 0).count();
-            double netPnL    = ts.stream().filter(TradeRecord::isClosingTrade).mapToDouble(TradeRecord::getNetPnL).sum();
-            double commission = ts.stream().mapToDouble(TradeRecord::getCommission).sum();
-            result.put(e.getKey(), new TradeJournal.StrategySummary(e.getKey(), total, winners, netPnL, commission));
-        }
-        return result;
-    }
-
     private void confirmQuit() {
         MessageDialogButton result = MessageDialog.showMessageDialog(
                 gui, "Confirm Exit",
@@ -607,13 +673,24 @@ public class TradingBotTUI {
         }
     }
 
+    /** Redraws on connection, account mirror, market data type and journal changes. */
     private void startRefreshTask() {
-        refresher.scheduleAtFixedRate(() -> {
-            if (isRunning && gui != null) {
-                try { gui.getGUIThread().invokeLater(this::refreshUI); }
-                catch (Exception e) { log.trace("Refresh failed: {}", e.getMessage()); }
-            }
-        }, 5, 30, TimeUnit.SECONDS);
+        ibkrConnection.addStateListener(this::requestRefresh);
+        tradeJournal.addTradeListener(trade -> requestRefresh());
+        refresher.scheduleWithFixedDelay(this::requestRefresh,
+                REFRESH_FALLBACK_SECONDS, REFRESH_FALLBACK_SECONDS, TimeUnit.SECONDS);
+        requestRefresh();
+    }
+
+    private void onGuiThread(Runnable task) {
+        if (!isRunning || gui == null) {
+            return;
+        }
+        try {
+            gui.getGUIThread().invokeLater(task);
+        } catch (IllegalStateException e) {
+            log.trace("GUI thread gone: {}", e.getMessage());
+        }
     }
 
     private void shutdown() {
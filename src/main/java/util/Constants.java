@@ -1,5 +1,6 @@
 package util;
 
+import java.time.Clock;
 import java.time.LocalTime;
 import java.time.ZoneId;
 
@@ -13,6 +14,9 @@ public class Constants {
     // Fixed ID for open orders
     public static final int OPEN_ORDERS_REQ_ID = 1;
 
+    // Fixed ID for the account summary subscription that feeds the account mirror
+    public static final int ACCOUNT_MIRROR_REQ_ID = 2;
+
     // Stock priced $1.00 or above
     public static final double STANDARD_TICK_SIZE = 0.01;
 
@@ -23,8 +27,10 @@ public class Constants {
     public static final double RISK_PER_TRADE = 0.025;
 
     public static final ZoneId EASTERN = ZoneId.of("America/New_York");
+    // Wall clock in Eastern time; backtests substitute a simulated clock through Broker.clock()
+    public static final Clock EASTERN_CLOCK = Clock.system(EASTERN);
     public static LocalTime timeNow() {
-        return LocalTime.now(EASTERN);
+        return LocalTime.now(EASTERN_CLOCK);
     }
     public static final LocalTime MARKET_CLOSE = LocalTime.of(16, 0);
     public static final LocalTime INTRADAY_CUTOFF = LocalTime.of(15, 30); // 30 min before close